@@ -0,0 +1,111 @@
+package com.invoiceprocessor.benchmark;
+
+import com.invoiceprocessor.archive.ArchiveLocation;
+import com.invoiceprocessor.archive.DeflateCompressor;
+import com.invoiceprocessor.archive.DocumentArchive;
+import com.invoiceprocessor.benchmark.BenchmarkDocuments.DocumentSize;
+import com.invoiceprocessor.benchmark.BenchmarkDocuments.DocumentType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cost of archiving the original document.
+ * <ul>
+ *   <li>compress - deflate into the pooled compressor, with and without the trained dictionary</li>
+ *   <li>inflate - decoding a stored document back to XML, what GET /api/invoices/{id}/xml does for dictionary records</li>
+ *   <li>store - compress plus the append to a segment file, fsync off so the disk is not what is measured</li>
+ * </ul>
+ * The compression ratios are listed in the README, DocumentArchiveTest checks the dictionary gain.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArchiveBenchmark {
+
+    private static final String DICTIONARY = "archive/faktura.dict";
+
+    @Param({"SMALL", "MEDIUM"})
+    private DocumentSize documentSize;
+
+    @Param({"false", "true"})
+    private boolean dictionary;
+
+    @Param({"1", "6"})
+    private int level;
+
+    private byte[] xml;
+    private DeflateCompressor compressor;
+    private DeflateCompressor.Compressed compressed;
+    private Path directory;
+    private DocumentArchive archive;
+    // Every store gets a new hash, otherwise all but the first would be index hits
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        xml = BenchmarkDocuments.generate(DocumentType.FAKTURA, documentSize);
+        compressor = new DeflateCompressor(level, dictionary ? loadDictionary() : null,
+            DeflateCompressor.DEFAULT_POOL_SIZE);
+        compressed = compressor.compress(xml);
+
+        directory = Files.createTempDirectory("archive-benchmark");
+        archive = new DocumentArchive(new SimpleMeterRegistry(), new DefaultResourceLoader(), true,
+            directory.toString(), 64L * 1024 * 1024, level, dictionary ? "classpath:" + DICTIONARY : "", false);
+        archive.open();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        archive.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public DeflateCompressor.Compressed compress() {
+        return compressor.compress(xml);
+    }
+
+    @Benchmark
+    public int inflate() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(xml.length);
+        compressor.inflate(compressed.codec(), compressed.bytes(), out);
+        return out.size();
+    }
+
+    @Benchmark
+    public ArchiveLocation store() {
+        return archive.store(String.format("%064x", sequence.incrementAndGet()), xml);
+    }
+
+    private static byte[] loadDictionary() throws IOException {
+        try (InputStream in = new ClassPathResource(DICTIONARY).getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.invoiceprocessor.benchmark;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Generated, schema-valid documents for the pipeline benchmarks.
+ * The XSD fixes the shape of both root types, so larger documents are produced by padding
+ * the body with comment blocks - every byte still goes through the parser and validator.
+ */
+public final class BenchmarkDocuments {
+
+    public enum DocumentType { FAKTURA, INVOICE }
+
+    public enum DocumentSize {
+        SMALL(0),
+        MEDIUM(64 * 1024),
+        LARGE(8 * 1024 * 1024);
+
+        private final int paddingBytes;
+
+        DocumentSize(int paddingBytes) {
+            this.paddingBytes = paddingBytes;
+        }
+    }
+
+    private static final String NAMESPACE = "http://crd.gov.pl/wzor/2023/06/29/12648/";
+    private static final String PADDING_LINE =
+        "<!-- Pozycja faktury: towar lub usluga, ilosc, cena jednostkowa netto, stawka podatku -->\n";
+
+    private BenchmarkDocuments() {
+    }
+
+    static byte[] generate(DocumentType type, DocumentSize size) {
+        String padding = padding(size.paddingBytes);
+        String xml = switch (type) {
+            case FAKTURA -> "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<Faktura xmlns=\"" + NAMESPACE + "\">\n"
+                + "<Naglowek><KodFormularza>FA</KodFormularza><WariantFormularza>1</WariantFormularza>"
+                + "<DataWytworzeniaFa>2023-12-01T10:30:00</DataWytworzeniaFa><SystemInfo>Benchmark</SystemInfo></Naglowek>\n"
+                + "<Podmiot1><DaneIdentyfikacyjne><NIP>1234567890</NIP><Nazwa>Seller</Nazwa></DaneIdentyfikacyjne>"
+                + "<Adres><KodKraju>PL</KodKraju><AdresL1>Warszawa</AdresL1></Adres></Podmiot1>\n"
+                + "<Podmiot2><DaneIdentyfikacyjne><NIP>9876543210</NIP><Nazwa>Buyer</Nazwa></DaneIdentyfikacyjne></Podmiot2>\n"
+                + padding
+                + "<Fa><KodWaluty>PLN</KodWaluty><P_1>2023-01-15</P_1><P_2>INV-001</P_2><P_15>1000.00</P_15></Fa>\n"
+                + "</Faktura>\n";
+            case INVOICE -> "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<Invoice xmlns=\"" + NAMESPACE + "\">\n"
+                + padding
+                + "<InvoiceNumber>INV-2023-001</InvoiceNumber>\n"
+                + "</Invoice>\n";
+        };
+        return xml.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String padding(int bytes) {
+        StringBuilder padding = new StringBuilder(bytes + PADDING_LINE.length());
+        while (padding.length() < bytes) {
+            padding.append(PADDING_LINE);
+        }
+        return padding.toString();
+    }
+}
@@ -0,0 +1,121 @@
+package com.invoiceprocessor.benchmark;
+
+import com.invoiceprocessor.persistence.JdbcConcurrencyLimiter;
+import com.invoiceprocessor.xml.JaxbUnmarshallingEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests per second for the two execution modes under a growing number of concurrent clients.
+ * Each simulated request unmarshals a small invoice with the shared JAXB engine and then holds a
+ * JDBC slot for a fixed latency, which is where platform threads spend most of their time blocked.
+ * <ul>
+ *   <li>platform - 200 thread pool, the Tomcat default</li>
+ *   <li>virtual - one virtual thread per request, as with spring.threads.virtual.enabled=true</li>
+ * </ul>
+ * jdbcPermits plays the role of invoice.jdbc.max-concurrency; with a small value both modes converge
+ * on the database limit, with a large one virtual threads keep scaling past the platform pool.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ExecutionModeBenchmark {
+
+    private static final int REQUESTS = 2000;
+    private static final int PLATFORM_POOL_SIZE = 200;
+
+    private static final byte[] DOCUMENT = (
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<Invoice xmlns=\"http://crd.gov.pl/wzor/2023/06/29/12648/\">"
+            + "<InvoiceNumber>INV-2023-001</InvoiceNumber>"
+            + "</Invoice>").getBytes(StandardCharsets.UTF_8);
+
+    @Param({"platform", "virtual"})
+    private String mode;
+
+    @Param({"50", "200", "1000"})
+    private int clients;
+
+    @Param({"10", "500"})
+    private int jdbcPermits;
+
+    @Param({"5"})
+    private long jdbcLatencyMillis;
+
+    private ExecutorService executor;
+    private JaxbUnmarshallingEngine unmarshallingEngine;
+    private JdbcConcurrencyLimiter jdbcConcurrencyLimiter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = "virtual".equals(mode)
+            ? Executors.newVirtualThreadPerTaskExecutor()
+            : Executors.newFixedThreadPool(PLATFORM_POOL_SIZE);
+        unmarshallingEngine = new JaxbUnmarshallingEngine(JaxbUnmarshallingEngine.DEFAULT_POOL_SIZE, true);
+        jdbcConcurrencyLimiter = new JdbcConcurrencyLimiter(jdbcPermits, TimeUnit.MINUTES.toMillis(1));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Push REQUESTS requests through the executor, keeping at most 'clients' of them in flight
+     */
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public void handleRequests() throws InterruptedException {
+        Semaphore inFlight = new Semaphore(clients);
+        CountDownLatch done = new CountDownLatch(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            inFlight.acquire();
+            executor.execute(() -> {
+                try {
+                    handleRequest();
+                } finally {
+                    inFlight.release();
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    private void handleRequest() {
+        unmarshallingEngine.unmarshal(new StreamSource(new ByteArrayInputStream(DOCUMENT)));
+        jdbcConcurrencyLimiter.execute(() -> {
+            try {
+                Thread.sleep(jdbcLatencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+    }
+}
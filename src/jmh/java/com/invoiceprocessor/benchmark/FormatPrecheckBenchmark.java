@@ -0,0 +1,119 @@
+package com.invoiceprocessor.benchmark;
+
+import com.invoiceprocessor.benchmark.BenchmarkDocuments.DocumentSize;
+import com.invoiceprocessor.benchmark.BenchmarkDocuments.DocumentType;
+import com.invoiceprocessor.chain.XmlFormatValidationHandler;
+import com.invoiceprocessor.dto.ValidationContext;
+import com.invoiceprocessor.exception.XmlValidationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Structural pre-check before the XSD stage: the single-pass scanner in XmlFormatValidationHandler
+ * against the two earlier implementations.
+ * <ul>
+ *   <li>stringScans - the original: decode to String, trim, two contains and two chars() streams</li>
+ *   <li>byteTwoPass - the byte[] version: prolog check plus one loop counting both brackets</li>
+ *   <li>singlePass - the current handler: prolog, tag closure, nesting depth and size in one loop</li>
+ * </ul>
+ * MALFORMED documents carry a stray '&lt;' right after the root start tag, so the single pass can
+ * reject them early while the bracket counters still read the whole document.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormatPrecheckBenchmark {
+
+    public enum Input { VALID, MALFORMED }
+
+    private static final byte[] XML_DECLARATION = "<?xml".getBytes(StandardCharsets.US_ASCII);
+
+    @Param({"FAKTURA"})
+    private DocumentType documentType;
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    private DocumentSize documentSize;
+
+    @Param({"VALID", "MALFORMED"})
+    private Input input;
+
+    private byte[] xmlBytes;
+    private XmlFormatValidationHandler handler;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        byte[] document = BenchmarkDocuments.generate(documentType, documentSize);
+        xmlBytes = input == Input.VALID ? document : injectStrayBracket(document);
+        handler = new XmlFormatValidationHandler(Integer.MAX_VALUE, XmlFormatValidationHandler.DEFAULT_MAX_DEPTH);
+    }
+
+    @Benchmark
+    public boolean stringScans() {
+        String xmlContent = new String(xmlBytes, StandardCharsets.UTF_8);
+        if (!xmlContent.trim().startsWith("<?xml")) {
+            return false;
+        }
+        if (!xmlContent.contains("<") || !xmlContent.contains(">")) {
+            return false;
+        }
+        long openTags = xmlContent.chars().filter(ch -> ch == '<').count();
+        long closeTags = xmlContent.chars().filter(ch -> ch == '>').count();
+        return openTags == closeTags;
+    }
+
+    @Benchmark
+    public boolean byteTwoPass() {
+        int start = 0;
+        while (start < xmlBytes.length && xmlBytes[start] <= ' ') {
+            start++;
+        }
+        for (int i = 0; i < XML_DECLARATION.length; i++) {
+            if (start + i >= xmlBytes.length || xmlBytes[start + i] != XML_DECLARATION[i]) {
+                return false;
+            }
+        }
+        long openTags = 0;
+        long closeTags = 0;
+        for (byte b : xmlBytes) {
+            if (b == '<') {
+                openTags++;
+            } else if (b == '>') {
+                closeTags++;
+            }
+        }
+        return openTags != 0 && openTags == closeTags;
+    }
+
+    @Benchmark
+    public boolean singlePass() {
+        try {
+            handler.handle(new ValidationContext(xmlBytes));
+            return true;
+        } catch (XmlValidationException e) {
+            return false;
+        }
+    }
+
+    private static byte[] injectStrayBracket(byte[] document) {
+        String xml = new String(document, StandardCharsets.UTF_8);
+        int rootStart = xml.indexOf('<', xml.indexOf("?>"));
+        int rootEnd = xml.indexOf('>', rootStart) + 1;
+        return (xml.substring(0, rootEnd) + "<" + xml.substring(rootEnd)).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,143 @@
+package com.invoiceprocessor.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows per second for the two invoice ID strategies against a real PostgreSQL instance.
+ * <ul>
+ *   <li>identityRowByRow - what Hibernate does with GenerationType.IDENTITY: one INSERT ... RETURNING per row</li>
+ *   <li>sequenceBatched - pooled-lo sequence (one nextval per 50 IDs) with JDBC batches and reWriteBatchedInserts</li>
+ * </ul>
+ * Connection settings come from BENCH_JDBC_URL, BENCH_JDBC_USER and BENCH_JDBC_PASSWORD,
+ * defaulting to the values in application.properties. Scratch tables are created and dropped by the benchmark.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class IdStrategyInsertBenchmark {
+
+    private static final int ROWS = 1000;
+    private static final int ALLOCATION_SIZE = 50;
+    private static final int JDBC_BATCH_SIZE = 50;
+
+    private Connection connection;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+            env("BENCH_JDBC_URL", "jdbc:postgresql://localhost:5432/invoice_db?reWriteBatchedInserts=true"),
+            env("BENCH_JDBC_USER", "postgres"),
+            env("BENCH_JDBC_PASSWORD", "123456"));
+        connection.setAutoCommit(false);
+
+        try (Statement statement = connection.createStatement()) {
+            dropTables(statement);
+            statement.execute("CREATE TABLE bench_invoices_identity ("
+                + "id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "nip VARCHAR(255) NOT NULL, p1 VARCHAR(255) NOT NULL, p2 VARCHAR(255) NOT NULL)");
+            statement.execute("CREATE SEQUENCE bench_invoice_seq INCREMENT BY " + ALLOCATION_SIZE);
+            statement.execute("CREATE TABLE bench_invoices_sequence ("
+                + "id BIGINT PRIMARY KEY, "
+                + "nip VARCHAR(255) NOT NULL, p1 VARCHAR(255) NOT NULL, p2 VARCHAR(255) NOT NULL)");
+        }
+        connection.commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            dropTables(statement);
+        }
+        connection.commit();
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long identityRowByRow() throws SQLException {
+        long lastId = 0;
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO bench_invoices_identity (nip, p1, p2) VALUES (?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < ROWS; i++) {
+                insert.setString(1, "1234567890");
+                insert.setString(2, "2023-01-15");
+                insert.setString(3, "INV-" + i);
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    keys.next();
+                    lastId = keys.getLong(1);
+                }
+            }
+        }
+        connection.commit();
+        return lastId;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long sequenceBatched() throws SQLException {
+        long nextId = 0;
+        int remaining = 0;
+        try (PreparedStatement nextval = connection.prepareStatement("SELECT nextval('bench_invoice_seq')");
+             PreparedStatement insert = connection.prepareStatement(
+                 "INSERT INTO bench_invoices_sequence (id, nip, p1, p2) VALUES (?, ?, ?, ?)")) {
+            for (int i = 0; i < ROWS; i++) {
+                if (remaining == 0) {
+                    // pooled-lo: the sequence value is the low end of the next block of IDs
+                    try (ResultSet rs = nextval.executeQuery()) {
+                        rs.next();
+                        nextId = rs.getLong(1);
+                    }
+                    remaining = ALLOCATION_SIZE;
+                }
+                insert.setLong(1, nextId++);
+                insert.setString(2, "1234567890");
+                insert.setString(3, "2023-01-15");
+                insert.setString(4, "INV-" + i);
+                insert.addBatch();
+                remaining--;
+                if ((i + 1) % JDBC_BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        return nextId;
+    }
+
+    private static void dropTables(Statement statement) throws SQLException {
+        statement.execute("DROP TABLE IF EXISTS bench_invoices_identity");
+        statement.execute("DROP TABLE IF EXISTS bench_invoices_sequence");
+        statement.execute("DROP SEQUENCE IF EXISTS bench_invoice_seq");
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null && !value.isBlank() ? value : defaultValue;
+    }
+}
@@ -0,0 +1,144 @@
+package com.invoiceprocessor.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import com.invoiceprocessor.benchmark.BenchmarkDocuments.DocumentSize;
+import com.invoiceprocessor.benchmark.BenchmarkDocuments.DocumentType;
+import com.invoiceprocessor.logging.PayloadLogMode;
+import com.invoiceprocessor.logging.PayloadLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Log output of one request through the pipeline, written to a file appender.
+ * <ul>
+ *   <li>payloadAtInfo - the original logging: the decoded document plus the per-stage and per-field lines at INFO</li>
+ *   <li>guarded - the current behaviour: per-stage lines at DEBUG (disabled), one INFO line per request and
+ *   the payload sampled at 1% as a hash</li>
+ * </ul>
+ * Both run against a synchronous file appender and the AsyncAppender used by logback-spring.xml.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class LoggingBenchmark {
+
+    public enum AppenderType { SYNC, ASYNC }
+
+    private static final String PIPELINE_LOGGER = "com.invoiceprocessor.benchmark.pipeline";
+
+    @Param({"SMALL", "MEDIUM"})
+    private DocumentSize documentSize;
+
+    @Param({"SYNC", "ASYNC"})
+    private AppenderType appender;
+
+    private byte[] xmlBytes;
+    private Path logFile;
+    private Appender<ILoggingEvent> target;
+    private org.slf4j.Logger log;
+    private PayloadLogger payloadLogger;
+
+    @Setup
+    public void setUp() throws IOException {
+        xmlBytes = BenchmarkDocuments.generate(DocumentType.FAKTURA, documentSize);
+        logFile = Files.createTempFile("logging-benchmark", ".log");
+
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss.SSS} %5level --- [%thread] %logger{39} : %msg%n");
+        encoder.start();
+
+        FileAppender<ILoggingEvent> file = new FileAppender<>();
+        file.setContext(context);
+        file.setFile(logFile.toString());
+        file.setEncoder(encoder);
+        file.start();
+        target = file;
+
+        if (appender == AppenderType.ASYNC) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setQueueSize(8192);
+            async.setNeverBlock(true);
+            async.addAppender(file);
+            async.start();
+            target = async;
+        }
+
+        attach(context.getLogger(PIPELINE_LOGGER), Level.INFO);
+        attach(context.getLogger(PayloadLogger.LOGGER_NAME), Level.DEBUG);
+        log = LoggerFactory.getLogger(PIPELINE_LOGGER);
+        payloadLogger = new PayloadLogger(PayloadLogMode.HASH, 256, 0.01);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        context.getLogger(PIPELINE_LOGGER).detachAndStopAllAppenders();
+        context.getLogger(PayloadLogger.LOGGER_NAME).detachAndStopAllAppenders();
+        Files.deleteIfExists(logFile);
+    }
+
+    @Benchmark
+    public void payloadAtInfo() {
+        log.info("Decoded XML content: {}", new String(xmlBytes, StandardCharsets.UTF_8));
+        log.info("🚀 Processing started for XML type: {}", "Unknown");
+        log.info("✅ XML validation completed for type: {}", "XML");
+        log.info("XML unmarshalling successful");
+        log.info("Extracted data from Faktura - NIP: {}, P1: {}, P2: {}", "1234567890", "2023-12-01", "FV/2023/12/001");
+        log.info("📊 Data extracted successfully - Type: {}, NIP: {}, P1: {}, P2: {}",
+            "Faktura", "1234567890", "2023-12-01", "FV/2023/12/001");
+        log.info("Invoice saved successfully with ID: {}", 42L);
+        log.info("🎉 Processing completed successfully - Invoice ID: {}", "42");
+    }
+
+    @Benchmark
+    public void guarded() {
+        log.debug("Decoded XML content: {} bytes", xmlBytes.length);
+        payloadLogger.log(xmlBytes);
+        log.debug("🚀 Processing started for XML type: {}", "Unknown");
+        log.debug("✅ XML validation completed for type: {}", "XML");
+        log.debug("XML unmarshalling successful");
+        log.debug("Extracted data from Faktura - NIP: {}, P1: {}, P2: {}", "1234567890", "2023-12-01", "FV/2023/12/001");
+        log.debug("📊 Data extracted successfully - Type: {}, NIP: {}, P1: {}, P2: {}",
+            "Faktura", "1234567890", "2023-12-01", "FV/2023/12/001");
+        log.info("Invoice saved successfully with ID: {}", 42L);
+        log.info("🎉 Processing completed successfully - Invoice ID: {}", "42");
+    }
+
+    private void attach(Logger logger, Level level) {
+        logger.setLevel(level);
+        logger.setAdditive(false);
+        logger.addAppender(target);
+    }
+}
@@ -0,0 +1,142 @@
+package com.invoiceprocessor.benchmark;
+
+import com.invoiceprocessor.benchmark.BenchmarkDocuments.DocumentSize;
+import com.invoiceprocessor.benchmark.BenchmarkDocuments.DocumentType;
+import com.invoiceprocessor.chain.XmlFormatValidationHandler;
+import com.invoiceprocessor.chain.XmlSchemaValidationHandler;
+import com.invoiceprocessor.dto.ExtractedData;
+import com.invoiceprocessor.dto.ValidationContext;
+import com.invoiceprocessor.factory.XmlProcessorFactory;
+import com.invoiceprocessor.strategy.FakturaProcessorStrategy;
+import com.invoiceprocessor.strategy.FakturaStreamingStrategy;
+import com.invoiceprocessor.strategy.InvoiceProcessorStrategy;
+import com.invoiceprocessor.strategy.InvoiceStreamingStrategy;
+import com.invoiceprocessor.strategy.XmlProcessorStrategy;
+import com.invoiceprocessor.xml.ExtractionMappingRegistry;
+import com.invoiceprocessor.xml.JaxbUnmarshallingEngine;
+import com.invoiceprocessor.xml.SchemaRegistry;
+import com.invoiceprocessor.xml.StaxExtractionEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of each stage of InvoiceService.processInvoice in isolation, per document type and size.
+ * Every stage gets the output of the previous one prepared in setup, so the numbers add up to
+ * roughly one pass through the pipeline (minus observers and persistence).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineStageBenchmark {
+
+    @Param({"FAKTURA", "INVOICE"})
+    private DocumentType documentType;
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    private DocumentSize documentSize;
+
+    private String base64Xml;
+    private byte[] xmlBytes;
+    private Object xmlObject;
+
+    private XmlFormatValidationHandler formatHandler;
+    private XmlSchemaValidationHandler schemaHandler;
+    private JaxbUnmarshallingEngine unmarshallingEngine;
+    private XmlProcessorFactory processorFactory;
+    private XmlProcessorStrategy strategy;
+    private StaxExtractionEngine staxExtractionEngine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        xmlBytes = BenchmarkDocuments.generate(documentType, documentSize);
+        base64Xml = Base64.getEncoder().encodeToString(xmlBytes);
+
+        SchemaRegistry schemaRegistry = new SchemaRegistry(new SimpleMeterRegistry(), false, 5000, 32);
+        schemaRegistry.preload();
+        formatHandler = new XmlFormatValidationHandler(
+            XmlFormatValidationHandler.DEFAULT_MAX_BYTES, XmlFormatValidationHandler.DEFAULT_MAX_DEPTH);
+        schemaHandler = new XmlSchemaValidationHandler(schemaRegistry);
+        unmarshallingEngine = new JaxbUnmarshallingEngine(JaxbUnmarshallingEngine.DEFAULT_POOL_SIZE, true);
+        processorFactory = new XmlProcessorFactory(
+            List.of(new FakturaProcessorStrategy(), new InvoiceProcessorStrategy()));
+
+        staxExtractionEngine = new StaxExtractionEngine(
+            List.of(new FakturaStreamingStrategy(), new InvoiceStreamingStrategy()),
+            new ExtractionMappingRegistry(new ClassPathResource("extraction/mappings.properties")));
+
+        xmlObject = unmarshal();
+        strategy = processorFactory.getProcessor(xmlObject);
+    }
+
+    @Benchmark
+    public byte[] base64Decode() {
+        return Base64.getDecoder().decode(base64Xml);
+    }
+
+    @Benchmark
+    public ValidationContext formatValidation() {
+        ValidationContext context = new ValidationContext(xmlBytes);
+        formatHandler.handle(context);
+        return context;
+    }
+
+    @Benchmark
+    public ValidationContext schemaValidation() {
+        ValidationContext context = new ValidationContext(xmlBytes);
+        schemaHandler.handle(context);
+        return context;
+    }
+
+    @Benchmark
+    public Object jaxbUnmarshal() {
+        return unmarshal();
+    }
+
+    @Benchmark
+    public ExtractedData extractData() {
+        return strategy.extractData(xmlObject);
+    }
+
+    /**
+     * Replaces jaxbUnmarshal + extractData in STAX extraction mode
+     */
+    @Benchmark
+    public ExtractedData staxExtract() {
+        return staxExtractionEngine.extract(xmlBytes);
+    }
+
+    @Benchmark
+    public XmlProcessorStrategy factoryGetProcessor() {
+        return processorFactory.getProcessor(xmlObject);
+    }
+
+    @Benchmark
+    public XmlProcessorStrategy factorySniffProcessor() {
+        return processorFactory.sniffProcessor(xmlBytes);
+    }
+
+    private Object unmarshal() {
+        return unmarshallingEngine.unmarshal(new StreamSource(new ByteArrayInputStream(xmlBytes)));
+    }
+}
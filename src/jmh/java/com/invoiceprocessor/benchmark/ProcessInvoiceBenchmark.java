@@ -0,0 +1,148 @@
+package com.invoiceprocessor.benchmark;
+
+import com.invoiceprocessor.archive.DocumentArchive;
+import com.invoiceprocessor.benchmark.BenchmarkDocuments.DocumentSize;
+import com.invoiceprocessor.benchmark.BenchmarkDocuments.DocumentType;
+import com.invoiceprocessor.chain.ValidationChainFactory;
+import com.invoiceprocessor.chain.XmlFormatValidationHandler;
+import com.invoiceprocessor.chain.XmlSchemaValidationHandler;
+import com.invoiceprocessor.dedup.DeduplicationCache;
+import com.invoiceprocessor.dto.ProcessingResult;
+import com.invoiceprocessor.entity.InvoiceEntity;
+import com.invoiceprocessor.factory.XmlProcessorFactory;
+import com.invoiceprocessor.logging.PayloadLogMode;
+import com.invoiceprocessor.logging.PayloadLogger;
+import com.invoiceprocessor.metrics.PipelineMetrics;
+import com.invoiceprocessor.observer.LoggingObserver;
+import com.invoiceprocessor.observer.ObserverEventBus;
+import com.invoiceprocessor.persistence.JdbcConcurrencyLimiter;
+import com.invoiceprocessor.repository.InvoiceRepository;
+import com.invoiceprocessor.service.InvoiceService;
+import com.invoiceprocessor.strategy.FakturaProcessorStrategy;
+import com.invoiceprocessor.strategy.FakturaStreamingStrategy;
+import com.invoiceprocessor.strategy.InvoiceProcessorStrategy;
+import com.invoiceprocessor.strategy.InvoiceStreamingStrategy;
+import com.invoiceprocessor.xml.ExtractionMappingRegistry;
+import com.invoiceprocessor.xml.ExtractionMode;
+import com.invoiceprocessor.xml.JaxbUnmarshallingEngine;
+import com.invoiceprocessor.xml.SchemaRegistry;
+import com.invoiceprocessor.xml.StaxExtractionEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end InvoiceService.processInvoice with the real validation chain, JAXB engine, strategies
+ * and observers. The repository is an in-memory stub that only assigns IDs, so the numbers
+ * exclude the database round trip.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProcessInvoiceBenchmark {
+
+    @Param({"FAKTURA", "INVOICE"})
+    private DocumentType documentType;
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    private DocumentSize documentSize;
+
+    @Param({"false", "true"})
+    private boolean fusedValidation;
+
+    @Param({"JAXB", "STAX"})
+    private ExtractionMode extractionMode;
+
+    private String base64Xml;
+    private InvoiceService invoiceService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        base64Xml = Base64.getEncoder().encodeToString(BenchmarkDocuments.generate(documentType, documentSize));
+
+        SchemaRegistry schemaRegistry = new SchemaRegistry(new SimpleMeterRegistry(), false, 5000, 32);
+        schemaRegistry.preload();
+        InvoiceRepository repository = inMemoryRepository();
+        JdbcConcurrencyLimiter limiter = new JdbcConcurrencyLimiter(10, 30000);
+        XmlFormatValidationHandler formatHandler = new XmlFormatValidationHandler(
+            XmlFormatValidationHandler.DEFAULT_MAX_BYTES, XmlFormatValidationHandler.DEFAULT_MAX_DEPTH);
+        invoiceService = new InvoiceService(
+            repository,
+            new XmlProcessorFactory(List.of(new FakturaProcessorStrategy(), new InvoiceProcessorStrategy())),
+            new ObserverEventBus(List.of(new LoggingObserver()), 1024, 256),
+            new ValidationChainFactory(
+                List.of(formatHandler, new XmlSchemaValidationHandler(schemaRegistry)), true),
+            new JaxbUnmarshallingEngine(JaxbUnmarshallingEngine.DEFAULT_POOL_SIZE, true),
+            schemaRegistry,
+            limiter,
+            new StaxExtractionEngine(List.of(new FakturaStreamingStrategy(), new InvoiceStreamingStrategy()),
+                new ExtractionMappingRegistry(new ClassPathResource("extraction/mappings.properties"))),
+            new PipelineMetrics(new SimpleMeterRegistry()),
+            // Every iteration resubmits the same document, so deduplication would skip the pipeline
+            new DeduplicationCache(repository, limiter, new SimpleMeterRegistry(), false, 0),
+            new PayloadLogger(PayloadLogMode.OFF, 0, 0),
+            // Archive writes are measured on their own in ArchiveBenchmark
+            new DocumentArchive(new SimpleMeterRegistry(), new DefaultResourceLoader(), false, "target/archive",
+                1L << 30, 6, "", false));
+        ReflectionTestUtils.setField(invoiceService, "fusedValidation", fusedValidation);
+        ReflectionTestUtils.setField(invoiceService, "extractionMode", extractionMode);
+    }
+
+    @Benchmark
+    public ProcessingResult processInvoice() {
+        return invoiceService.processInvoice(base64Xml);
+    }
+
+    /**
+     * Repository stub supporting the two calls InvoiceService makes: save and saveAll
+     */
+    @SuppressWarnings("unchecked")
+    private static InvoiceRepository inMemoryRepository() {
+        AtomicLong sequence = new AtomicLong();
+        return (InvoiceRepository) Proxy.newProxyInstance(
+            InvoiceRepository.class.getClassLoader(),
+            new Class<?>[] {InvoiceRepository.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "save" -> assignId((InvoiceEntity) args[0], sequence);
+                case "saveAll" -> {
+                    List<InvoiceEntity> saved = new ArrayList<>();
+                    for (InvoiceEntity entity : (Iterable<InvoiceEntity>) args[0]) {
+                        saved.add(assignId(entity, sequence));
+                    }
+                    yield saved;
+                }
+                case "toString" -> "InMemoryInvoiceRepository";
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    private static InvoiceEntity assignId(InvoiceEntity entity, AtomicLong sequence) {
+        entity.setId(sequence.incrementAndGet());
+        return entity;
+    }
+}
@@ -0,0 +1,77 @@
+package com.invoiceprocessor.benchmark;
+
+import com.invoiceprocessor.exception.RateLimitExceededException;
+import com.invoiceprocessor.ratelimit.ClientRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of ClientRateLimiter.acquire under contention.
+ * <ul>
+ *   <li>admitted - limits high enough that every request passes: map lookup plus one CAS</li>
+ *   <li>rejected - a limit of one request per second: the refusal path, including the stackless exception</li>
+ * </ul>
+ * With clients = 1 all threads hit the same bucket, the worst case for CAS retries; with 10000 the
+ * requests spread over many buckets.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    @Param({"1", "10000"})
+    private int clients;
+
+    private String[] clientIds;
+    private ClientRateLimiter unlimited;
+    private ClientRateLimiter throttled;
+
+    @Setup
+    public void setUp() {
+        clientIds = new String[clients];
+        for (int i = 0; i < clients; i++) {
+            clientIds[i] = "client-" + i;
+        }
+        // A burst window of seconds, so a thread descheduled between its clock read and its CAS is not refused
+        unlimited = new ClientRateLimiter(new SimpleMeterRegistry(), true, 1e9, Integer.MAX_VALUE, List.of(), 100_000, 60_000);
+        throttled = new ClientRateLimiter(new SimpleMeterRegistry(), true, 1, 1, List.of(), 100_000, 60_000);
+    }
+
+    @Benchmark
+    public void admitted() {
+        unlimited.acquire(nextClient());
+    }
+
+    @Benchmark
+    public boolean rejected() {
+        try {
+            throttled.acquire(nextClient());
+            return true;
+        } catch (RateLimitExceededException e) {
+            return false;
+        }
+    }
+
+    private String nextClient() {
+        return clients == 1 ? clientIds[0] : clientIds[ThreadLocalRandom.current().nextInt(clients)];
+    }
+}
@@ -0,0 +1,51 @@
+package com.invoiceprocessor.admission;
+
+import com.invoiceprocessor.config.WebMvcConfig;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Applies admission control to invoice submissions.
+ * preHandle runs before the request body is bound, so a shed request is answered without reading
+ * its payload; a rejection is thrown and turned into a 503 with Retry-After by GlobalExceptionHandler.
+ * Batch requests run for as long as their document count makes them, so their latency is kept out of
+ * the adaptive limit; a slow batch would otherwise shrink it and shed single submissions.
+ */
+@Component
+@RequiredArgsConstructor
+public class AdmissionControlInterceptor implements HandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = AdmissionControlInterceptor.class.getName() + ".permit";
+
+    private final AdmissionController admissionController;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!admissionController.isEnabled() || !HttpMethod.POST.matches(request.getMethod())) {
+            return true;
+        }
+        boolean bulk = WebMvcConfig.BATCH_PATH.equals(request.getServletPath());
+        request.setAttribute(PERMIT_ATTRIBUTE, admissionController.admit(request.getContentLengthLong(), bulk));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof AdmissionController.Permit permit) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            admissionController.release(permit, ex != null || isOverloaded(response.getStatus()));
+        }
+    }
+
+    /**
+     * 5xx answers (database errors, persistence backpressure) mean the backend is struggling;
+     * client errors such as invalid documents say nothing about capacity
+     */
+    private static boolean isOverloaded(int status) {
+        return status >= 500;
+    }
+}
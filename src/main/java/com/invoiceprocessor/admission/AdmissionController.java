@@ -0,0 +1,150 @@
+package com.invoiceprocessor.admission;
+
+import com.invoiceprocessor.exception.AdmissionRejectedException;
+import com.invoiceprocessor.exception.ErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides whether an invoice request may start, before its body is read.
+ * Two budgets apply: an adaptive concurrency limit, which shrinks when responses get slow or the
+ * persistence layer pushes back, and the bytes of request bodies in flight, since every admitted
+ * request holds its payload several times over (Base64, decoded bytes, parsed document) until it
+ * completes. A rejected request costs a few atomic operations and never touches the heap-heavy path.
+ */
+@Component
+public class AdmissionController {
+
+    public static final String REJECTION_COUNTER = "invoice.admission.rejected";
+
+    /**
+     * A slot and the bytes charged for one admitted request; a bulk request is not a latency sample
+     */
+    public record Permit(long bytes, long startNanos, boolean bulk) {
+    }
+
+    private final boolean enabled;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final long maxInFlightBytes;
+    private final long unknownLengthBytes;
+    private final long retryAfterSeconds;
+    private final AtomicLong inFlightBytes = new AtomicLong();
+
+    private final Counter concurrencyRejections;
+    private final Counter payloadRejections;
+
+    public AdmissionController(
+            MeterRegistry meterRegistry,
+            @Value("${invoice.admission.enabled:true}") boolean enabled,
+            @Value("${invoice.admission.initial-limit:20}") int initialLimit,
+            @Value("${invoice.admission.min-limit:2}") int minLimit,
+            @Value("${invoice.admission.max-limit:200}") int maxLimit,
+            @Value("${invoice.admission.latency-threshold-ms:2000}") long latencyThresholdMillis,
+            @Value("${invoice.admission.backoff-ratio:0.9}") double backoffRatio,
+            @Value("${invoice.admission.max-inflight-bytes:268435456}") long maxInFlightBytes,
+            @Value("${invoice.admission.unknown-length-bytes:1048576}") long unknownLengthBytes,
+            @Value("${invoice.admission.retry-after-seconds:1}") long retryAfterSeconds) {
+        this.enabled = enabled;
+        this.concurrencyLimit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit,
+            TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis), backoffRatio);
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.unknownLengthBytes = unknownLengthBytes;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        this.concurrencyRejections = rejectionCounter(meterRegistry, "concurrency");
+        this.payloadRejections = rejectionCounter(meterRegistry, "payload_bytes");
+        Gauge.builder("invoice.admission.limit", concurrencyLimit, AdaptiveConcurrencyLimit::getLimit)
+            .description("Current adaptive concurrency limit")
+            .register(meterRegistry);
+        Gauge.builder("invoice.admission.inflight", concurrencyLimit, AdaptiveConcurrencyLimit::getInFlight)
+            .description("Admitted requests still running")
+            .register(meterRegistry);
+        Gauge.builder("invoice.admission.inflight.bytes", inFlightBytes, AtomicLong::get)
+            .description("Request body bytes charged to admitted requests")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge.builder("invoice.admission.budget.bytes", () -> maxInFlightBytes)
+            .description("Request body bytes allowed in flight")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Admit a request whose body has the given length (-1 when unknown), or throw AdmissionRejectedException
+     */
+    public Permit admit(long contentLength) {
+        return admit(contentLength, false);
+    }
+
+    /**
+     * Admit a request; a bulk request takes a slot and its bytes like any other, but its duration grows
+     * with the number of documents, so it does not count as a latency sample when it completes
+     */
+    public Permit admit(long contentLength, boolean bulk) {
+        long bytes = contentLength >= 0 ? contentLength : unknownLengthBytes;
+        if (!reserveBytes(bytes)) {
+            payloadRejections.increment();
+            throw new AdmissionRejectedException(ErrorCode.PAYLOAD_BUDGET_EXCEEDED,
+                "Too many request bytes in flight, retry later", retryAfterSeconds);
+        }
+        if (!concurrencyLimit.tryAcquire()) {
+            inFlightBytes.addAndGet(-bytes);
+            concurrencyRejections.increment();
+            throw new AdmissionRejectedException(ErrorCode.CONCURRENCY_LIMIT_EXCEEDED,
+                "Too many invoices in progress, retry later", retryAfterSeconds);
+        }
+        return new Permit(bytes, System.nanoTime(), bulk);
+    }
+
+    /**
+     * Return the permit; overloaded marks responses that signal the backend is saturated
+     */
+    public void release(Permit permit, boolean overloaded) {
+        inFlightBytes.addAndGet(-permit.bytes());
+        if (permit.bulk()) {
+            concurrencyLimit.release(overloaded);
+        } else {
+            concurrencyLimit.release(System.nanoTime() - permit.startNanos(), overloaded);
+        }
+    }
+
+    public int getLimit() {
+        return concurrencyLimit.getLimit();
+    }
+
+    public long getInFlightBytes() {
+        return inFlightBytes.get();
+    }
+
+    /**
+     * A request larger than the whole budget is still let through when nothing else is in flight
+     */
+    private boolean reserveBytes(long bytes) {
+        while (true) {
+            long current = inFlightBytes.get();
+            if (current > 0 && current + bytes > maxInFlightBytes) {
+                return false;
+            }
+            if (inFlightBytes.compareAndSet(current, current + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder(REJECTION_COUNTER)
+            .description("Invoice requests shed by admission control")
+            .tag("reason", reason)
+            .register(meterRegistry);
+    }
+}
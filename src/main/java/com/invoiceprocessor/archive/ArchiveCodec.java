@@ -0,0 +1,38 @@
+package com.invoiceprocessor.archive;
+
+/**
+ * Encoding of an archived document, stored as one byte in the record header
+ */
+public enum ArchiveCodec {
+    /**
+     * Raw XML, used when compression would not make the document smaller
+     */
+    STORED(0),
+    /**
+     * zlib stream (RFC 1950), the same bytes as HTTP Content-Encoding: deflate
+     */
+    DEFLATE(1),
+    /**
+     * zlib stream with a preset dictionary; only this application can inflate it
+     */
+    DEFLATE_DICTIONARY(2);
+
+    private final byte id;
+
+    ArchiveCodec(int id) {
+        this.id = (byte) id;
+    }
+
+    public byte getId() {
+        return id;
+    }
+
+    public static ArchiveCodec fromId(byte id) {
+        for (ArchiveCodec codec : values()) {
+            if (codec.id == id) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unknown archive codec " + id);
+    }
+}
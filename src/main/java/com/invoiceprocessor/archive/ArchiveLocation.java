@@ -0,0 +1,8 @@
+package com.invoiceprocessor.archive;
+
+/**
+ * Where an archived document lives: segment number, offset of the stored bytes in the segment file,
+ * their encoding and length, and the length of the original XML
+ */
+public record ArchiveLocation(int segment, long offset, ArchiveCodec codec, int storedLength, int rawLength) {
+}
@@ -0,0 +1,79 @@
+package com.invoiceprocessor.archive;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.regex.Pattern;
+
+/**
+ * Writes an archived document as the HTTP response.
+ * When the stored bytes can go out unchanged - an incompressible document, or a plain zlib stream to a
+ * client accepting Content-Encoding: deflate - the file region is handed to Tomcat's sendfile, or copied
+ * with FileChannel.transferTo where sendfile is unavailable. Documents compressed with the dictionary
+ * are inflated on the way out.
+ */
+@Component
+@RequiredArgsConstructor
+public class ArchivedDocumentWriter {
+
+    static final String SENDFILE_SUPPORTED_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
+    private static final String DEFLATE_ENCODING = "deflate";
+    private static final Pattern ZERO_QUALITY = Pattern.compile("q=0(\\.0{0,3})?");
+
+    private final DocumentArchive documentArchive;
+
+    public void write(ArchiveLocation location, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_XML_VALUE);
+        if (location.codec() == ArchiveCodec.DEFLATE) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        boolean passThrough = location.codec() == ArchiveCodec.STORED
+            || (location.codec() == ArchiveCodec.DEFLATE && acceptsDeflate(request.getHeader(HttpHeaders.ACCEPT_ENCODING)));
+        if (!passThrough) {
+            documentArchive.writeTo(location, response.getOutputStream());
+            return;
+        }
+
+        if (location.codec() == ArchiveCodec.DEFLATE) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, DEFLATE_ENCODING);
+        }
+        response.setContentLengthLong(location.storedLength());
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTRIBUTE))) {
+            // Tomcat writes the region with sendfile once the request returns
+            request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, documentArchive.segmentPath(location).toString());
+            request.setAttribute(SENDFILE_START_ATTRIBUTE, location.offset());
+            request.setAttribute(SENDFILE_END_ATTRIBUTE, location.offset() + location.storedLength());
+            return;
+        }
+        documentArchive.transferStoredTo(location, Channels.newChannel(response.getOutputStream()));
+    }
+
+    static boolean acceptsDeflate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (!parts[0].trim().equalsIgnoreCase(DEFLATE_ENCODING)) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                if (ZERO_QUALITY.matcher(parts[i].trim()).matches()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
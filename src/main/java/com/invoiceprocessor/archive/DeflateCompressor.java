@@ -0,0 +1,161 @@
+package com.invoiceprocessor.archive;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * zlib compression of archived documents, optionally with a preset dictionary.
+ * A dictionary holds the markup every invoice repeats, so even a small document finds matches from its
+ * first byte. Deflater and Inflater each own native zlib state, so instances are reused from bounded,
+ * lock-free pools rather than thread locals, as the JAXB unmarshallers are.
+ */
+public final class DeflateCompressor {
+
+    public static final int DEFAULT_POOL_SIZE = 32;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Compressed bytes and how they were encoded
+     */
+    public record Compressed(ArchiveCodec codec, byte[] bytes) {
+    }
+
+    private final int level;
+    private final byte[] dictionary;
+    private final int dictionaryId;
+    private final int maxPoolSize;
+
+    private final Queue<Deflater> idleDeflaters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleDeflaterCount = new AtomicInteger();
+    private final Queue<Inflater> idleInflaters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleInflaterCount = new AtomicInteger();
+
+    /**
+     * @param dictionary preset dictionary, or null to write plain zlib streams
+     */
+    public DeflateCompressor(int level, byte[] dictionary, int maxPoolSize) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level must be between 1 and 9: " + level);
+        }
+        this.level = level;
+        this.dictionary = dictionary != null && dictionary.length > 0 ? dictionary.clone() : null;
+        this.dictionaryId = this.dictionary != null ? adler32(this.dictionary) : 0;
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    public boolean hasDictionary() {
+        return dictionary != null;
+    }
+
+    /**
+     * Compress the document; one that does not shrink is returned as STORED
+     */
+    public Compressed compress(byte[] raw) {
+        Deflater deflater = acquireDeflater();
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(raw);
+            deflater.finish();
+            // Output that reaches the input length is not worth keeping, so that is all the room it gets
+            byte[] output = new byte[raw.length];
+            int length = 0;
+            while (!deflater.finished() && length < output.length) {
+                length += deflater.deflate(output, length, output.length - length);
+            }
+            if (!deflater.finished()) {
+                return new Compressed(ArchiveCodec.STORED, raw);
+            }
+            return new Compressed(dictionary != null ? ArchiveCodec.DEFLATE_DICTIONARY : ArchiveCodec.DEFLATE,
+                Arrays.copyOf(output, length));
+        } finally {
+            releaseDeflater(deflater);
+        }
+    }
+
+    /**
+     * Write the original document to the stream without materialising it
+     */
+    public void inflate(ArchiveCodec codec, byte[] stored, OutputStream out) throws IOException {
+        if (codec == ArchiveCodec.STORED) {
+            out.write(stored);
+            return;
+        }
+        Inflater inflater = acquireInflater();
+        try {
+            inflater.setInput(stored);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length > 0) {
+                    out.write(buffer, 0, length);
+                } else if (inflater.needsDictionary()) {
+                    if (dictionary == null || inflater.getAdler() != dictionaryId) {
+                        throw new IOException("Archived document needs a dictionary other than the configured one");
+                    }
+                    inflater.setDictionary(dictionary);
+                } else if (inflater.needsInput()) {
+                    throw new IOException("Archived document is truncated");
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Archived document is corrupt", e);
+        } finally {
+            releaseInflater(inflater);
+        }
+    }
+
+    private static int adler32(byte[] bytes) {
+        Adler32 adler = new Adler32();
+        adler.update(bytes);
+        return (int) adler.getValue();
+    }
+
+    private Deflater acquireDeflater() {
+        Deflater deflater = idleDeflaters.poll();
+        if (deflater != null) {
+            idleDeflaterCount.decrementAndGet();
+            return deflater;
+        }
+        return new Deflater(level);
+    }
+
+    private void releaseDeflater(Deflater deflater) {
+        deflater.reset();
+        if (idleDeflaterCount.incrementAndGet() <= maxPoolSize) {
+            idleDeflaters.offer(deflater);
+        } else {
+            idleDeflaterCount.decrementAndGet();
+            deflater.end();
+        }
+    }
+
+    private Inflater acquireInflater() {
+        Inflater inflater = idleInflaters.poll();
+        if (inflater != null) {
+            idleInflaterCount.decrementAndGet();
+            return inflater;
+        }
+        return new Inflater();
+    }
+
+    private void releaseInflater(Inflater inflater) {
+        inflater.reset();
+        if (idleInflaterCount.incrementAndGet() <= maxPoolSize) {
+            idleInflaters.offer(inflater);
+        } else {
+            idleInflaterCount.decrementAndGet();
+            inflater.end();
+        }
+    }
+}
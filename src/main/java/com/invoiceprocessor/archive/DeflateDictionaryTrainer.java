@@ -0,0 +1,74 @@
+package com.invoiceprocessor.archive;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds a preset deflate dictionary from sample documents.
+ * Each sample is cut into runs of adjacent markup and the text between them. Runs found in fewer than a
+ * quarter of the samples are invoice values (NIPs, dates, addresses) and are dropped; the rest score their
+ * length times the number of samples containing them. The best runs fill the dictionary with the highest
+ * scores last, because deflate encodes nearer matches in fewer bits. Used to produce archive/faktura.dict.
+ */
+public final class DeflateDictionaryTrainer {
+
+    /**
+     * Deflate only looks back 32 KB, so anything before that in a dictionary is never referenced
+     */
+    public static final int MAX_DICTIONARY_BYTES = 32 * 1024;
+
+    private static final Pattern TOKEN = Pattern.compile("(?:<[^>]*>\\s*)+|[^<]+");
+    private static final int MIN_TOKEN_LENGTH = 3;
+    private static final double MIN_SAMPLE_SHARE = 0.25;
+
+    private DeflateDictionaryTrainer() {
+    }
+
+    public static byte[] train(Collection<byte[]> samples, int maxBytes) {
+        int budget = Math.min(maxBytes, MAX_DICTIONARY_BYTES);
+        Map<String, Integer> documentFrequency = new HashMap<>();
+        for (byte[] sample : samples) {
+            // ISO-8859-1 maps every byte to one char, so token lengths are byte lengths
+            Matcher matcher = TOKEN.matcher(new String(sample, StandardCharsets.ISO_8859_1));
+            Set<String> seen = new HashSet<>();
+            while (matcher.find()) {
+                String token = matcher.group();
+                if (token.length() >= MIN_TOKEN_LENGTH && seen.add(token)) {
+                    documentFrequency.merge(token, 1, Integer::sum);
+                }
+            }
+        }
+
+        int minSamples = Math.max(2, (int) Math.ceil(samples.size() * MIN_SAMPLE_SHARE));
+        List<Map.Entry<String, Integer>> ranked = documentFrequency.entrySet().stream()
+            .filter(entry -> entry.getValue() >= minSamples)
+            .sorted(Comparator.comparingLong((Map.Entry<String, Integer> entry) ->
+                (long) entry.getKey().length() * entry.getValue()).reversed())
+            .toList();
+
+        List<String> selected = new ArrayList<>();
+        int size = 0;
+        for (Map.Entry<String, Integer> entry : ranked) {
+            String token = entry.getKey();
+            if (size + token.length() <= budget) {
+                selected.add(token);
+                size += token.length();
+            }
+        }
+
+        StringBuilder dictionary = new StringBuilder(size);
+        for (int i = selected.size() - 1; i >= 0; i--) {
+            dictionary.append(selected.get(i));
+        }
+        return dictionary.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,170 @@
+package com.invoiceprocessor.archive;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Archive of the original invoice documents, outside the database.
+ * Documents are compressed and appended to segment files on local disk, keyed by the SHA-256 of the
+ * decoded bytes - the content hash already stored on each invoice row - so a document submitted twice
+ * is kept once. The index from hash to location is kept by the segment store: in memory for the segment
+ * being written, in a sorted index file for each sealed one.
+ */
+@Component
+@Slf4j
+public class DocumentArchive {
+
+    public static final String DOCUMENT_COUNTER = "invoice.archive.documents";
+    public static final String BYTES_COUNTER = "invoice.archive.bytes";
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final boolean enabled;
+    private final Path directory;
+    private final DeflateCompressor compressor;
+    private final SegmentStore segmentStore;
+
+    private final Counter storedDocuments;
+    private final Counter duplicateDocuments;
+    private final Counter rawBytes;
+    private final Counter storedBytes;
+
+    @Autowired
+    public DocumentArchive(
+            MeterRegistry meterRegistry,
+            ResourceLoader resourceLoader,
+            @Value("${invoice.archive.enabled:true}") boolean enabled,
+            @Value("${invoice.archive.directory:data/archive}") String directory,
+            @Value("${invoice.archive.segment-max-bytes:1073741824}") long segmentMaxBytes,
+            @Value("${invoice.archive.compression-level:6}") int compressionLevel,
+            @Value("${invoice.archive.dictionary:classpath:archive/faktura.dict}") String dictionaryLocation,
+            @Value("${invoice.archive.fsync:true}") boolean fsync) {
+        this(meterRegistry, enabled, Path.of(directory), segmentMaxBytes,
+            new DeflateCompressor(compressionLevel, enabled ? loadDictionary(resourceLoader, dictionaryLocation) : null,
+                DeflateCompressor.DEFAULT_POOL_SIZE),
+            fsync);
+    }
+
+    DocumentArchive(MeterRegistry meterRegistry, boolean enabled, Path directory, long segmentMaxBytes,
+                    DeflateCompressor compressor, boolean fsync) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.compressor = compressor;
+        this.segmentStore = new SegmentStore(directory, segmentMaxBytes, fsync);
+
+        this.storedDocuments = documentCounter(meterRegistry, "stored");
+        this.duplicateDocuments = documentCounter(meterRegistry, "duplicate");
+        this.rawBytes = bytesCounter(meterRegistry, "raw");
+        this.storedBytes = bytesCounter(meterRegistry, "stored");
+        Gauge.builder("invoice.archive.entries", segmentStore, SegmentStore::entryCount)
+            .description("Documents in the archive index")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        segmentStore.recover();
+        log.info("Document archive {} opened with {} documents, dictionary {}",
+            directory, segmentStore.entryCount(), compressor.hasDictionary() ? "enabled" : "disabled");
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        segmentStore.close();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Archive the document under its hex SHA-256, unless it is already archived.
+     * Two first submissions of the same document racing here may both append; the index keeps the
+     * first and the other copy is dead space in its segment.
+     */
+    public ArchiveLocation store(String contentHash, byte[] xmlBytes) {
+        ArchiveLocation existing = segmentStore.find(contentHash);
+        if (existing != null) {
+            duplicateDocuments.increment();
+            return existing;
+        }
+        DeflateCompressor.Compressed compressed = compressor.compress(xmlBytes);
+        ArchiveLocation location = segmentStore.append(HEX.parseHex(contentHash), compressed.codec(),
+            xmlBytes.length, compressed.bytes());
+        storedDocuments.increment();
+        rawBytes.increment(xmlBytes.length);
+        storedBytes.increment(compressed.bytes().length);
+        return location;
+    }
+
+    public Optional<ArchiveLocation> find(String contentHash) {
+        return Optional.ofNullable(segmentStore.find(contentHash));
+    }
+
+    /**
+     * Write the original document to the stream
+     */
+    public void writeTo(ArchiveLocation location, OutputStream out) throws IOException {
+        compressor.inflate(location.codec(), segmentStore.read(location), out);
+    }
+
+    /**
+     * Copy the stored bytes as they are - the XML itself for STORED, a zlib stream for DEFLATE
+     */
+    public void transferStoredTo(ArchiveLocation location, WritableByteChannel target) throws IOException {
+        segmentStore.transferTo(location, target);
+    }
+
+    /**
+     * Segment file holding the document, for servers that send file regions themselves
+     */
+    public Path segmentPath(ArchiveLocation location) {
+        return segmentStore.segmentPath(location.segment()).toAbsolutePath();
+    }
+
+    private static byte[] loadDictionary(ResourceLoader resourceLoader, String location) {
+        if (location == null || location.isBlank()) {
+            return null;
+        }
+        try (InputStream in = resourceLoader.getResource(location).getInputStream()) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load archive dictionary " + location, e);
+        }
+    }
+
+    private static Counter documentCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder(DOCUMENT_COUNTER)
+            .description("Documents handed to the archive")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    private static Counter bytesCounter(MeterRegistry meterRegistry, String kind) {
+        return Counter.builder(BYTES_COUNTER)
+            .description("Bytes of archived documents before and after compression")
+            .baseUnit("bytes")
+            .tag("kind", kind)
+            .register(meterRegistry);
+    }
+}
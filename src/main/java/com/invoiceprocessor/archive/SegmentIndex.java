@@ -0,0 +1,150 @@
+package com.invoiceprocessor.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Index of a sealed segment, kept in a file next to it: a header (magic, entry count, length of the
+ * segment it describes) followed by fixed-size entries sorted by document hash. The file is memory-mapped
+ * and searched by bisection, so sealed segments cost no heap and are not rescanned on startup.
+ */
+final class SegmentIndex {
+
+    static final int MAGIC = 0x49584931; // "IXI1"
+    static final int HEADER_BYTES = Integer.BYTES * 2 + Long.BYTES;
+    // hash, offset, codec, stored length, raw length
+    static final int ENTRY_BYTES = SegmentStore.HASH_BYTES + Long.BYTES + 1 + Integer.BYTES * 2;
+
+    /**
+     * A record of the segment, as found by a scan or an append
+     */
+    record Entry(byte[] hash, ArchiveLocation location) {
+    }
+
+    private final int segment;
+    private final int size;
+    private final ByteBuffer entries;
+
+    private SegmentIndex(int segment, int size, ByteBuffer entries) {
+        this.segment = segment;
+        this.size = size;
+        this.entries = entries;
+    }
+
+    /**
+     * Write the index of a segment and map it; of several entries with the same hash the first is kept
+     */
+    static SegmentIndex write(Path path, int segment, long segmentLength, List<Entry> records, boolean fsync)
+            throws IOException {
+        Entry[] sorted = records.toArray(Entry[]::new);
+        // Stable, so the first record of a hash stays ahead of its later copies
+        Arrays.sort(sorted, (a, b) -> Arrays.compareUnsigned(a.hash(), b.hash()));
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + sorted.length * ENTRY_BYTES);
+        buffer.position(HEADER_BYTES);
+        int count = 0;
+        byte[] previous = null;
+        for (Entry entry : sorted) {
+            if (previous != null && Arrays.equals(previous, entry.hash())) {
+                continue;
+            }
+            ArchiveLocation location = entry.location();
+            buffer.put(entry.hash())
+                .putLong(location.offset())
+                .put(location.codec().getId())
+                .putInt(location.storedLength())
+                .putInt(location.rawLength());
+            previous = entry.hash();
+            count++;
+        }
+        buffer.putInt(0, MAGIC).putInt(Integer.BYTES, count).putLong(Integer.BYTES * 2, segmentLength).flip();
+
+        // Written aside and moved into place, so a crash leaves no half-written index to trust
+        Path written = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(written,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        }
+        Files.move(written, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return load(path, segment, segmentLength)
+            .orElseThrow(() -> new IOException("Archive index " + path + " unreadable right after writing"));
+    }
+
+    /**
+     * Map the index of a segment, or empty when it is missing or does not describe the segment as it is now
+     */
+    static Optional<SegmentIndex> load(Path path, int segment, long segmentLength) throws IOException {
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES) {
+                return Optional.empty();
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            int count = mapped.getInt(Integer.BYTES);
+            if (mapped.getInt(0) != MAGIC || count < 0
+                    || fileSize != HEADER_BYTES + (long) count * ENTRY_BYTES
+                    || mapped.getLong(Integer.BYTES * 2) != segmentLength) {
+                return Optional.empty();
+            }
+            return Optional.of(new SegmentIndex(segment, count, mapped));
+        }
+    }
+
+    /**
+     * Find a document by its SHA-256; absolute reads only, so lookups need no locking
+     */
+    ArchiveLocation find(byte[] hash) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int position = HEADER_BYTES + mid * ENTRY_BYTES;
+            int comparison = compareHash(position, hash);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                int fields = position + SegmentStore.HASH_BYTES;
+                return new ArchiveLocation(segment,
+                    entries.getLong(fields),
+                    ArchiveCodec.fromId(entries.get(fields + Long.BYTES)),
+                    entries.getInt(fields + Long.BYTES + 1),
+                    entries.getInt(fields + Long.BYTES + 1 + Integer.BYTES));
+            }
+        }
+        return null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int compareHash(int position, byte[] hash) {
+        for (int i = 0; i < SegmentStore.HASH_BYTES; i++) {
+            int comparison = Byte.compareUnsigned(entries.get(position + i), hash[i]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+}
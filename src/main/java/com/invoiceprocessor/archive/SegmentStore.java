@@ -0,0 +1,353 @@
+package com.invoiceprocessor.archive;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only segment files holding archived documents, and the index from document hash to record.
+ * Each record is a fixed header (magic, codec, SHA-256 of the original, raw and stored length, CRC32 of
+ * the stored bytes) followed by the stored bytes. Records are never rewritten; a new segment starts once
+ * the current one would exceed the maximum size, and the segment it seals gets an on-disk SegmentIndex.
+ * Only the active segment is indexed in memory, so the heap holds at most one segment's entries and
+ * startup scans only the active segment (and sealed ones whose index file is missing or stale).
+ * A torn record at the end of the last segment is cut off.
+ */
+@Slf4j
+class SegmentStore implements Closeable {
+
+    static final int MAGIC = 0x49584131; // "IXA1"
+    static final int HASH_BYTES = 32;
+    static final int HEADER_BYTES = Integer.BYTES + 1 + HASH_BYTES + Integer.BYTES * 3;
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d{8})\\.arc");
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final Path directory;
+    private final long segmentMaxBytes;
+    private final boolean fsync;
+    // ReentrantLock rather than synchronized so virtual threads are not pinned during file I/O
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // Positional reads and transferTo do not move the channel position, so readers share one channel per segment
+    private final Map<Integer, FileChannel> readChannels = new ConcurrentHashMap<>();
+    // Index of the active segment by hex hash; sealed segments are searched newest first
+    private final Map<String, ArchiveLocation> activeIndex = new ConcurrentHashMap<>();
+    private volatile List<SegmentIndex> sealedIndexes = List.of();
+    private FileChannel activeChannel;
+    private int activeSegment;
+    private long activeSize;
+
+    SegmentStore(Path directory, long segmentMaxBytes, boolean fsync) {
+        this.directory = directory;
+        this.segmentMaxBytes = segmentMaxBytes;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Load the index files of the sealed segments, rebuilding those that are missing or stale,
+     * scan the last segment into memory and open it for appending
+     */
+    void recover() throws IOException {
+        Files.createDirectories(directory);
+        List<Integer> segments = listSegments();
+        List<SegmentIndex> sealed = new ArrayList<>();
+        for (int i = 0; i < segments.size() - 1; i++) {
+            sealed.add(0, loadSealed(segments.get(i)));
+        }
+        sealedIndexes = List.copyOf(sealed);
+
+        activeIndex.clear();
+        if (!segments.isEmpty()) {
+            int last = segments.get(segments.size() - 1);
+            Path path = segmentPath(last);
+            long validSize = scan(last, (hash, location) -> activeIndex.putIfAbsent(HEX.formatHex(hash), location));
+            if (validSize < Files.size(path)) {
+                log.warn("Truncating torn record at offset {} of archive segment {}", validSize, path);
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(validSize);
+                }
+            }
+        }
+        openSegment(segments.isEmpty() ? 1 : segments.get(segments.size() - 1));
+    }
+
+    /**
+     * Location of the document with the given hex SHA-256, or null when it is not archived
+     */
+    ArchiveLocation find(String hash) {
+        ArchiveLocation location = activeIndex.get(hash);
+        if (location != null) {
+            return location;
+        }
+        List<SegmentIndex> sealed = sealedIndexes;
+        if (sealed.isEmpty()) {
+            return null;
+        }
+        byte[] hashBytes = HEX.parseHex(hash);
+        for (SegmentIndex index : sealed) {
+            location = index.find(hashBytes);
+            if (location != null) {
+                return location;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Documents in the index; a document raced into two segments counts twice
+     */
+    long entryCount() {
+        long count = activeIndex.size();
+        for (SegmentIndex index : sealedIndexes) {
+            count += index.size();
+        }
+        return count;
+    }
+
+    /**
+     * Append one document and return where it is indexed - its new record, or the record of a copy
+     * appended to the active segment in the meantime
+     */
+    ArchiveLocation append(byte[] hash, ArchiveCodec codec, int rawLength, byte[] stored) {
+        CRC32 crc = new CRC32();
+        crc.update(stored);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+            .putInt(MAGIC)
+            .put(codec.getId())
+            .put(hash)
+            .putInt(rawLength)
+            .putInt(stored.length)
+            .putInt((int) crc.getValue())
+            .flip();
+        ByteBuffer[] record = {header, ByteBuffer.wrap(stored)};
+        long recordBytes = HEADER_BYTES + (long) stored.length;
+
+        writeLock.lock();
+        try {
+            if (activeSize > 0 && activeSize + recordBytes > segmentMaxBytes) {
+                rollOver();
+            }
+            long recordOffset = activeSize;
+            while (record[1].hasRemaining()) {
+                activeChannel.write(record);
+            }
+            if (fsync) {
+                activeChannel.force(false);
+            }
+            activeSize += recordBytes;
+            ArchiveLocation location = new ArchiveLocation(activeSegment, recordOffset + HEADER_BYTES, codec, stored.length, rawLength);
+            ArchiveLocation raced = activeIndex.putIfAbsent(HEX.formatHex(hash), location);
+            return raced != null ? raced : location;
+        } catch (IOException e) {
+            // A partial record in the middle of a segment would hide every record after it from recovery
+            try {
+                activeChannel.truncate(activeSize);
+            } catch (IOException truncateFailure) {
+                e.addSuppressed(truncateFailure);
+            }
+            throw new UncheckedIOException("Failed to append to archive segment " + segmentPath(activeSegment), e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Read the stored bytes of a document
+     */
+    byte[] read(ArchiveLocation location) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(location.storedLength());
+        if (!readFully(readChannel(location.segment()), buffer, location.offset())) {
+            throw new IOException("Archive segment " + segmentPath(location.segment()) + " ends inside a record");
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Copy the stored bytes of a document to the target; the kernel moves the data when it is a
+     * socket or file channel
+     */
+    void transferTo(ArchiveLocation location, WritableByteChannel target) throws IOException {
+        FileChannel channel = readChannel(location.segment());
+        long position = location.offset();
+        long remaining = location.storedLength();
+        while (remaining > 0) {
+            long transferred = channel.transferTo(position, remaining, target);
+            if (transferred <= 0) {
+                throw new IOException("Archive segment " + segmentPath(location.segment()) + " ends inside a record");
+            }
+            position += transferred;
+            remaining -= transferred;
+        }
+    }
+
+    Path segmentPath(int segment) {
+        return directory.resolve(String.format("segment-%08d.arc", segment));
+    }
+
+    Path indexPath(int segment) {
+        return directory.resolve(String.format("segment-%08d.idx", segment));
+    }
+
+    /**
+     * Seal the active segment: write its index file, publish it, then start the next segment.
+     * The index is written first, so a failure leaves the active segment as it was.
+     */
+    private void rollOver() throws IOException {
+        List<SegmentIndex.Entry> entries = new ArrayList<>(activeIndex.size());
+        activeIndex.forEach((hash, location) -> entries.add(new SegmentIndex.Entry(HEX.parseHex(hash), location)));
+        SegmentIndex sealed = SegmentIndex.write(indexPath(activeSegment), activeSegment, activeSize, entries, fsync);
+
+        closeActive();
+        openSegment(activeSegment + 1);
+        List<SegmentIndex> indexes = new ArrayList<>(sealedIndexes.size() + 1);
+        indexes.add(sealed);
+        indexes.addAll(sealedIndexes);
+        // Published before the in-memory entries go, so a concurrent lookup finds the document in one of them
+        sealedIndexes = List.copyOf(indexes);
+        activeIndex.clear();
+    }
+
+    /**
+     * Map the index file of a sealed segment, or rebuild it from a scan when it is missing or stale
+     */
+    private SegmentIndex loadSealed(int segment) throws IOException {
+        Path path = segmentPath(segment);
+        long size = Files.size(path);
+        Optional<SegmentIndex> existing = SegmentIndex.load(indexPath(segment), segment, size);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        Map<String, SegmentIndex.Entry> entries = new LinkedHashMap<>();
+        long validSize = scan(segment, (hash, location) ->
+            entries.putIfAbsent(HEX.formatHex(hash), new SegmentIndex.Entry(hash, location)));
+        if (validSize < size) {
+            log.error("Archive segment {} is damaged after offset {}, later records in it are unreadable", path, validSize);
+        }
+        log.info("Rebuilt index of archive segment {} with {} documents", path, entries.size());
+        return SegmentIndex.write(indexPath(segment), segment, size, List.copyOf(entries.values()), fsync);
+    }
+
+    private List<Integer> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .map(path -> SEGMENT_NAME.matcher(path.getFileName().toString()))
+                .filter(Matcher::matches)
+                .map(matcher -> Integer.parseInt(matcher.group(1)))
+                .sorted()
+                .toList();
+        }
+    }
+
+    /**
+     * Index the intact records of a segment and return the offset just past the last one
+     */
+    private long scan(int segment, BiConsumer<byte[], ArchiveLocation> index) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long offset = 0;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (offset + HEADER_BYTES <= size) {
+                header.clear();
+                if (!readFully(channel, header, offset) || header.flip().getInt() != MAGIC) {
+                    break;
+                }
+                ArchiveCodec codec;
+                try {
+                    codec = ArchiveCodec.fromId(header.get());
+                } catch (IllegalArgumentException e) {
+                    break;
+                }
+                byte[] hash = new byte[HASH_BYTES];
+                header.get(hash);
+                int rawLength = header.getInt();
+                int storedLength = header.getInt();
+                int crc = header.getInt();
+                long payloadOffset = offset + HEADER_BYTES;
+                if (storedLength < 0 || payloadOffset + storedLength > size) {
+                    break;
+                }
+                ByteBuffer payload = ByteBuffer.allocate(storedLength);
+                if (!readFully(channel, payload, payloadOffset)) {
+                    break;
+                }
+                CRC32 actual = new CRC32();
+                actual.update(payload.flip());
+                if ((int) actual.getValue() != crc) {
+                    break;
+                }
+                index.accept(hash, new ArchiveLocation(segment, payloadOffset, codec, storedLength, rawLength));
+                offset = payloadOffset + storedLength;
+            }
+            return offset;
+        }
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                return false;
+            }
+            position += read;
+        }
+        return true;
+    }
+
+    private FileChannel readChannel(int segment) {
+        return readChannels.computeIfAbsent(segment, s -> {
+            try {
+                return FileChannel.open(segmentPath(s), StandardOpenOption.READ);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open archive segment " + segmentPath(s), e);
+            }
+        });
+    }
+
+    private void openSegment(int segment) throws IOException {
+        activeChannel = FileChannel.open(segmentPath(segment),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        activeSegment = segment;
+        activeSize = activeChannel.size();
+    }
+
+    private void closeActive() throws IOException {
+        if (activeChannel != null) {
+            activeChannel.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            closeActive();
+        } finally {
+            writeLock.unlock();
+        }
+        for (FileChannel channel : readChannels.values()) {
+            channel.close();
+        }
+        readChannels.clear();
+    }
+}
@@ -0,0 +1,80 @@
+package com.invoiceprocessor.chain;
+
+import com.invoiceprocessor.dto.ValidationContext;
+import com.invoiceprocessor.exception.XmlValidationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Compiled, immutable validation chain for one document type.
+ * Built once at startup by {@link ValidationChainFactory} and shared by all requests.
+ * With short-circuit on, the first failing handler stops the chain; with it off, every handler
+ * runs and multiple failures are reported together.
+ */
+public final class ValidationChain {
+
+    private final List<ValidationHandler> handlers;
+    private final boolean shortCircuit;
+
+    ValidationChain(List<ValidationHandler> handlers, boolean shortCircuit) {
+        this.handlers = List.copyOf(handlers);
+        this.shortCircuit = shortCircuit;
+    }
+
+    public void handle(ValidationContext context) {
+        if (shortCircuit) {
+            for (ValidationHandler handler : handlers) {
+                handler.handle(context);
+            }
+            return;
+        }
+
+        List<RuntimeException> failures = null;
+        for (ValidationHandler handler : handlers) {
+            try {
+                handler.handle(context);
+            } catch (RuntimeException e) {
+                if (failures == null) {
+                    failures = new ArrayList<>(handlers.size());
+                }
+                failures.add(e);
+            }
+        }
+        if (failures == null) {
+            return;
+        }
+        if (failures.size() == 1) {
+            throw failures.get(0);
+        }
+        throw aggregate(failures);
+    }
+
+    public List<ValidationHandler> getHandlers() {
+        return handlers;
+    }
+
+    public boolean isShortCircuit() {
+        return shortCircuit;
+    }
+
+    private static XmlValidationException aggregate(List<RuntimeException> failures) {
+        String messages = failures.stream()
+            .map(Throwable::getMessage)
+            .collect(Collectors.joining("; "));
+        XmlValidationException exception = new XmlValidationException(
+            failures.size() + " validation checks failed: " + messages, failures.get(0));
+        for (int i = 1; i < failures.size(); i++) {
+            exception.addSuppressed(failures.get(i));
+        }
+        return exception;
+    }
+
+    @Override
+    public String toString() {
+        return handlers.stream()
+            .map(ValidationHandler::getHandlerName)
+            .collect(Collectors.joining(" -> ", "[", shortCircuit ? "]" : "] (all)"));
+    }
+}
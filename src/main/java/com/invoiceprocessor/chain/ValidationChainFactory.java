@@ -1,37 +1,62 @@
 package com.invoiceprocessor.chain;
 
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 /**
- * Factory for creating validation chain
+ * Compiles the validation chains once at startup.
+ * Handler beans are ordered by {@code @Order}; handlers without document types belong to every chain,
+ * the others only to the chains of the types they declare. Requests just look a chain up.
  */
 @Component
-@RequiredArgsConstructor
+@Slf4j
 public class ValidationChainFactory {
-    
-    private final XmlFormatValidationHandler xmlFormatHandler;
-    private final XmlSchemaValidationHandler xmlSchemaHandler;
-    
+
+    private final ValidationChain defaultChain;
+    private final Map<String, ValidationChain> chainsByType;
+
+    public ValidationChainFactory(
+            List<ValidationHandler> handlers,
+            @Value("${invoice.validation.short-circuit:true}") boolean shortCircuit) {
+        List<ValidationHandler> ordered = new ArrayList<>(handlers);
+        AnnotationAwareOrderComparator.sort(ordered);
+
+        this.defaultChain = new ValidationChain(
+            ordered.stream().filter(handler -> handler.getDocumentTypes().isEmpty()).toList(), shortCircuit);
+
+        Set<String> types = new LinkedHashSet<>();
+        ordered.forEach(handler -> types.addAll(handler.getDocumentTypes()));
+        Map<String, ValidationChain> chains = new HashMap<>();
+        for (String type : types) {
+            chains.put(type, new ValidationChain(ordered.stream()
+                .filter(handler -> handler.getDocumentTypes().isEmpty() || handler.getDocumentTypes().contains(type))
+                .toList(), shortCircuit));
+        }
+        this.chainsByType = Map.copyOf(chains);
+
+        log.info("Validation chain {}, {} type-specific chains {}", defaultChain, chainsByType.size(), chainsByType);
+    }
+
     /**
-     * Create the complete validation chain
+     * The chain of handlers that apply to every document type
      */
-    public ValidationHandler createValidationChain() {
-        // Build chain: Format -> Schema
-        xmlFormatHandler.setNext(xmlSchemaHandler);
-        
-        return xmlFormatHandler;
+    public ValidationChain getValidationChain() {
+        return defaultChain;
     }
-    
+
     /**
-     * Create validation chain for specific type
+     * The chain for a document type, falling back to the default chain for types without their own handlers
      */
-    public ValidationHandler createValidationChain(String xmlType) {
-        ValidationHandler chain = createValidationChain();
-        
-        // Can add type-specific handlers here in the future
-        // Example: if ("Faktura".equals(xmlType)) { ... }
-        
-        return chain;
+    public ValidationChain getValidationChain(String xmlType) {
+        return xmlType == null ? defaultChain : chainsByType.getOrDefault(xmlType, defaultChain);
     }
-} 
\ No newline at end of file
+}
@@ -1,39 +1,57 @@
 package com.invoiceprocessor.chain;
 
 import com.invoiceprocessor.dto.ValidationContext;
+import com.invoiceprocessor.jfr.ValidationHandlerEvent;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Set;
+
 /**
- * Chain of Responsibility Pattern for validation pipeline
+ * One step of the validation pipeline.
+ * Handlers are stateless singletons and hold no link to the next step - the order lives in the
+ * immutable {@link ValidationChain} built by {@link ValidationChainFactory}, so concurrent requests
+ * never touch shared handler state.
  */
 @Slf4j
 public abstract class ValidationHandler {
     
-    protected ValidationHandler nextHandler;
-    
-    public ValidationHandler setNext(ValidationHandler handler) {
-        this.nextHandler = handler;
-        return handler;
-    }
-    
+    /**
+     * Run this handler's own check, recorded as a flight recorder event
+     */
     public final void handle(ValidationContext context) {
+        ValidationHandlerEvent event = new ValidationHandlerEvent();
+        event.begin();
+        String outcome = "skipped";
         try {
             if (canHandle(context)) {
                 log.debug("🔍 {} handling validation", getHandlerName());
                 doValidation(context);
                 log.debug("✅ {} validation passed", getHandlerName());
+                outcome = "passed";
             }
-            
-            if (nextHandler != null) {
-                nextHandler.handle(context);
-            }
-            
         } catch (Exception e) {
-            log.error("❌ {} validation failed: {}", getHandlerName(), e.getMessage());
+            log.debug("❌ {} validation failed: {}", getHandlerName(), e.getMessage());
+            outcome = "failed";
+            event.setException(e.getClass().getSimpleName());
             throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.setHandler(getHandlerName());
+                event.setPayloadBytes(context.getXmlBytes() != null ? context.getXmlBytes().length : 0);
+                event.setOutcome(outcome);
+                event.commit();
+            }
         }
     }
     
+    /**
+     * Document types this handler belongs to; empty means every type
+     */
+    public Set<String> getDocumentTypes() {
+        return Set.of();
+    }
+    
     protected abstract boolean canHandle(ValidationContext context);
     protected abstract void doValidation(ValidationContext context);
     protected abstract String getHandlerName();
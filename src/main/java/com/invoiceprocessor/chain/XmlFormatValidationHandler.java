@@ -2,43 +2,187 @@ package com.invoiceprocessor.chain;
 
 import com.invoiceprocessor.dto.ValidationContext;
 import com.invoiceprocessor.exception.XmlValidationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+
 /**
- * Validates basic XML format
+ * Cheap structural pre-filter run before the XSD stage.
+ * A single pass over the raw bytes checks the prolog, that every tag is closed, that element
+ * nesting balances and stays under the depth limit. Comments, CDATA sections and processing
+ * instructions are skipped as a whole, so their content does not count as markup. Nothing is
+ * allocated unless the document is rejected.
  */
 @Component
+@Order(100)
 public class XmlFormatValidationHandler extends ValidationHandler {
-    
+
+    public static final int DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+    public static final int DEFAULT_MAX_DEPTH = 128;
+
+    private static final byte[] XML_DECLARATION = "<?xml".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] COMMENT_START = "<!--".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] COMMENT_END = "-->".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CDATA_START = "<![CDATA[".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CDATA_END = "]]>".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PI_END = "?>".getBytes(StandardCharsets.US_ASCII);
+
+    private final int maxBytes;
+    private final int maxDepth;
+
+    public XmlFormatValidationHandler(
+            @Value("${invoice.validation.max-bytes:" + DEFAULT_MAX_BYTES + "}") int maxBytes,
+            @Value("${invoice.validation.max-depth:" + DEFAULT_MAX_DEPTH + "}") int maxDepth) {
+        this.maxBytes = maxBytes;
+        this.maxDepth = maxDepth;
+    }
+
     @Override
     protected boolean canHandle(ValidationContext context) {
-        return context.getXmlContent() != null;
+        return context.getXmlBytes() != null;
     }
-    
+
     @Override
     protected void doValidation(ValidationContext context) {
-        String xmlContent = context.getXmlContent();
-        
-        // Basic XML format checks
-        if (!xmlContent.trim().startsWith("<?xml")) {
+        byte[] xml = context.getXmlBytes();
+
+        if (xml.length > maxBytes) {
+            throw new XmlValidationException("XML exceeds maximum size of " + maxBytes + " bytes");
+        }
+
+        int i = skipBomAndWhitespace(xml);
+        if (!startsWith(xml, i, XML_DECLARATION)) {
             throw new XmlValidationException("XML must start with XML declaration");
         }
-        
-        if (!xmlContent.contains("<") || !xmlContent.contains(">")) {
-            throw new XmlValidationException("Invalid XML format: missing angle brackets");
+
+        int depth = 0;
+        boolean sawElement = false;
+        while (i < xml.length) {
+            if (xml[i] != '<') {
+                // '>' is legal in character data, only '<' starts markup
+                i++;
+                continue;
+            }
+            if (i + 1 >= xml.length) {
+                throw unbalanced();
+            }
+            byte next = xml[i + 1];
+            if (next == '?') {
+                i = skipPast(xml, i + 2, PI_END);
+            } else if (next == '!') {
+                if (startsWith(xml, i, COMMENT_START)) {
+                    i = skipPast(xml, i + COMMENT_START.length, COMMENT_END);
+                } else if (startsWith(xml, i, CDATA_START)) {
+                    i = skipPast(xml, i + CDATA_START.length, CDATA_END);
+                } else {
+                    i = skipDeclaration(xml, i + 2);
+                }
+            } else if (next == '/') {
+                if (--depth < 0) {
+                    throw unbalanced();
+                }
+                i = skipTag(xml, i + 2);
+            } else {
+                sawElement = true;
+                i = skipTag(xml, i + 1);
+                // Self-closing elements open and close in the same tag
+                if (xml[i - 2] != '/' && ++depth > maxDepth) {
+                    throw new XmlValidationException("XML exceeds maximum element depth of " + maxDepth);
+                }
+            }
+        }
+
+        if (!sawElement) {
+            throw new XmlValidationException("Invalid XML format: missing root element");
+        }
+        if (depth != 0) {
+            throw unbalanced();
+        }
+    }
+
+    /**
+     * Index just past the '>' ending a tag; quoted attribute values may contain '>', a bare '<' means the tag never closed
+     */
+    private static int skipTag(byte[] xml, int from) {
+        byte quote = 0;
+        for (int i = from; i < xml.length; i++) {
+            byte b = xml[i];
+            if (quote != 0) {
+                if (b == quote) {
+                    quote = 0;
+                }
+            } else if (b == '"' || b == '\'') {
+                quote = b;
+            } else if (b == '>') {
+                return i + 1;
+            } else if (b == '<') {
+                throw unbalanced();
+            }
+        }
+        throw unbalanced();
+    }
+
+    /**
+     * Index just past a markup declaration such as DOCTYPE, whose internal subset may nest further declarations
+     */
+    private static int skipDeclaration(byte[] xml, int from) {
+        int nesting = 1;
+        for (int i = from; i < xml.length; i++) {
+            if (xml[i] == '<') {
+                nesting++;
+            } else if (xml[i] == '>' && --nesting == 0) {
+                return i + 1;
+            }
+        }
+        throw unbalanced();
+    }
+
+    private static int skipPast(byte[] xml, int from, byte[] terminator) {
+        int last = xml.length - terminator.length;
+        for (int i = from; i <= last; i++) {
+            if (xml[i] == terminator[0] && startsWith(xml, i, terminator)) {
+                return i + terminator.length;
+            }
+        }
+        throw unbalanced();
+    }
+
+    private static int skipBomAndWhitespace(byte[] xml) {
+        int start = 0;
+        // Skip UTF-8 byte order mark
+        if (xml.length >= 3 && (xml[0] & 0xFF) == 0xEF && (xml[1] & 0xFF) == 0xBB && (xml[2] & 0xFF) == 0xBF) {
+            start = 3;
+        }
+        while (start < xml.length && isWhitespace(xml[start])) {
+            start++;
         }
-        
-        // Check for balanced tags (basic check)
-        long openTags = xmlContent.chars().filter(ch -> ch == '<').count();
-        long closeTags = xmlContent.chars().filter(ch -> ch == '>').count();
-        
-        if (openTags != closeTags) {
-            throw new XmlValidationException("Invalid XML format: unbalanced tags");
+        return start;
+    }
+
+    private static boolean startsWith(byte[] xml, int offset, byte[] prefix) {
+        if (xml.length - offset < prefix.length) {
+            return false;
         }
+        for (int i = 0; i < prefix.length; i++) {
+            if (xml[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
     }
-    
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private static XmlValidationException unbalanced() {
+        return new XmlValidationException("Invalid XML format: unbalanced tags");
+    }
+
     @Override
     protected String getHandlerName() {
         return "XMLFormat";
     }
-} 
\ No newline at end of file
+}
@@ -2,42 +2,45 @@ package com.invoiceprocessor.chain;
 
 import com.invoiceprocessor.dto.ValidationContext;
 import com.invoiceprocessor.exception.XmlValidationException;
-import org.springframework.core.io.ClassPathResource;
+import com.invoiceprocessor.xml.SchemaRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
-import javax.xml.XMLConstants;
 import javax.xml.transform.stream.StreamSource;
-import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
-import javax.xml.validation.Validator;
-import java.io.StringReader;
 
 /**
  * Validates XML against XSD schema
  */
 @Component
+@Order(200)
+@RequiredArgsConstructor
 public class XmlSchemaValidationHandler extends ValidationHandler {
     
+    /**
+     * Context attribute set when schema validation is performed during unmarshalling instead
+     */
+    public static final String SCHEMA_DEFERRED_ATTRIBUTE = "schemaDeferred";
+    
+    private final SchemaRegistry schemaRegistry;
+    
     @Override
     protected boolean canHandle(ValidationContext context) {
-        return context.getXmlContent() != null;
+        return context.getXmlBytes() != null
+            && !Boolean.TRUE.equals(context.getAttribute(SCHEMA_DEFERRED_ATTRIBUTE));
     }
     
     @Override
     protected void doValidation(ValidationContext context) {
         try {
-            SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-            ClassPathResource xsdResource = new ClassPathResource("xsd/schemat.xsd");
-            Schema schema = factory.newSchema(xsdResource.getURL());
-            
-            Validator validator = schema.newValidator();
-            validator.validate(new StreamSource(new StringReader(context.getXmlContent())));
+            schemaRegistry.getDefaultSchema()
+                .validate(new StreamSource(context.openStream()));
             
             // Store schema validation success in context
             context.setAttribute("schemaValidated", true);
             
         } catch (Exception e) {
-            throw new XmlValidationException("XSD schema validation failed: " + e.getMessage(), e);
+            throw new XmlValidationException("XSD schema validation failed", e);
         }
     }
     
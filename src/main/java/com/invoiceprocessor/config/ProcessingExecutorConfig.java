@@ -0,0 +1,34 @@
+package com.invoiceprocessor.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executors used for internal fan-out of the processing pipeline.
+ * They follow spring.threads.virtual.enabled, the same switch that moves Tomcat request handling to virtual threads.
+ */
+@Configuration
+public class ProcessingExecutorConfig {
+
+    public static final String BATCH_EXECUTOR = "invoiceBatchExecutor";
+
+    /**
+     * Worker pool for batch ingestion.
+     * Platform mode uses a fixed pool since documents are CPU bound while being parsed;
+     * virtual mode starts a thread per item and relies on the JDBC limiter to bound database work.
+     */
+    @Bean(name = BATCH_EXECUTOR, destroyMethod = "shutdown")
+    public ExecutorService invoiceBatchExecutor(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${invoice.batch.parallelism:0}") int parallelism) {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("invoice-batch-", 0).factory());
+        }
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return Executors.newFixedThreadPool(threads);
+    }
+}
@@ -0,0 +1,36 @@
+package com.invoiceprocessor.config;
+
+import com.invoiceprocessor.admission.AdmissionControlInterceptor;
+import com.invoiceprocessor.ratelimit.RateLimitInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Interceptors in front of the invoice submission endpoints
+ */
+@Configuration
+@RequiredArgsConstructor
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    /**
+     * Bulk endpoint: one request carries up to invoice.batch.max-items documents
+     */
+    public static final String BATCH_PATH = "/api/invoices/batch";
+
+    /**
+     * Endpoints that accept invoice payloads; tracking lookups are not subject to load shedding
+     */
+    public static final String[] SUBMISSION_PATHS = {"/api/invoices", "/api/invoices/stream", BATCH_PATH};
+
+    private final RateLimitInterceptor rateLimitInterceptor;
+    private final AdmissionControlInterceptor admissionControlInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Rate limit first: a throttled client must not hold an admission slot
+        registry.addInterceptor(rateLimitInterceptor).addPathPatterns(SUBMISSION_PATHS);
+        registry.addInterceptor(admissionControlInterceptor).addPathPatterns(SUBMISSION_PATHS);
+    }
+}
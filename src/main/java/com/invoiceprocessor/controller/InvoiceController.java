@@ -1,38 +1,186 @@
 package com.invoiceprocessor.controller;
 
+import com.invoiceprocessor.archive.ArchiveLocation;
+import com.invoiceprocessor.archive.ArchivedDocumentWriter;
+import com.invoiceprocessor.dto.BatchInvoiceResponse;
 import com.invoiceprocessor.dto.InvoiceRequest;
 import com.invoiceprocessor.dto.InvoiceResponse;
+import com.invoiceprocessor.dto.ProcessingResult;
+import com.invoiceprocessor.dto.TrackingResponse;
+import com.invoiceprocessor.idempotency.IdempotencyService;
+import com.invoiceprocessor.ingest.BatchDocumentReader;
+import com.invoiceprocessor.ingest.StreamingInvoiceRequestReader;
+import com.invoiceprocessor.persistence.WriteBehindQueue;
+import com.invoiceprocessor.ratelimit.RateLimitInterceptor;
+import com.invoiceprocessor.service.BatchInvoiceService;
 import com.invoiceprocessor.service.InvoiceService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.ServletServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.net.URI;
+import java.util.Optional;
+
 @RestController
 @RequestMapping("/api")
 @RequiredArgsConstructor
 @Slf4j
 public class InvoiceController {
     
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+    
     private final InvoiceService invoiceService;
+    private final StreamingInvoiceRequestReader streamingRequestReader;
+    private final BatchInvoiceService batchInvoiceService;
+    private final WriteBehindQueue writeBehindQueue;
+    private final IdempotencyService idempotencyService;
+    private final ArchivedDocumentWriter archivedDocumentWriter;
     
     @PostMapping("/invoices")
     @Operation(summary = "Process XML invoice", description = "Processes a Base64-encoded XML invoice and saves it to the database")
     @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Identical invoice was already saved"),
         @ApiResponse(responseCode = "201", description = "Invoice saved successfully"),
+        @ApiResponse(responseCode = "202", description = "Invoice accepted for write-behind persistence"),
         @ApiResponse(responseCode = "400", description = "Invalid request or XML validation failed"),
-        @ApiResponse(responseCode = "500", description = "Internal server error")
+        @ApiResponse(responseCode = "409", description = "Idempotency-Key reused for another payload or still in progress"),
+        @ApiResponse(responseCode = "429", description = "Client request rate exceeded"),
+        @ApiResponse(responseCode = "500", description = "Internal server error"),
+        @ApiResponse(responseCode = "503", description = "Write-behind queue is full or request shed by admission control")
     })
-    public ResponseEntity<InvoiceResponse> processInvoice(@Valid @RequestBody InvoiceRequest request) throws Exception {
+    public ResponseEntity<InvoiceResponse> processInvoice(
+            @Valid @RequestBody InvoiceRequest request,
+            @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         log.info("Processing invoice request");
-        invoiceService.processInvoice(request.getBase64xml());
-        
+        String base64xml = request.getBase64xml();
+        return idempotencyService.execute(idempotencyKey, () -> IdempotencyService.fingerprintBase64(base64xml), () -> {
+            if (writeBehindQueue.isEnabled()) {
+                return submitWriteBehind(invoiceService.extractInvoice(base64xml));
+            }
+            return saved(invoiceService.processInvoice(base64xml));
+        });
+    }
+    
+    @PostMapping(value = "/invoices/stream", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Process XML invoice (streaming)",
+        description = "Same request body as /invoices, but base64xml is decoded while the body is read instead of being bound to a String first")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Identical invoice was already saved"),
+        @ApiResponse(responseCode = "201", description = "Invoice saved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid request or XML validation failed"),
+        @ApiResponse(responseCode = "409", description = "Idempotency-Key reused for another payload or still in progress"),
+        @ApiResponse(responseCode = "429", description = "Client request rate exceeded"),
+        @ApiResponse(responseCode = "500", description = "Internal server error"),
+        @ApiResponse(responseCode = "503", description = "Request shed by admission control")
+    })
+    public ResponseEntity<InvoiceResponse> processInvoiceStream(HttpServletRequest request) {
+        log.info("Processing streamed invoice request");
+        byte[] xmlBytes = streamingRequestReader.readXml(
+            new ServletServerHttpRequest(request), request.getContentLengthLong());
+        String idempotencyKey = request.getHeader(IdempotencyService.IDEMPOTENCY_KEY_HEADER);
+        return idempotencyService.execute(idempotencyKey, () -> IdempotencyService.fingerprint(xmlBytes), () -> {
+            if (writeBehindQueue.isEnabled()) {
+                return submitWriteBehind(invoiceService.extractDecodedInvoice(xmlBytes));
+            }
+            return saved(invoiceService.processDecodedInvoice(xmlBytes));
+        });
+    }
+    
+    @PostMapping(value = "/invoices/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Process a batch of XML invoices",
+        description = "Processes a JSON array of Base64-encoded XML invoices as it is read; returns one result per document in input order")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Batch processed, see per-item results"),
+        @ApiResponse(responseCode = "400", description = "Invalid request body"),
+        @ApiResponse(responseCode = "413", description = "More documents than invoice.batch.max-items"),
+        @ApiResponse(responseCode = "429", description = "Client rate exceeded, charged per document"),
+        @ApiResponse(responseCode = "503", description = "Request shed by admission control or persistence busy")
+    })
+    public ResponseEntity<BatchInvoiceResponse> processBatch(HttpServletRequest request) throws IOException {
+        log.info("Processing batch request");
+        try (BatchDocumentReader documents = streamingRequestReader.readJsonArrayDocuments(new ServletServerHttpRequest(request))) {
+            return ResponseEntity.ok(BatchInvoiceResponse.of(batchInvoiceService.processBatch(documents, clientId(request))));
+        }
+    }
+    
+    @PostMapping(value = "/invoices/batch", consumes = NDJSON_VALUE)
+    @Operation(summary = "Process a batch of XML invoices (NDJSON)",
+        description = "Processes newline-delimited InvoiceRequest objects as they are read; returns one result per document in input order")
+    public ResponseEntity<BatchInvoiceResponse> processBatchNdjson(HttpServletRequest request) throws IOException {
+        log.info("Processing NDJSON batch request");
+        try (BatchDocumentReader documents = streamingRequestReader.readNdjsonDocuments(new ServletServerHttpRequest(request))) {
+            return ResponseEntity.ok(BatchInvoiceResponse.of(batchInvoiceService.processBatch(documents, clientId(request))));
+        }
+    }
+    
+    @GetMapping("/invoices/tracking/{trackingId}")
+    @Operation(summary = "Get write-behind status", description = "Returns whether an accepted invoice is still pending, committed or failed")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Tracking status"),
+        @ApiResponse(responseCode = "404", description = "Unknown or expired tracking ID")
+    })
+    public ResponseEntity<TrackingResponse> getTrackingStatus(@PathVariable String trackingId) {
+        return writeBehindQueue.getStatus(trackingId)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+    
+    @GetMapping("/invoices/{id}/xml")
+    @Operation(summary = "Get original XML", description = "Returns the archived original document of a saved invoice; "
+        + "sent as Content-Encoding: deflate straight from the archive file when the client accepts it and the document allows")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Original XML document"),
+        @ApiResponse(responseCode = "404", description = "Unknown invoice or document not archived")
+    })
+    public void getInvoiceXml(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Optional<ArchiveLocation> location = invoiceService.findArchivedDocument(id);
+        if (location.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        archivedDocumentWriter.write(location.get(), request, response);
+    }
+    
+    /**
+     * Queue an extracted invoice for write-behind persistence; a resubmitted document is answered right away
+     */
+    private ResponseEntity<InvoiceResponse> submitWriteBehind(ProcessingResult extracted) {
+        if (extracted.isDuplicate()) {
+            return saved(extracted);
+        }
+        return accepted(writeBehindQueue.submit(extracted.getExtractedData()));
+    }
+    
+    /**
+     * Client charged by the rate limit for this request, or null when rate limiting is off
+     */
+    private static String clientId(HttpServletRequest request) {
+        return (String) request.getAttribute(RateLimitInterceptor.CLIENT_ID_ATTRIBUTE);
+    }
+    
+    private static ResponseEntity<InvoiceResponse> saved(ProcessingResult result) {
+        if (result.isDuplicate()) {
+            return ResponseEntity.ok(new InvoiceResponse("Invoice already processed"));
+        }
         InvoiceResponse response = new InvoiceResponse("Invoice saved successfully");
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
-} 
\ No newline at end of file
+    
+    private static ResponseEntity<InvoiceResponse> accepted(String trackingId) {
+        InvoiceResponse response = new InvoiceResponse("Invoice accepted for processing", trackingId);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+            .location(URI.create("/api/invoices/tracking/" + trackingId))
+            .body(response);
+    }
+}
\ No newline at end of file
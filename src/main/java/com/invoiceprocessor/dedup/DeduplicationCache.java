@@ -0,0 +1,150 @@
+package com.invoiceprocessor.dedup;
+
+import com.invoiceprocessor.persistence.JdbcConcurrencyLimiter;
+import com.invoiceprocessor.repository.InvoiceRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Maps the SHA-256 of a decoded document to the invoice already stored for it.
+ * A bounded LRU cache answers resubmissions without touching the database; on a cache miss the
+ * unique content_hash column is consulted, and the same index rejects the second of two concurrent
+ * first submissions.
+ */
+@Component
+public class DeduplicationCache {
+
+    public static final String LOOKUP_COUNTER = "invoice.dedup.lookups";
+    public static final String EVICTION_COUNTER = "invoice.dedup.evictions";
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final InvoiceRepository invoiceRepository;
+    private final JdbcConcurrencyLimiter jdbcConcurrencyLimiter;
+    private final boolean enabled;
+    private final int maxEntries;
+    // ReentrantLock rather than synchronized so virtual threads are not pinned; access order makes reads writes too
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, String> entries;
+
+    private final Counter cacheHits;
+    private final Counter storeHits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public DeduplicationCache(
+            InvoiceRepository invoiceRepository,
+            JdbcConcurrencyLimiter jdbcConcurrencyLimiter,
+            MeterRegistry meterRegistry,
+            @Value("${invoice.dedup.enabled:true}") boolean enabled,
+            @Value("${invoice.dedup.max-entries:100000}") int maxEntries) {
+        this.invoiceRepository = invoiceRepository;
+        this.jdbcConcurrencyLimiter = jdbcConcurrencyLimiter;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                if (size() > DeduplicationCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        this.cacheHits = lookupCounter(meterRegistry, "cache_hit");
+        this.storeHits = lookupCounter(meterRegistry, "store_hit");
+        this.misses = lookupCounter(meterRegistry, "miss");
+        this.evictions = Counter.builder(EVICTION_COUNTER)
+            .description("Content hashes evicted from the deduplication cache")
+            .register(meterRegistry);
+        Gauge.builder("invoice.dedup.cache.size", this, DeduplicationCache::size)
+            .description("Content hashes held in the deduplication cache")
+            .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Hex SHA-256 of the decoded document bytes
+     */
+    public static String hash(byte[] xmlBytes) {
+        try {
+            return HEX.formatHex(MessageDigest.getInstance("SHA-256").digest(xmlBytes));
+        } catch (NoSuchAlgorithmException e) {
+            // Every JRE is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * ID of the invoice stored for the content hash, from the cache or else from the database
+     */
+    public Optional<String> findInvoiceId(String contentHash) {
+        String cached = get(contentHash);
+        if (cached != null) {
+            cacheHits.increment();
+            return Optional.of(cached);
+        }
+        Optional<String> stored = jdbcConcurrencyLimiter.execute(() -> invoiceRepository.findIdByContentHash(contentHash))
+            .map(String::valueOf);
+        if (stored.isPresent()) {
+            storeHits.increment();
+            remember(contentHash, stored.get());
+        } else {
+            misses.increment();
+        }
+        return stored;
+    }
+
+    /**
+     * Cache the invoice just stored for the content hash
+     */
+    public void remember(String contentHash, String invoiceId) {
+        lock.lock();
+        try {
+            entries.put(contentHash, invoiceId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private String get(String contentHash) {
+        lock.lock();
+        try {
+            return entries.get(contentHash);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder(LOOKUP_COUNTER)
+            .description("Content hash lookups by where the answer came from")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,25 @@
+package com.invoiceprocessor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Result of a batch submission; results are in the same order as the submitted documents
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchInvoiceResponse {
+    private int total;
+    private int succeeded;
+    private int failed;
+    private List<ProcessingResult> results;
+    
+    public static BatchInvoiceResponse of(List<ProcessingResult> results) {
+        int succeeded = (int) results.stream().filter(ProcessingResult::isSuccess).count();
+        return new BatchInvoiceResponse(results.size(), succeeded, results.size() - succeeded, results);
+    }
+}
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 import java.time.LocalDateTime;
 
@@ -17,6 +18,13 @@ public class ErrorResponse {
     
     private String error;
     private String message;
+    
+    /**
+     * Underlying reason of an expected failure, e.g. the parser message behind an XSD violation
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String detail;
+    
     private String path;
     
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
@@ -29,8 +37,13 @@ public class ErrorResponse {
     }
     
     public ErrorResponse(String error, String message, String path) {
+        this(error, message, null, path);
+    }
+    
+    public ErrorResponse(String error, String message, String detail, String path) {
         this.error = error;
         this.message = message;
+        this.detail = detail;
         this.path = path;
         this.timestamp = LocalDateTime.now();
     }
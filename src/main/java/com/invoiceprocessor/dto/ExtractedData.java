@@ -1,9 +1,12 @@
 package com.invoiceprocessor.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.Map;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -12,4 +15,30 @@ public class ExtractedData {
     private String p1;
     private String p2;
     private String processorType;
+    
+    /**
+     * All fields pulled by the declarative extraction mappings (STAX extraction only), by output name
+     */
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private Map<String, String> fields;
+    
+    /**
+     * Hex SHA-256 of the archived original document; null while the archive is disabled
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String documentHash;
+    
+    /**
+     * Hex SHA-256 of the decoded document, saved under the unique content hash; null while deduplication is disabled
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String contentHash;
+    
+    public ExtractedData(String nip, String p1, String p2, String processorType) {
+        this(nip, p1, p2, processorType, Map.of());
+    }
+    
+    public ExtractedData(String nip, String p1, String p2, String processorType, Map<String, String> fields) {
+        this(nip, p1, p2, processorType, fields, null, null);
+    }
 }
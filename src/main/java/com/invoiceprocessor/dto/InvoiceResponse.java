@@ -1,10 +1,21 @@
 package com.invoiceprocessor.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import lombok.AllArgsConstructor;
 
 @Data
 @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class InvoiceResponse {
     private String message;
-} 
\ No newline at end of file
+    
+    /**
+     * Set when the invoice was accepted for write-behind persistence
+     */
+    private String trackingId;
+    
+    public InvoiceResponse(String message) {
+        this.message = message;
+    }
+}
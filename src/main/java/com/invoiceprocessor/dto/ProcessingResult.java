@@ -14,10 +14,30 @@ public class ProcessingResult {
     private ExtractedData extractedData;
     private String errorDetails;
     
+    /**
+     * The document was already stored; invoiceId is the existing invoice and nothing was extracted
+     */
+    private boolean duplicate;
+    
+    public ProcessingResult(boolean success, String message, String invoiceId, ExtractedData extractedData, String errorDetails) {
+        this(success, message, invoiceId, extractedData, errorDetails, false);
+    }
+    
     public static ProcessingResult success(String invoiceId, ExtractedData data) {
         return new ProcessingResult(true, "Invoice processed successfully", invoiceId, data, null);
     }
     
+    /**
+     * Extracted but not saved yet; batch and write-behind persistence save it afterwards
+     */
+    public static ProcessingResult extracted(ExtractedData data) {
+        return new ProcessingResult(true, "Invoice extracted", null, data, null);
+    }
+    
+    public static ProcessingResult duplicate(String invoiceId) {
+        return new ProcessingResult(true, "Invoice already processed", invoiceId, null, null, true);
+    }
+    
     public static ProcessingResult failure(String message, String errorDetails) {
         return new ProcessingResult(false, message, null, null, errorDetails);
     }
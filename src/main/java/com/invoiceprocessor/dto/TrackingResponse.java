@@ -0,0 +1,21 @@
+package com.invoiceprocessor.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.invoiceprocessor.persistence.PersistenceStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Persistence state of an invoice accepted for write-behind processing
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TrackingResponse {
+    private String trackingId;
+    private PersistenceStatus status;
+    private String invoiceId;
+    private String error;
+}
@@ -4,32 +4,43 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
- * Context object for validation chain
+ * Context object for validation chain.
+ * Holds the raw decoded document bytes; parsers read them through {@link #openStream()}
+ * and detect the encoding from the XML prolog.
  */
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 public class ValidationContext {
     
-    private String xmlContent;
+    private byte[] xmlBytes;
     private Object xmlObject;
     private String xmlType;
     private Map<String, Object> attributes = new HashMap<>();
     
-    public ValidationContext(String xmlContent) {
-        this.xmlContent = xmlContent;
+    public ValidationContext(byte[] xmlBytes) {
+        this.xmlBytes = xmlBytes;
     }
     
-    public ValidationContext(String xmlContent, Object xmlObject) {
-        this.xmlContent = xmlContent;
+    public ValidationContext(byte[] xmlBytes, Object xmlObject) {
+        this.xmlBytes = xmlBytes;
         this.xmlObject = xmlObject;
         this.xmlType = xmlObject != null ? xmlObject.getClass().getSimpleName() : "Unknown";
     }
     
+    /**
+     * Open a fresh stream over the document bytes
+     */
+    public InputStream openStream() {
+        return new ByteArrayInputStream(xmlBytes);
+    }
+    
     public void setAttribute(String key, Object value) {
         attributes.put(key, value);
     }
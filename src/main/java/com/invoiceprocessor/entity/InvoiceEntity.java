@@ -4,19 +4,31 @@ import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.util.Map;
 
 
 
 
 @Entity
-@Table(name = "invoices")
+@Table(name = "invoices", uniqueConstraints =
+    @UniqueConstraint(name = InvoiceEntity.CONTENT_HASH_CONSTRAINT, columnNames = "content_hash"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class InvoiceEntity {
     
+    public static final String CONTENT_HASH_CONSTRAINT = "uk_invoices_content_hash";
+    
+    /**
+     * Sequence-generated so Hibernate can batch inserts; IDENTITY forces one INSERT per entity.
+     * allocationSize matches hibernate.jdbc.batch_size so one sequence call covers a batch.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "invoice_id_generator")
+    @SequenceGenerator(name = "invoice_id_generator", sequenceName = "invoice_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "nip", nullable = false)
@@ -28,6 +40,27 @@ public class InvoiceEntity {
     @Column(name = "p2", nullable = false)
     private String p2;
     
+    /**
+     * Hex SHA-256 of the decoded document; null for rows saved without deduplication
+     */
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+    
+    /**
+     * Hex SHA-256 of the decoded document, the key of its archived copy; not unique, so archiving
+     * does not turn deduplication on
+     */
+    @Column(name = "document_hash", length = 64)
+    private String documentHash;
+    
+    /**
+     * Every field pulled by the extraction mappings, by output name; a JSONB column, null unless
+     * invoice.processing.extraction=stax
+     */
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "fields")
+    private Map<String, String> fields;
+    
     
     
     
@@ -0,0 +1,18 @@
+package com.invoiceprocessor.exception;
+
+/**
+ * Exception thrown when admission control sheds a request before its body is read
+ */
+public class AdmissionRejectedException extends InvoiceProcessingException {
+
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(ErrorCode errorCode, String message, long retryAfterSeconds) {
+        super(errorCode, message, null);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -3,13 +3,13 @@ package com.invoiceprocessor.exception;
 /**
  * Exception thrown when Base64 decoding fails
  */
-public class Base64DecodingException extends RuntimeException {
+public class Base64DecodingException extends InvoiceProcessingException {
     
     public Base64DecodingException(String message) {
-        super(message);
+        super(ErrorCode.BASE64_DECODING_ERROR, message, null);
     }
     
     public Base64DecodingException(String message, Throwable cause) {
-        super(message, cause);
+        super(ErrorCode.BASE64_DECODING_ERROR, message, cause);
     }
 } 
\ No newline at end of file
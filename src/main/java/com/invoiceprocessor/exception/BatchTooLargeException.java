@@ -0,0 +1,11 @@
+package com.invoiceprocessor.exception;
+
+/**
+ * Exception thrown when a batch request carries more documents than invoice.batch.max-items
+ */
+public class BatchTooLargeException extends InvoiceProcessingException {
+    
+    public BatchTooLargeException(String message) {
+        super(ErrorCode.BATCH_TOO_LARGE, message, null);
+    }
+}
@@ -3,13 +3,13 @@ package com.invoiceprocessor.exception;
 /**
  * Exception thrown when data extraction from XML fails
  */
-public class DataExtractionException extends RuntimeException {
+public class DataExtractionException extends InvoiceProcessingException {
     
     public DataExtractionException(String message) {
-        super(message);
+        super(ErrorCode.DATA_EXTRACTION_ERROR, message, null);
     }
     
     public DataExtractionException(String message, Throwable cause) {
-        super(message, cause);
+        super(ErrorCode.DATA_EXTRACTION_ERROR, message, cause);
     }
 } 
\ No newline at end of file
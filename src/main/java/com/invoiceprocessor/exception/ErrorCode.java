@@ -0,0 +1,31 @@
+package com.invoiceprocessor.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Error codes of expected processing failures, as returned in ErrorResponse.error
+ */
+public enum ErrorCode {
+    BASE64_DECODING_ERROR(HttpStatus.BAD_REQUEST),
+    XML_VALIDATION_ERROR(HttpStatus.BAD_REQUEST),
+    XML_UNMARSHALLING_ERROR(HttpStatus.BAD_REQUEST),
+    DATA_EXTRACTION_ERROR(HttpStatus.BAD_REQUEST),
+    IDEMPOTENCY_KEY_CONFLICT(HttpStatus.CONFLICT),
+    IDEMPOTENCY_KEY_INVALID(HttpStatus.BAD_REQUEST),
+    BATCH_TOO_LARGE(HttpStatus.PAYLOAD_TOO_LARGE),
+    PERSISTENCE_QUEUE_FULL(HttpStatus.SERVICE_UNAVAILABLE),
+    DATABASE_BUSY(HttpStatus.SERVICE_UNAVAILABLE),
+    CONCURRENCY_LIMIT_EXCEEDED(HttpStatus.SERVICE_UNAVAILABLE),
+    PAYLOAD_BUDGET_EXCEEDED(HttpStatus.SERVICE_UNAVAILABLE),
+    RATE_LIMIT_EXCEEDED(HttpStatus.TOO_MANY_REQUESTS);
+
+    private final HttpStatus status;
+
+    ErrorCode(HttpStatus status) {
+        this.status = status;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+}
@@ -1,10 +1,14 @@
 package com.invoiceprocessor.exception;
 
 import com.invoiceprocessor.dto.ErrorResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.ConstraintViolationException;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -16,27 +20,25 @@ import org.springframework.web.method.annotation.MethodArgumentTypeMismatchExcep
 import java.util.stream.Collectors;
 
 /**
- * Global exception handler for centralized error handling
+ * Global exception handler for centralized error handling.
+ * Only the unexpected branches (database, runtime and generic exceptions) log stack traces.
  */
 @ControllerAdvice
+@RequiredArgsConstructor
 @Slf4j
 public class GlobalExceptionHandler {
 
+    static final String ERROR_COUNTER = "invoice.errors";
+
+    private final MeterRegistry meterRegistry;
+
     /**
      * Handle Base64 decoding exceptions
      */
     @ExceptionHandler(Base64DecodingException.class)
     public ResponseEntity<ErrorResponse> handleBase64DecodingException(
             Base64DecodingException ex, HttpServletRequest request) {
-        log.error("Base64 decoding error: {}", ex.getMessage(), ex);
-        
-        ErrorResponse error = new ErrorResponse(
-            "BASE64_DECODING_ERROR",
-            ex.getMessage(),
-            request.getRequestURI()
-        );
-        
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        return clientError(ex, request);
     }
 
     /**
@@ -45,15 +47,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(XmlValidationException.class)
     public ResponseEntity<ErrorResponse> handleXmlValidationException(
             XmlValidationException ex, HttpServletRequest request) {
-        log.error("XML validation error: {}", ex.getMessage(), ex);
-        
-        ErrorResponse error = new ErrorResponse(
-            "XML_VALIDATION_ERROR",
-            ex.getMessage(),
-            request.getRequestURI()
-        );
-        
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        return clientError(ex, request);
     }
 
     /**
@@ -62,15 +56,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(XmlUnmarshallingException.class)
     public ResponseEntity<ErrorResponse> handleXmlUnmarshallingException(
             XmlUnmarshallingException ex, HttpServletRequest request) {
-        log.error("XML unmarshalling error: {}", ex.getMessage(), ex);
-        
-        ErrorResponse error = new ErrorResponse(
-            "XML_UNMARSHALLING_ERROR",
-            ex.getMessage(),
-            request.getRequestURI()
-        );
-        
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        return clientError(ex, request);
     }
 
     /**
@@ -79,15 +65,67 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(DataExtractionException.class)
     public ResponseEntity<ErrorResponse> handleDataExtractionException(
             DataExtractionException ex, HttpServletRequest request) {
-        log.error("Data extraction error: {}", ex.getMessage(), ex);
-        
-        ErrorResponse error = new ErrorResponse(
-            "DATA_EXTRACTION_ERROR",
-            ex.getMessage(),
-            request.getRequestURI()
-        );
-        
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        return clientError(ex, request);
+    }
+
+    /**
+     * Handle persistence backpressure (full write-behind queue or no free database slot) - the client should retry shortly
+     */
+    @ExceptionHandler(PersistenceBackpressureException.class)
+    public ResponseEntity<ErrorResponse> handlePersistenceBackpressureException(
+            PersistenceBackpressureException ex, HttpServletRequest request) {
+        return ResponseEntity.status(ex.getErrorCode().getStatus())
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(clientError(ex, request).getBody());
+    }
+
+    /**
+     * Handle requests shed by admission control before their body was read
+     */
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<ErrorResponse> handleAdmissionRejectedException(
+            AdmissionRejectedException ex, HttpServletRequest request) {
+        return ResponseEntity.status(ex.getErrorCode().getStatus())
+            .header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfterSeconds()))
+            .body(clientError(ex, request).getBody());
+    }
+
+    /**
+     * Handle clients that exceeded their request rate
+     */
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<ErrorResponse> handleRateLimitExceededException(
+            RateLimitExceededException ex, HttpServletRequest request) {
+        return ResponseEntity.status(ex.getErrorCode().getStatus())
+            .header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfterSeconds()))
+            .body(clientError(ex, request).getBody());
+    }
+
+    /**
+     * Handle Idempotency-Key reuse for another payload, or a retry outwaiting the original request
+     */
+    @ExceptionHandler(IdempotencyKeyConflictException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyKeyConflictException(
+            IdempotencyKeyConflictException ex, HttpServletRequest request) {
+        return clientError(ex, request);
+    }
+
+    /**
+     * Handle an Idempotency-Key header that cannot be used as a key
+     */
+    @ExceptionHandler(InvalidIdempotencyKeyException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidIdempotencyKeyException(
+            InvalidIdempotencyKeyException ex, HttpServletRequest request) {
+        return clientError(ex, request);
+    }
+
+    /**
+     * Handle a batch request with more documents than allowed
+     */
+    @ExceptionHandler(BatchTooLargeException.class)
+    public ResponseEntity<ErrorResponse> handleBatchTooLargeException(
+            BatchTooLargeException ex, HttpServletRequest request) {
+        return clientError(ex, request);
     }
 
     /**
@@ -97,6 +135,7 @@ public class GlobalExceptionHandler {
     public ResponseEntity<ErrorResponse> handleValidationException(
             MethodArgumentNotValidException ex, HttpServletRequest request) {
         log.error("Validation error: {}", ex.getMessage());
+        countError("VALIDATION_ERROR", ex);
         
         String message = ex.getBindingResult().getFieldErrors().stream()
             .map(error -> error.getField() + ": " + error.getDefaultMessage())
@@ -118,6 +157,7 @@ public class GlobalExceptionHandler {
     public ResponseEntity<ErrorResponse> handleConstraintViolationException(
             ConstraintViolationException ex, HttpServletRequest request) {
         log.error("Constraint violation: {}", ex.getMessage());
+        countError("CONSTRAINT_VIOLATION", ex);
         
         String message = ex.getConstraintViolations().stream()
             .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
@@ -139,6 +179,7 @@ public class GlobalExceptionHandler {
     public ResponseEntity<ErrorResponse> handleHttpMessageNotReadableException(
             HttpMessageNotReadableException ex, HttpServletRequest request) {
         log.error("Malformed JSON request: {}", ex.getMessage());
+        countError("MALFORMED_JSON", ex);
         
         ErrorResponse error = new ErrorResponse(
             "MALFORMED_JSON",
@@ -156,6 +197,7 @@ public class GlobalExceptionHandler {
     public ResponseEntity<ErrorResponse> handleMethodArgumentTypeMismatchException(
             MethodArgumentTypeMismatchException ex, HttpServletRequest request) {
         log.error("Method argument type mismatch: {}", ex.getMessage());
+        countError("ARGUMENT_TYPE_MISMATCH", ex);
         
         ErrorResponse error = new ErrorResponse(
             "ARGUMENT_TYPE_MISMATCH",
@@ -173,6 +215,7 @@ public class GlobalExceptionHandler {
     public ResponseEntity<ErrorResponse> handleDataAccessException(
             DataAccessException ex, HttpServletRequest request) {
         log.error("Database access error: {}", ex.getMessage(), ex);
+        countError("DATABASE_ERROR", ex);
         
         ErrorResponse error = new ErrorResponse(
             "DATABASE_ERROR",
@@ -190,6 +233,7 @@ public class GlobalExceptionHandler {
     public ResponseEntity<ErrorResponse> handleRuntimeException(
             RuntimeException ex, HttpServletRequest request) {
         log.error("Runtime error: {}", ex.getMessage(), ex);
+        countError("RUNTIME_ERROR", ex);
         
         ErrorResponse error = new ErrorResponse(
             "RUNTIME_ERROR",
@@ -207,6 +251,7 @@ public class GlobalExceptionHandler {
     public ResponseEntity<ErrorResponse> handleGenericException(
             Exception ex, HttpServletRequest request) {
         log.error("Unexpected error: {}", ex.getMessage(), ex);
+        countError("INTERNAL_SERVER_ERROR", ex);
         
         ErrorResponse error = new ErrorResponse(
             "INTERNAL_SERVER_ERROR",
@@ -216,4 +261,35 @@ public class GlobalExceptionHandler {
         
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
     }
-} 
\ No newline at end of file
+
+    /**
+     * Expected failures - malformed documents and load shedding - are routine, so they are logged
+     * on one WARN line without a stack trace and answered with their error code and detail
+     */
+    private ResponseEntity<ErrorResponse> clientError(InvoiceProcessingException ex, HttpServletRequest request) {
+        ErrorCode code = ex.getErrorCode();
+        String detail = ex.getDetail();
+        log.warn("{} on {}: {}{}", code, request.getRequestURI(), ex.getMessage(), detail != null ? " - " + detail : "");
+        countError(code.name(), ex);
+        
+        ErrorResponse error = new ErrorResponse(
+            code.name(),
+            ex.getMessage(),
+            detail,
+            request.getRequestURI()
+        );
+        
+        return ResponseEntity.status(code.getStatus()).body(error);
+    }
+
+    /**
+     * Count the response by error code and exception class, one series per handler branch
+     */
+    private void countError(String error, Exception ex) {
+        Counter.builder(ERROR_COUNTER)
+            .tag("error", error)
+            .tag("exception", ex.getClass().getSimpleName())
+            .register(meterRegistry)
+            .increment();
+    }
+}
\ No newline at end of file
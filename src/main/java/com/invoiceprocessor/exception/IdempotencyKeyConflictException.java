@@ -0,0 +1,12 @@
+package com.invoiceprocessor.exception;
+
+/**
+ * Exception thrown when an Idempotency-Key is reused for a different payload,
+ * or the request holding it is still running after the wait timeout
+ */
+public class IdempotencyKeyConflictException extends InvoiceProcessingException {
+    
+    public IdempotencyKeyConflictException(String message) {
+        super(ErrorCode.IDEMPOTENCY_KEY_CONFLICT, message, null);
+    }
+}
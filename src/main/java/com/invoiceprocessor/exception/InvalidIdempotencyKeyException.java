@@ -0,0 +1,11 @@
+package com.invoiceprocessor.exception;
+
+/**
+ * Exception thrown when the Idempotency-Key header cannot be used as a key, e.g. because it is too long
+ */
+public class InvalidIdempotencyKeyException extends InvoiceProcessingException {
+    
+    public InvalidIdempotencyKeyException(String message) {
+        super(ErrorCode.IDEMPOTENCY_KEY_INVALID, message, null);
+    }
+}
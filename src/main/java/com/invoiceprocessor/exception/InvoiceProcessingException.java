@@ -0,0 +1,33 @@
+package com.invoiceprocessor.exception;
+
+/**
+ * Base of the expected failures caused by the submitted document or by load, mapped to an ErrorCode.
+ * These are part of normal traffic, so no stack trace is captured - filling it in dominates the cost
+ * of a rejection. The message stays short and fixed; what went wrong underneath is read from the
+ * cause as the detail instead of being concatenated into the message.
+ */
+public abstract class InvoiceProcessingException extends RuntimeException {
+
+    private final ErrorCode errorCode;
+
+    protected InvoiceProcessingException(ErrorCode errorCode, String message, Throwable cause) {
+        super(message, cause, true, false);
+        this.errorCode = errorCode;
+    }
+
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+
+    /**
+     * The first message found down the cause chain, or null when there is no cause to report
+     */
+    public String getDetail() {
+        for (Throwable cause = getCause(); cause != null && cause != cause.getCause(); cause = cause.getCause()) {
+            if (cause.getMessage() != null) {
+                return cause.getMessage();
+            }
+        }
+        return null;
+    }
+}
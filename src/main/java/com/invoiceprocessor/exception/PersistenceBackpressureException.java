@@ -0,0 +1,16 @@
+package com.invoiceprocessor.exception;
+
+/**
+ * Exception thrown when persistence cannot take more work right now: the write-behind queue is full
+ * (PERSISTENCE_QUEUE_FULL) or no database slot freed up in time (DATABASE_BUSY)
+ */
+public class PersistenceBackpressureException extends InvoiceProcessingException {
+    
+    public PersistenceBackpressureException(String message) {
+        this(ErrorCode.PERSISTENCE_QUEUE_FULL, message);
+    }
+    
+    public PersistenceBackpressureException(ErrorCode errorCode, String message) {
+        super(errorCode, message, null);
+    }
+}
@@ -0,0 +1,18 @@
+package com.invoiceprocessor.exception;
+
+/**
+ * Exception thrown when a client has used up its request rate
+ */
+public class RateLimitExceededException extends InvoiceProcessingException {
+
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(String message, long retryAfterSeconds) {
+        super(ErrorCode.RATE_LIMIT_EXCEEDED, message, null);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
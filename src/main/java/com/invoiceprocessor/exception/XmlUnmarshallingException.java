@@ -3,13 +3,13 @@ package com.invoiceprocessor.exception;
 /**
  * Exception thrown when XML unmarshalling fails
  */
-public class XmlUnmarshallingException extends RuntimeException {
+public class XmlUnmarshallingException extends InvoiceProcessingException {
     
     public XmlUnmarshallingException(String message) {
-        super(message);
+        super(ErrorCode.XML_UNMARSHALLING_ERROR, message, null);
     }
     
     public XmlUnmarshallingException(String message, Throwable cause) {
-        super(message, cause);
+        super(ErrorCode.XML_UNMARSHALLING_ERROR, message, cause);
     }
 } 
\ No newline at end of file
@@ -3,13 +3,13 @@ package com.invoiceprocessor.exception;
 /**
  * Exception thrown when XML validation against XSD fails
  */
-public class XmlValidationException extends RuntimeException {
+public class XmlValidationException extends InvoiceProcessingException {
     
     public XmlValidationException(String message) {
-        super(message);
+        super(ErrorCode.XML_VALIDATION_ERROR, message, null);
     }
     
     public XmlValidationException(String message, Throwable cause) {
-        super(message, cause);
+        super(ErrorCode.XML_VALIDATION_ERROR, message, cause);
     }
 } 
\ No newline at end of file
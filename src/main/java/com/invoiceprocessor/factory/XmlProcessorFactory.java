@@ -2,39 +2,129 @@ package com.invoiceprocessor.factory;
 
 import com.invoiceprocessor.strategy.XmlProcessorStrategy;
 import com.invoiceprocessor.exception.DataExtractionException;
-import lombok.RequiredArgsConstructor;
+import com.invoiceprocessor.xml.RootElementSniffer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import javax.xml.namespace.QName;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
 
+/**
+ * Picks the processor strategy for a document.
+ * Dispatch tables keyed by bound class and by root element are built once at startup, with priority
+ * conflicts resolved there; strategies that do not declare a type are still asked through canHandle.
+ */
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class XmlProcessorFactory {
-    
+
+    private static final Comparator<XmlProcessorStrategy> BY_PRIORITY_DESC =
+        Comparator.comparingInt(XmlProcessorStrategy::getPriority).reversed();
+
     private final List<XmlProcessorStrategy> strategies;
-    
+    private final Map<Class<?>, XmlProcessorStrategy> strategiesByType;
+    private final Map<QName, XmlProcessorStrategy> strategiesByRoot;
+    private final List<XmlProcessorStrategy> dynamicStrategies;
+
+    /**
+     * Resolved strategy per concrete class, including subclasses of declared types - computed once per class
+     */
+    private final ClassValue<Optional<XmlProcessorStrategy>> typeDispatch = new ClassValue<>() {
+        @Override
+        protected Optional<XmlProcessorStrategy> computeValue(Class<?> type) {
+            return strategiesByType.entrySet().stream()
+                .filter(entry -> entry.getKey().isAssignableFrom(type))
+                .map(Map.Entry::getValue)
+                .min(BY_PRIORITY_DESC);
+        }
+    };
+
+    public XmlProcessorFactory(List<XmlProcessorStrategy> strategies) {
+        this.strategies = strategies.stream().sorted(BY_PRIORITY_DESC).toList();
+        this.strategiesByType = buildTable(this.strategies, XmlProcessorStrategy::getSupportedType);
+        this.strategiesByRoot = buildTable(this.strategies, XmlProcessorStrategy::getRootElement);
+        this.dynamicStrategies = this.strategies.stream()
+            .filter(strategy -> strategy.getSupportedType() == null)
+            .toList();
+        log.info("Processor dispatch: {} by type, {} by root element, {} by canHandle",
+            strategiesByType.size(), strategiesByRoot.size(), dynamicStrategies.size());
+    }
+
     /**
      * Get the appropriate processor strategy for the given XML object
      */
     public XmlProcessorStrategy getProcessor(Object xmlObject) {
         log.debug("Finding processor for XML object type: {}", xmlObject.getClass().getSimpleName());
-        
-        return strategies.stream()
-            .filter(strategy -> strategy.canHandle(xmlObject))
-            .max(Comparator.comparingInt(XmlProcessorStrategy::getPriority))
-            .orElseThrow(() -> new DataExtractionException(
-                "No processor found for XML type: " + xmlObject.getClass().getSimpleName()));
+
+        XmlProcessorStrategy byType = typeDispatch.get(xmlObject.getClass()).orElse(null);
+        // Dynamic strategies are sorted, so only those outranking the table match need asking
+        for (XmlProcessorStrategy strategy : dynamicStrategies) {
+            if (byType != null && strategy.getPriority() <= byType.getPriority()) {
+                break;
+            }
+            if (strategy.canHandle(xmlObject)) {
+                return strategy;
+            }
+        }
+        if (byType != null) {
+            return byType;
+        }
+        throw new DataExtractionException(
+            "No processor found for XML type: " + xmlObject.getClass().getSimpleName());
     }
-    
+
+    /**
+     * Pick the processor from the document's root element, before anything is unmarshalled.
+     * Only the prolog and the root start tag are read.
+     */
+    public XmlProcessorStrategy sniffProcessor(byte[] xmlBytes) {
+        QName root = RootElementSniffer.sniff(xmlBytes);
+        XmlProcessorStrategy strategy = strategiesByRoot.get(root);
+        if (strategy == null) {
+            throw new DataExtractionException("No processor found for root element: " + root);
+        }
+        return strategy;
+    }
+
     /**
      * Get all available strategies
      */
     public List<XmlProcessorStrategy> getAllStrategies() {
-        return strategies.stream()
-            .sorted(Comparator.comparingInt(XmlProcessorStrategy::getPriority).reversed())
-            .toList();
+        return strategies;
+    }
+
+    /**
+     * Map each declared key to its strategy. Strategies arrive sorted by priority, so the first one
+     * for a key wins; two strategies with the same key and priority are a configuration error.
+     */
+    private static <K> Map<K, XmlProcessorStrategy> buildTable(
+            List<XmlProcessorStrategy> sortedStrategies, Function<XmlProcessorStrategy, K> key) {
+        Map<K, XmlProcessorStrategy> table = new HashMap<>();
+        List<String> shadowed = new ArrayList<>();
+        for (XmlProcessorStrategy strategy : sortedStrategies) {
+            K value = key.apply(strategy);
+            if (value == null) {
+                continue;
+            }
+            XmlProcessorStrategy winner = table.putIfAbsent(value, strategy);
+            if (winner == null) {
+                continue;
+            }
+            if (winner.getPriority() == strategy.getPriority()) {
+                throw new IllegalStateException("Strategies " + winner.getStrategyName() + " and "
+                    + strategy.getStrategyName() + " both handle " + value + " with priority " + strategy.getPriority());
+            }
+            shadowed.add(strategy.getStrategyName() + " (by " + winner.getStrategyName() + " for " + value + ")");
+        }
+        if (!shadowed.isEmpty()) {
+            log.info("Lower priority strategies shadowed: {}", shadowed);
+        }
+        return Map.copyOf(table);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,13 @@
+package com.invoiceprocessor.idempotency;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The request that claimed an Idempotency-Key.
+ * fingerprint identifies its payload; response completes with the response sent to the first caller,
+ * or exceptionally with the exception it failed with.
+ */
+public record IdempotencyRecord(String fingerprint, CompletableFuture<ResponseEntity<?>> response) {
+}
@@ -0,0 +1,191 @@
+package com.invoiceprocessor.idempotency;
+
+import com.invoiceprocessor.dedup.DeduplicationCache;
+import com.invoiceprocessor.exception.Base64DecodingException;
+import com.invoiceprocessor.exception.DataExtractionException;
+import com.invoiceprocessor.exception.IdempotencyKeyConflictException;
+import com.invoiceprocessor.exception.InvalidIdempotencyKeyException;
+import com.invoiceprocessor.exception.XmlUnmarshallingException;
+import com.invoiceprocessor.exception.XmlValidationException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs a request at most once per Idempotency-Key.
+ * The first request with a key runs and its response is kept for the store's TTL; a retry arriving while
+ * it runs waits for the same response instead of running the pipeline again. Failures caused by the
+ * document itself are kept too and rethrown to retries, so GlobalExceptionHandler answers them with the
+ * same ErrorResponse; transient failures (backpressure, database) release the key so a retry runs again.
+ * Keys are shared by /invoices and /invoices/stream, so both fingerprint the decoded document.
+ */
+@Component
+@Slf4j
+public class IdempotencyService {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    public static final String REQUEST_COUNTER = "invoice.idempotency.requests";
+
+    static final int MAX_KEY_LENGTH = 255;
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    /**
+     * Failures that repeat for the same payload - worth answering from the store
+     */
+    private static final Set<Class<? extends RuntimeException>> DETERMINISTIC_FAILURES = Set.of(
+        Base64DecodingException.class,
+        XmlValidationException.class,
+        XmlUnmarshallingException.class,
+        DataExtractionException.class);
+
+    private final IdempotencyStore store;
+    private final long waitTimeoutMillis;
+    private final Counter executed;
+    private final Counter joined;
+    private final Counter replayed;
+
+    public IdempotencyService(
+            IdempotencyStore store,
+            MeterRegistry meterRegistry,
+            @Value("${invoice.idempotency.wait-timeout-ms:30000}") long waitTimeoutMillis) {
+        this.store = store;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.executed = requestCounter(meterRegistry, "executed");
+        this.joined = requestCounter(meterRegistry, "joined");
+        this.replayed = requestCounter(meterRegistry, "replayed");
+    }
+
+    /**
+     * Run the action unless a request with the same key already did or is doing so.
+     * Without a key the action simply runs and the payload is not fingerprinted.
+     *
+     * @param payloadFingerprint {@link #fingerprint(byte[])} of the document, so that reusing a key for
+     *                           another document is a conflict
+     */
+    public <T> ResponseEntity<T> execute(String key, Supplier<String> payloadFingerprint,
+                                         Supplier<ResponseEntity<T>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException(
+                IDEMPOTENCY_KEY_HEADER + " must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String fingerprint = payloadFingerprint.get();
+        CompletableFuture<ResponseEntity<?>> response = new CompletableFuture<>();
+        IdempotencyRecord existing = store.putIfAbsent(key, new IdempotencyRecord(fingerprint, response));
+        if (existing != null) {
+            return replay(key, fingerprint, existing);
+        }
+
+        executed.increment();
+        try {
+            ResponseEntity<T> result = action.get();
+            response.complete(result);
+            store.markCompleted(key);
+            return result;
+        } catch (Throwable e) {
+            // Errors too: a record left in flight is never evicted and would hold the key until restart
+            response.completeExceptionally(e);
+            if (DETERMINISTIC_FAILURES.contains(e.getClass())) {
+                store.markCompleted(key);
+            } else {
+                store.remove(key);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Fingerprint of a decoded document
+     */
+    public static String fingerprint(byte[] xmlBytes) {
+        return DeduplicationCache.hash(xmlBytes);
+    }
+
+    /**
+     * Fingerprint of a Base64 payload, equal to the fingerprint of the decoded document. Decoded while
+     * hashing, without holding the document. Text that is not valid Base64 is fingerprinted as it is;
+     * such a request fails the same way on every retry.
+     */
+    public static String fingerprintBase64(String base64xml) {
+        byte[] text = base64xml.getBytes(StandardCharsets.US_ASCII);
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every JRE is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = new DigestInputStream(Base64.getDecoder().wrap(new ByteArrayInputStream(text)), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+            return HEX.formatHex(digest.digest());
+        } catch (IOException e) {
+            return DeduplicationCache.hash(text);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> ResponseEntity<T> replay(String key, String fingerprint, IdempotencyRecord existing) {
+        if (!Objects.equals(existing.fingerprint(), fingerprint)) {
+            throw new IdempotencyKeyConflictException(
+                IDEMPOTENCY_KEY_HEADER + " " + key + " was already used for a different payload");
+        }
+
+        CompletableFuture<ResponseEntity<?>> response = existing.response();
+        (response.isDone() ? replayed : joined).increment();
+        ResponseEntity<?> result;
+        try {
+            result = response.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IdempotencyKeyConflictException(
+                "Request with " + IDEMPOTENCY_KEY_HEADER + " " + key + " is still being processed, retry later");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyConflictException(
+                "Interrupted while waiting for request with " + IDEMPOTENCY_KEY_HEADER + " " + key);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException failure) {
+                throw failure;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+
+        log.info("Answering request with {} {} from the idempotency store", IDEMPOTENCY_KEY_HEADER, key);
+        return (ResponseEntity<T>) ResponseEntity.status(result.getStatusCode())
+            .headers(result.getHeaders())
+            .header(REPLAYED_HEADER, "true")
+            .body(result.getBody());
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder(REQUEST_COUNTER)
+            .description("Requests carrying an Idempotency-Key, by whether they ran the pipeline")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,24 @@
+package com.invoiceprocessor.idempotency;
+
+/**
+ * Where Idempotency-Key records are kept.
+ * Records hold the live future of in-flight requests, so implementations are local to the instance;
+ * {@link InMemoryIdempotencyStore} is used unless another bean is declared.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Claim the key with the given record, or return the record that already holds it
+     */
+    IdempotencyRecord putIfAbsent(String key, IdempotencyRecord record);
+
+    /**
+     * The request holding the key finished; its record is kept until the TTL expires
+     */
+    void markCompleted(String key);
+
+    /**
+     * Release the key so the next request with it runs again
+     */
+    void remove(String key);
+}
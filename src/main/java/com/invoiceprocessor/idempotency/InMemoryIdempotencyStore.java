@@ -0,0 +1,101 @@
+package com.invoiceprocessor.idempotency;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Idempotency records in a ConcurrentHashMap.
+ * Completed records expire after the TTL; in-flight ones never do. Expired records are swept at most
+ * once per sweep interval by whichever caller claims a key first after it, and when the map holds more
+ * than max-entries the completed records closest to expiry are dropped early.
+ */
+@Component
+@Slf4j
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private static final long IN_FLIGHT = Long.MAX_VALUE;
+
+    private static final class Entry {
+        final IdempotencyRecord record;
+        volatile long expiresAt = IN_FLIGHT;
+
+        Entry(IdempotencyRecord record) {
+            this.record = record;
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final long sweepIntervalMillis;
+    private final LongSupplier clock;
+    private final AtomicLong nextSweep = new AtomicLong();
+
+    @Autowired
+    public InMemoryIdempotencyStore(
+            @Value("${invoice.idempotency.ttl-ms:86400000}") long ttlMillis,
+            @Value("${invoice.idempotency.max-entries:100000}") int maxEntries) {
+        this(ttlMillis, maxEntries, System::currentTimeMillis);
+    }
+
+    InMemoryIdempotencyStore(long ttlMillis, int maxEntries, LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.sweepIntervalMillis = Math.min(ttlMillis, 60_000);
+        this.clock = clock;
+    }
+
+    @Override
+    public IdempotencyRecord putIfAbsent(String key, IdempotencyRecord record) {
+        long now = clock.getAsLong();
+        sweepIfDue(now);
+        Entry claimed = new Entry(record);
+        Entry current = entries.compute(key, (k, existing) ->
+            existing == null || existing.expiresAt <= now ? claimed : existing);
+        return current == claimed ? null : current.record;
+    }
+
+    @Override
+    public void markCompleted(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.expiresAt = clock.getAsLong() + ttlMillis;
+        }
+    }
+
+    @Override
+    public void remove(String key) {
+        entries.remove(key);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void sweepIfDue(long now) {
+        long due = nextSweep.get();
+        if (now < due || !nextSweep.compareAndSet(due, now + sweepIntervalMillis)) {
+            return;
+        }
+        entries.values().removeIf(entry -> entry.expiresAt <= now);
+
+        int excess = entries.size() - maxEntries;
+        if (excess > 0) {
+            entries.entrySet().stream()
+                .filter(entry -> entry.getValue().expiresAt != IN_FLIGHT)
+                .sorted(Comparator.comparingLong(entry -> entry.getValue().expiresAt))
+                .limit(excess)
+                .toList()
+                .forEach(entry -> entries.remove(entry.getKey(), entry.getValue()));
+            log.warn("Idempotency store over {} entries, dropped up to {} completed records early", maxEntries, excess);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.invoiceprocessor.ingest;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.invoiceprocessor.dto.InvoiceRequest;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Hands out the Base64 documents of a batch body one at a time, reading the next InvoiceRequest
+ * only when it is asked for. The body is never held as a whole; a syntax error surfaces from
+ * hasNext as HttpMessageNotReadableException naming the document it was found in.
+ */
+public class BatchDocumentReader implements Iterator<String>, Closeable {
+
+    private final JsonParser parser;
+    private final ObjectReader requestReader;
+    private final HttpInputMessage inputMessage;
+    private final boolean array;
+    private final String format;
+
+    private InvoiceRequest next;
+    private boolean finished;
+    private int documentsRead;
+
+    BatchDocumentReader(JsonParser parser, ObjectReader requestReader, HttpInputMessage inputMessage, boolean array) {
+        this.parser = parser;
+        this.requestReader = requestReader;
+        this.inputMessage = inputMessage;
+        this.array = array;
+        this.format = array ? "JSON" : "NDJSON";
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            advance();
+        }
+        return next != null;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String document = next.getBase64xml();
+        next = null;
+        documentsRead++;
+        return document;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    private void advance() {
+        try {
+            JsonToken token = parser.nextToken();
+            if (token == null || (array && token == JsonToken.END_ARRAY)) {
+                finished = true;
+                return;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new HttpMessageNotReadableException(
+                    "Expected a JSON object in request body at document " + (documentsRead + 1), inputMessage);
+            }
+            next = requestReader.readValue(parser);
+        } catch (IOException e) {
+            throw new HttpMessageNotReadableException(
+                "Invalid " + format + " format in request body at document " + (documentsRead + 1), e, inputMessage);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.invoiceprocessor.ingest;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.invoiceprocessor.dto.InvoiceRequest;
+import com.invoiceprocessor.exception.Base64DecodingException;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Reads an {@code InvoiceRequest} JSON body as a token stream and decodes the
+ * {@code base64xml} field while it is being read.
+ * The Base64 text is never bound to a String, so a request costs the decoded bytes
+ * plus the parser's fixed-size buffers instead of roughly three copies of the payload.
+ */
+@Component
+public class StreamingInvoiceRequestReader {
+
+    public static final String BASE64_FIELD = "base64xml";
+
+    private static final int MAX_INITIAL_CAPACITY = 4 * 1024 * 1024;
+
+    // Like java.util.Base64.getDecoder(), accept input with or without trailing padding
+    private static final Base64Variant BASE64 = Base64Variants.MIME_NO_LINEFEEDS
+        .withReadPadding(Base64Variant.PaddingReadBehaviour.PADDING_ALLOWED);
+
+    private final JsonFactory jsonFactory;
+    private final ObjectReader requestReader;
+
+    public StreamingInvoiceRequestReader(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+        this.requestReader = objectMapper.readerFor(InvoiceRequest.class);
+    }
+
+    /**
+     * Open a JSON array of InvoiceRequest objects for reading one document at a time
+     */
+    public BatchDocumentReader readJsonArrayDocuments(HttpInputMessage inputMessage) {
+        JsonParser parser = null;
+        try {
+            parser = jsonFactory.createParser(inputMessage.getBody());
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                parser.close();
+                throw new HttpMessageNotReadableException("Request body must be a JSON array", inputMessage);
+            }
+            return new BatchDocumentReader(parser, requestReader, inputMessage, true);
+        } catch (IOException e) {
+            closeQuietly(parser);
+            throw new HttpMessageNotReadableException("Invalid JSON format in request body", e, inputMessage);
+        }
+    }
+
+    /**
+     * Open a newline-delimited JSON stream of InvoiceRequest objects for reading one document at a time
+     */
+    public BatchDocumentReader readNdjsonDocuments(HttpInputMessage inputMessage) {
+        try {
+            return new BatchDocumentReader(jsonFactory.createParser(inputMessage.getBody()), requestReader, inputMessage, false);
+        } catch (IOException e) {
+            throw new HttpMessageNotReadableException("Invalid NDJSON format in request body", e, inputMessage);
+        }
+    }
+
+    /**
+     * Decode the base64xml field of the JSON body into raw XML bytes
+     */
+    public byte[] readXml(HttpInputMessage inputMessage, long contentLength) {
+        try (JsonParser parser = jsonFactory.createParser(inputMessage.getBody())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new HttpMessageNotReadableException("Request body must be a JSON object", inputMessage);
+            }
+            byte[] xmlBytes = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (BASE64_FIELD.equals(fieldName) && value == JsonToken.VALUE_STRING) {
+                    xmlBytes = decode(parser, contentLength);
+                } else if (BASE64_FIELD.equals(fieldName) && value != JsonToken.VALUE_NULL) {
+                    throw new Base64DecodingException("Base64 string must be a JSON string");
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (xmlBytes == null) {
+                throw new Base64DecodingException("Base64 string cannot be null");
+            }
+            if (xmlBytes.length == 0) {
+                throw new Base64DecodingException("Base64 string cannot be empty");
+            }
+            return xmlBytes;
+        } catch (IOException e) {
+            throw new HttpMessageNotReadableException("Invalid JSON format in request body", e, inputMessage);
+        }
+    }
+
+    private static void closeQuietly(JsonParser parser) {
+        if (parser != null) {
+            try {
+                parser.close();
+            } catch (IOException ignored) {
+                // The request is failing already
+            }
+        }
+    }
+
+    private byte[] decode(JsonParser parser, long contentLength) {
+        // Decoded size is at most 3/4 of the body, which also bounds the initial buffer
+        int initialCapacity = (int) Math.min(Math.max(contentLength, 0L) / 4 * 3, MAX_INITIAL_CAPACITY);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(initialCapacity, 256));
+        try {
+            parser.readBinaryValue(BASE64, out);
+            return out.toByteArray();
+        } catch (IOException | IllegalArgumentException e) {
+            throw new Base64DecodingException("Invalid Base64 encoding", e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.invoiceprocessor.jfr;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Admin endpoint toggling the flight recording: GET shows the state, POST starts a recording
+ * and DELETE stops it and dumps it to a file.
+ */
+@Component
+@Endpoint(id = "flightrecording")
+@RequiredArgsConstructor
+public class FlightRecordingEndpoint {
+
+    private final FlightRecordingService flightRecordingService;
+
+    @ReadOperation
+    public FlightRecordingStatus status() {
+        return flightRecordingService.getStatus();
+    }
+
+    @WriteOperation
+    public FlightRecordingStatus start(@Nullable String settings, @Nullable Long durationSeconds,
+                                       @Nullable Long maxAgeSeconds) {
+        try {
+            return flightRecordingService.start(settings,
+                durationSeconds != null ? Duration.ofSeconds(durationSeconds) : null,
+                maxAgeSeconds != null ? Duration.ofSeconds(maxAgeSeconds) : null);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+    }
+
+    @DeleteOperation
+    public FlightRecordingStatus stop() {
+        return flightRecordingService.stop();
+    }
+}
@@ -0,0 +1,16 @@
+package com.invoiceprocessor.jfr;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * State of the on-demand flight recording.
+ * lastDump is the file written when the previous recording stopped.
+ */
+public record FlightRecordingStatus(
+        boolean recording,
+        String settings,
+        Instant startedAt,
+        Duration duration,
+        String lastDump) {
+}
@@ -0,0 +1,41 @@
+package com.invoiceprocessor.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+
+/**
+ * A whole document, from entering the pipeline until it was saved or failed
+ */
+@Name("com.invoiceprocessor.InvoiceProcessed")
+@Label("Invoice Processed")
+@Category("Invoice Processing")
+@Description("Processing of a single invoice document")
+@StackTrace(false)
+@Setter
+public class InvoiceProcessedEvent extends Event {
+
+    @Label("Pipeline")
+    private String pipeline;
+
+    @Label("Payload Size")
+    @DataAmount(DataAmount.BYTES)
+    private long payloadBytes;
+
+    @Label("Strategy")
+    private String strategy;
+
+    @Label("Outcome")
+    private String outcome;
+
+    @Label("Failed Stage")
+    private String failedStage;
+
+    @Label("Exception")
+    private String exception;
+}
@@ -0,0 +1,42 @@
+package com.invoiceprocessor.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+
+/**
+ * One pipeline stage of one document: decode, validation, unmarshal, extraction or save.
+ * Begun and ended around the stage, committed once the document is done and its processor type known.
+ */
+@Name("com.invoiceprocessor.InvoiceStage")
+@Label("Invoice Stage")
+@Category("Invoice Processing")
+@Description("One stage of processing a single invoice document")
+@StackTrace(false)
+@Setter
+public class InvoiceStageEvent extends Event {
+
+    @Label("Pipeline")
+    private String pipeline;
+
+    @Label("Stage")
+    private String stage;
+
+    @Label("Payload Size")
+    @DataAmount(DataAmount.BYTES)
+    private long payloadBytes;
+
+    @Label("Strategy")
+    private String strategy;
+
+    @Label("Outcome")
+    private String outcome;
+
+    @Label("Exception")
+    private String exception;
+}
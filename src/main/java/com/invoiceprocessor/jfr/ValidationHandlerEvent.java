@@ -0,0 +1,35 @@
+package com.invoiceprocessor.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+
+/**
+ * One validation handler's own check, excluding the handlers after it in the chain
+ */
+@Name("com.invoiceprocessor.ValidationHandler")
+@Label("Validation Handler")
+@Category("Invoice Processing")
+@Description("A single handler of the validation chain checking one document")
+@StackTrace(false)
+@Setter
+public class ValidationHandlerEvent extends Event {
+
+    @Label("Handler")
+    private String handler;
+
+    @Label("Payload Size")
+    @DataAmount(DataAmount.BYTES)
+    private long payloadBytes;
+
+    @Label("Outcome")
+    private String outcome;
+
+    @Label("Exception")
+    private String exception;
+}
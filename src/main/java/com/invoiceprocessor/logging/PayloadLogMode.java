@@ -0,0 +1,19 @@
+package com.invoiceprocessor.logging;
+
+/**
+ * How much of a sampled document PayloadLogger writes
+ */
+public enum PayloadLogMode {
+    /**
+     * Never log payloads
+     */
+    OFF,
+    /**
+     * Size and SHA-256, the same value as the invoice's content_hash column
+     */
+    HASH,
+    /**
+     * Size and the first bytes of the document
+     */
+    PREVIEW
+}
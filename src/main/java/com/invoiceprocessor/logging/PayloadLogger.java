@@ -0,0 +1,62 @@
+package com.invoiceprocessor.logging;
+
+import com.invoiceprocessor.dedup.DeduplicationCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Logs decoded documents without putting whole payloads in the log.
+ * Only a sampled fraction of documents is logged, as a hash or a short preview, and only when the
+ * {@value #LOGGER_NAME} logger is at DEBUG - otherwise the check costs one level test and nothing is built.
+ */
+@Component
+public class PayloadLogger {
+
+    public static final String LOGGER_NAME = "com.invoiceprocessor.payload";
+
+    private static final Logger log = LoggerFactory.getLogger(LOGGER_NAME);
+
+    private final PayloadLogMode mode;
+    private final int previewBytes;
+    private final double sampleRate;
+
+    public PayloadLogger(
+            @Value("${invoice.logging.payload.mode:HASH}") PayloadLogMode mode,
+            @Value("${invoice.logging.payload.preview-bytes:256}") int previewBytes,
+            @Value("${invoice.logging.payload.sample-rate:0.01}") double sampleRate) {
+        this.mode = mode;
+        this.previewBytes = previewBytes;
+        this.sampleRate = sampleRate;
+    }
+
+    public void log(byte[] xmlBytes) {
+        if (mode == PayloadLogMode.OFF || !log.isDebugEnabled() || !sampled()) {
+            return;
+        }
+        if (mode == PayloadLogMode.HASH) {
+            log.debug("Payload {} bytes, sha256 {}", xmlBytes.length, DeduplicationCache.hash(xmlBytes));
+        } else {
+            log.debug("Payload {} bytes, preview: {}", xmlBytes.length, preview(xmlBytes, previewBytes));
+        }
+    }
+
+    boolean sampled() {
+        return sampleRate >= 1.0 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    /**
+     * The first bytes of the document on a single line, so a payload cannot forge log lines
+     */
+    static String preview(byte[] xmlBytes, int maxBytes) {
+        int length = Math.min(xmlBytes.length, maxBytes);
+        String preview = new String(xmlBytes, 0, length, StandardCharsets.UTF_8)
+            .replace('\r', ' ')
+            .replace('\n', ' ');
+        return length < xmlBytes.length ? preview + "..." : preview;
+    }
+}
@@ -0,0 +1,57 @@
+package com.invoiceprocessor.metrics;
+
+import com.invoiceprocessor.observer.ObserverEventBus;
+import com.invoiceprocessor.observer.ObserverMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes the delivery counters of the asynchronous observers, tagged by observer.
+ * The set of observers is fixed once the bus is built, so each meter reads its observer by position.
+ */
+@Component
+public class ObserverEventBusMetrics implements MeterBinder {
+
+    private final ObserverEventBus eventBus;
+
+    public ObserverEventBusMetrics(ObserverEventBus eventBus) {
+        this.eventBus = eventBus;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        List<ObserverMetrics> observers = eventBus.getMetrics();
+        for (int i = 0; i < observers.size(); i++) {
+            int index = i;
+            String observer = observers.get(i).observer();
+            counter(registry, "invoice.events.published", observer, index, ObserverMetrics::published);
+            counter(registry, "invoice.events.delivered", observer, index, ObserverMetrics::delivered);
+            counter(registry, "invoice.events.dropped", observer, index, ObserverMetrics::dropped);
+            counter(registry, "invoice.events.failed.batches", observer, index, ObserverMetrics::failedBatches);
+            Gauge.builder("invoice.events.lag", eventBus, bus -> bus.getMetrics().get(index).lag())
+                .description("Events published but not yet delivered")
+                .tag("observer", observer)
+                .register(registry);
+            TimeGauge.builder("invoice.events.delivery.delay.max", eventBus, TimeUnit.MILLISECONDS,
+                    bus -> bus.getMetrics().get(index).maxDeliveryDelayMillis())
+                .description("Largest age of an event when it was handed to the observer")
+                .tag("observer", observer)
+                .register(registry);
+        }
+    }
+
+    private void counter(MeterRegistry registry, String name, String observer, int index,
+                         ToDoubleFunction<ObserverMetrics> value) {
+        FunctionCounter.builder(name, eventBus, bus -> value.applyAsDouble(bus.getMetrics().get(index)))
+            .tag("observer", observer)
+            .register(registry);
+    }
+}
@@ -0,0 +1,123 @@
+package com.invoiceprocessor.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-stage latency and payload size of processed documents, plus their flight recorder events.
+ * <ul>
+ *   <li>invoice.pipeline.stage - timer per stage, tagged pipeline, stage, processor, outcome and exception</li>
+ *   <li>invoice.pipeline.duration - whole document, same tags without stage</li>
+ *   <li>invoice.payload.size - decoded XML bytes, tagged pipeline, processor and outcome</li>
+ * </ul>
+ * On failure the stage that threw carries outcome=failure and the exception class; stages that
+ * completed before it are recorded as successes. Meters are cached per tag combination, so recording
+ * does not build meter IDs on the request path.
+ */
+@Component
+public class PipelineMetrics {
+
+    public static final String STAGE_TIMER = "invoice.pipeline.stage";
+    public static final String DURATION_TIMER = "invoice.pipeline.duration";
+    public static final String PAYLOAD_SUMMARY = "invoice.payload.size";
+
+    static final String UNKNOWN_PROCESSOR = "unknown";
+    static final String NO_EXCEPTION = "none";
+
+    private record MeterKey(String pipeline, PipelineStage stage, String processor, String exception) {
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<MeterKey, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<MeterKey, DistributionSummary> payloadSummaries = new ConcurrentHashMap<>();
+
+    public PipelineMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Metrics for code outside the Spring context, recorded in the global registry Spring Boot also publishes
+     */
+    public static PipelineMetrics global() {
+        return GlobalHolder.INSTANCE;
+    }
+
+    public StageTimings start(String pipeline) {
+        return new StageTimings(pipeline);
+    }
+
+    public void recordSuccess(StageTimings timings) {
+        record(timings, null);
+    }
+
+    public void recordFailure(StageTimings timings, Throwable failure) {
+        record(timings, failure);
+    }
+
+    private void record(StageTimings timings, Throwable failure) {
+        String pipeline = timings.getPipeline();
+        String processor = timings.getProcessorType() != null ? timings.getProcessorType() : UNKNOWN_PROCESSOR;
+        String exception = failure != null ? failure.getClass().getSimpleName() : NO_EXCEPTION;
+        PipelineStage failedStage = timings.getFailedStage();
+
+        for (PipelineStage stage : PipelineStage.values()) {
+            long nanos = timings.getNanos(stage);
+            if (nanos < 0) {
+                continue;
+            }
+            String stageException = stage == failedStage ? exception : NO_EXCEPTION;
+            timer(new MeterKey(pipeline, stage, processor, stageException)).record(nanos, TimeUnit.NANOSECONDS);
+        }
+        timer(new MeterKey(pipeline, null, processor, exception)).record(timings.getTotalNanos(), TimeUnit.NANOSECONDS);
+
+        if (timings.getPayloadBytes() >= 0) {
+            payloadSummary(new MeterKey(pipeline, null, processor, exception)).record(timings.getPayloadBytes());
+        }
+        timings.commitEvents(processor, exception);
+    }
+
+    private Timer timer(MeterKey key) {
+        return timers.computeIfAbsent(key, k -> {
+            Timer.Builder builder = Timer.builder(k.stage() != null ? STAGE_TIMER : DURATION_TIMER)
+                .tag("pipeline", k.pipeline())
+                .tag("processor", k.processor())
+                .tag("outcome", outcome(k.exception()))
+                .tag("exception", k.exception())
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(100_000))
+                .maximumExpectedValue(Duration.ofSeconds(30));
+            if (k.stage() != null) {
+                builder.tag("stage", k.stage().getTagValue());
+            }
+            return builder.register(meterRegistry);
+        });
+    }
+
+    private DistributionSummary payloadSummary(MeterKey key) {
+        return payloadSummaries.computeIfAbsent(key, k -> DistributionSummary.builder(PAYLOAD_SUMMARY)
+            .baseUnit("bytes")
+            .tag("pipeline", k.pipeline())
+            .tag("processor", k.processor())
+            .tag("outcome", outcome(k.exception()))
+            .publishPercentileHistogram()
+            .minimumExpectedValue(256.0)
+            .maximumExpectedValue(64.0 * 1024 * 1024)
+            .register(meterRegistry));
+    }
+
+    static String outcome(String exception) {
+        return NO_EXCEPTION.equals(exception) ? "success" : "failure";
+    }
+
+    private static final class GlobalHolder {
+        private static final PipelineMetrics INSTANCE = new PipelineMetrics(Metrics.globalRegistry);
+    }
+}
@@ -0,0 +1,32 @@
+package com.invoiceprocessor.metrics;
+
+/**
+ * Timed steps of invoice processing, used as the stage tag of the stage timer
+ */
+public enum PipelineStage {
+    DECODE("decode"),
+    VALIDATION("validation"),
+    /**
+     * Includes XSD validation when it is fused into the unmarshal
+     */
+    UNMARSHAL("unmarshal"),
+    /**
+     * Strategy extraction from the JAXB graph, or the whole streaming pass with STAX extraction
+     */
+    EXTRACTION("extraction"),
+    /**
+     * Compressing and appending the original document to the archive
+     */
+    ARCHIVE("archive"),
+    SAVE("save");
+
+    private final String tagValue;
+
+    PipelineStage(String tagValue) {
+        this.tagValue = tagValue;
+    }
+
+    public String getTagValue() {
+        return tagValue;
+    }
+}
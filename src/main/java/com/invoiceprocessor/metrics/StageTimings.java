@@ -0,0 +1,149 @@
+package com.invoiceprocessor.metrics;
+
+import com.invoiceprocessor.jfr.InvoiceProcessedEvent;
+import com.invoiceprocessor.jfr.InvoiceStageEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Stage durations of one document, collected while it moves through the pipeline.
+ * The processor type is only known after extraction, so nothing is recorded until
+ * {@link PipelineMetrics} is handed the finished timings. One instance per document, not thread-safe.
+ * <p>
+ * While a flight recording is running, each stage is also captured as an {@link InvoiceStageEvent}
+ * and the whole document as an {@link InvoiceProcessedEvent}; otherwise no events are created.
+ */
+public final class StageTimings {
+
+    private static final long NOT_RUN = -1;
+
+    private final String pipeline;
+    private final long startedAt = System.nanoTime();
+    private final long[] nanos = new long[PipelineStage.values().length];
+    private final InvoiceProcessedEvent documentEvent;
+    private List<InvoiceStageEvent> stageEvents;
+    private PipelineStage failedStage;
+    private String processorType;
+    private long payloadBytes = NOT_RUN;
+
+    StageTimings(String pipeline) {
+        this.pipeline = pipeline;
+        Arrays.fill(nanos, NOT_RUN);
+        InvoiceProcessedEvent event = new InvoiceProcessedEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            documentEvent = event;
+        } else {
+            documentEvent = null;
+        }
+    }
+
+    public <T> T time(PipelineStage stage, Supplier<T> action) {
+        InvoiceStageEvent event = beginStageEvent(stage);
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            T result = action.get();
+            completed = true;
+            return result;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            int slot = stage.ordinal();
+            nanos[slot] = nanos[slot] == NOT_RUN ? elapsed : nanos[slot] + elapsed;
+            if (!completed) {
+                failedStage = stage;
+            }
+            if (event != null) {
+                event.end();
+            }
+        }
+    }
+
+    public void time(PipelineStage stage, Runnable action) {
+        time(stage, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public void setProcessorType(String processorType) {
+        this.processorType = processorType;
+    }
+
+    public void setPayloadBytes(long payloadBytes) {
+        this.payloadBytes = payloadBytes;
+    }
+
+    String getPipeline() {
+        return pipeline;
+    }
+
+    long getTotalNanos() {
+        return System.nanoTime() - startedAt;
+    }
+
+    /**
+     * Nanoseconds spent in the stage, or -1 when it never ran
+     */
+    long getNanos(PipelineStage stage) {
+        return nanos[stage.ordinal()];
+    }
+
+    /**
+     * The stage that threw, or null when processing failed between stages or did not fail
+     */
+    PipelineStage getFailedStage() {
+        return failedStage;
+    }
+
+    String getProcessorType() {
+        return processorType;
+    }
+
+    long getPayloadBytes() {
+        return payloadBytes;
+    }
+
+    /**
+     * Fill in what was learned after the stages ran and commit the flight recorder events
+     */
+    void commitEvents(String processor, String exception) {
+        if (stageEvents != null) {
+            for (InvoiceStageEvent event : stageEvents) {
+                boolean failed = failedStage != null && event == stageEvents.get(stageEvents.size() - 1);
+                event.setPayloadBytes(Math.max(payloadBytes, 0));
+                event.setStrategy(processor);
+                event.setOutcome(PipelineMetrics.outcome(failed ? exception : PipelineMetrics.NO_EXCEPTION));
+                event.setException(failed ? exception : null);
+                event.commit();
+            }
+        }
+        if (documentEvent != null && documentEvent.shouldCommit()) {
+            documentEvent.setPipeline(pipeline);
+            documentEvent.setPayloadBytes(Math.max(payloadBytes, 0));
+            documentEvent.setStrategy(processor);
+            documentEvent.setOutcome(PipelineMetrics.outcome(exception));
+            documentEvent.setFailedStage(failedStage != null ? failedStage.getTagValue() : null);
+            documentEvent.setException(PipelineMetrics.NO_EXCEPTION.equals(exception) ? null : exception);
+            documentEvent.commit();
+        }
+    }
+
+    private InvoiceStageEvent beginStageEvent(PipelineStage stage) {
+        InvoiceStageEvent event = new InvoiceStageEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.setPipeline(pipeline);
+        event.setStage(stage.getTagValue());
+        if (stageEvents == null) {
+            stageEvents = new ArrayList<>(PipelineStage.values().length);
+        }
+        stageEvents.add(event);
+        event.begin();
+        return event;
+    }
+}
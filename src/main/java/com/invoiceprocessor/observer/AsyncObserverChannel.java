@@ -0,0 +1,131 @@
+package com.invoiceprocessor.observer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ring buffer and delivery thread of one asynchronous observer.
+ * Publishing never takes a lock: it claims a slot and, if the consumer is parked, unparks it.
+ * The consumer drains whatever has accumulated and hands it over as one batch.
+ */
+@Slf4j
+final class AsyncObserverChannel {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long BLOCK_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final InvoiceProcessingObserver observer;
+    private final String name;
+    private final OverflowPolicy overflowPolicy;
+    private final MpscRingBuffer<ProcessingEvent> buffer;
+    private final int maxBatchSize;
+    private final Thread consumer;
+
+    private volatile boolean running;
+    private volatile boolean consumerParked;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder blockedPublishes = new LongAdder();
+    // Written by the consumer thread only
+    private volatile long delivered;
+    private volatile long failedBatches;
+    private volatile long lastDeliveryDelayNanos;
+    private volatile long maxDeliveryDelayNanos;
+
+    AsyncObserverChannel(InvoiceProcessingObserver observer, int capacity, int maxBatchSize) {
+        this.observer = observer;
+        this.name = observer.getClass().getSimpleName();
+        this.overflowPolicy = observer.getOverflowPolicy();
+        this.buffer = new MpscRingBuffer<>(capacity);
+        this.maxBatchSize = maxBatchSize;
+        this.consumer = Thread.ofPlatform().daemon().name("observer-" + name).unstarted(this::run);
+    }
+
+    void start() {
+        running = true;
+        consumer.start();
+    }
+
+    /**
+     * Stop the channel: blocked publishers give up and the consumer delivers what is left, up to the timeout
+     */
+    void stop(long timeoutMillis) throws InterruptedException {
+        running = false;
+        LockSupport.unpark(consumer);
+        consumer.join(timeoutMillis);
+        if (!buffer.isEmpty()) {
+            log.warn("Observer {} stopped with {} undelivered events", name, buffer.size());
+        }
+    }
+
+    void publish(ProcessingEvent event) {
+        if (!buffer.offer(event)) {
+            if (overflowPolicy == OverflowPolicy.DROP || !running) {
+                dropped.increment();
+                return;
+            }
+            blockedPublishes.increment();
+            do {
+                if (!running) {
+                    dropped.increment();
+                    return;
+                }
+                LockSupport.unpark(consumer);
+                LockSupport.parkNanos(BLOCK_BACKOFF_NANOS);
+            } while (!buffer.offer(event));
+        }
+        published.increment();
+        if (consumerParked) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    ObserverMetrics metrics() {
+        long publishedCount = published.sum();
+        return new ObserverMetrics(name, DeliveryMode.ASYNC, overflowPolicy, buffer.capacity(),
+            publishedCount, delivered, dropped.sum(), blockedPublishes.sum(), failedBatches,
+            Math.max(0, publishedCount - delivered),
+            TimeUnit.NANOSECONDS.toMillis(lastDeliveryDelayNanos),
+            TimeUnit.NANOSECONDS.toMillis(maxDeliveryDelayNanos));
+    }
+
+    private void run() {
+        List<ProcessingEvent> batch = new ArrayList<>(maxBatchSize);
+        List<ProcessingEvent> view = Collections.unmodifiableList(batch);
+        while (running || !buffer.isEmpty()) {
+            if (buffer.drainTo(batch, maxBatchSize) == 0) {
+                consumerParked = true;
+                // Re-check after announcing the park so a publish in between is not missed
+                if (running && buffer.isEmpty()) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+                consumerParked = false;
+                continue;
+            }
+            deliver(view);
+            batch.clear();
+        }
+    }
+
+    private void deliver(List<ProcessingEvent> batch) {
+        long delay = System.nanoTime() - batch.get(0).publishedAtNanos();
+        lastDeliveryDelayNanos = delay;
+        if (delay > maxDeliveryDelayNanos) {
+            maxDeliveryDelayNanos = delay;
+        }
+        try {
+            observer.onEvents(batch);
+        } catch (RuntimeException e) {
+            failedBatches++;
+            log.warn("Observer {} failed on a batch of {} events: {}", name, batch.size(), e.getMessage());
+        }
+        delivered += batch.size();
+    }
+}
@@ -0,0 +1,15 @@
+package com.invoiceprocessor.observer;
+
+/**
+ * How the event bus delivers events to an observer
+ */
+public enum DeliveryMode {
+    /**
+     * Called on the pipeline thread as the event happens; exceptions reach the pipeline
+     */
+    INLINE,
+    /**
+     * Queued in the observer's ring buffer and delivered in batches on its own thread
+     */
+    ASYNC
+}
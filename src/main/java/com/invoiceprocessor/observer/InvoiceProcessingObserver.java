@@ -2,6 +2,8 @@ package com.invoiceprocessor.observer;
 
 import com.invoiceprocessor.dto.ExtractedData;
 
+import java.util.List;
+
 /**
  * Observer interface for monitoring invoice processing events
  */
@@ -31,4 +33,26 @@ public interface InvoiceProcessingObserver {
      * Called when processing fails
      */
     void onProcessingFailed(String error);
+    
+    /**
+     * How the event bus delivers events to this observer - on its own thread unless it opts in to INLINE
+     */
+    default DeliveryMode getDeliveryMode() {
+        return DeliveryMode.ASYNC;
+    }
+    
+    /**
+     * What publishing does when this observer's ring buffer is full (asynchronous delivery only)
+     */
+    default OverflowPolicy getOverflowPolicy() {
+        return OverflowPolicy.DROP;
+    }
+    
+    /**
+     * Receive a batch of events in publication order (asynchronous delivery only).
+     * Override to handle the batch at once, e.g. a single write per batch in an audit sink.
+     */
+    default void onEvents(List<ProcessingEvent> events) {
+        events.forEach(event -> event.dispatchTo(this));
+    }
 }
\ No newline at end of file
@@ -10,17 +10,17 @@ public class LoggingObserver implements InvoiceProcessingObserver {
     
     @Override
     public void onProcessingStarted(String xmlType) {
-        log.info("🚀 Processing started for XML type: {}", xmlType);
+        log.debug("🚀 Processing started for XML type: {}", xmlType);
     }
     
     @Override
     public void onValidationCompleted(String xmlType) {
-        log.info("✅ XML validation completed for type: {}", xmlType);
+        log.debug("✅ XML validation completed for type: {}", xmlType);
     }
     
     @Override
     public void onDataExtracted(ExtractedData data) {
-        log.info("📊 Data extracted successfully - Type: {}, NIP: {}, P1: {}, P2: {}", 
+        log.debug("📊 Data extracted successfully - Type: {}, NIP: {}, P1: {}, P2: {}", 
             data.getProcessorType(), data.getNip(), data.getP1(), data.getP2());
     }
     
@@ -33,4 +33,12 @@ public class LoggingObserver implements InvoiceProcessingObserver {
     public void onProcessingFailed(String error) {
         log.error("❌ Processing failed: {}", error);
     }
+    
+    /**
+     * Log lines stay next to the pipeline's own logs, in order
+     */
+    @Override
+    public DeliveryMode getDeliveryMode() {
+        return DeliveryMode.INLINE;
+    }
 }
\ No newline at end of file
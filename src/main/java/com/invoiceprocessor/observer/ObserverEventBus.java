@@ -0,0 +1,66 @@
+package com.invoiceprocessor.observer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers pipeline events to the registered observers.
+ * INLINE observers are called on the publishing thread; every other observer gets its own
+ * lock-free ring buffer and delivery thread, so a slow observer adds nothing to request latency.
+ */
+@Component
+@Slf4j
+public class ObserverEventBus {
+
+    private final List<InvoiceProcessingObserver> inlineObservers = new ArrayList<>();
+    private final List<AsyncObserverChannel> channels = new ArrayList<>();
+
+    public ObserverEventBus(
+            List<InvoiceProcessingObserver> observers,
+            @Value("${invoice.events.buffer-size:1024}") int bufferSize,
+            @Value("${invoice.events.max-batch-size:256}") int maxBatchSize) {
+        for (InvoiceProcessingObserver observer : observers) {
+            if (observer.getDeliveryMode() == DeliveryMode.INLINE) {
+                inlineObservers.add(observer);
+            } else {
+                channels.add(new AsyncObserverChannel(observer, bufferSize, maxBatchSize));
+            }
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        channels.forEach(AsyncObserverChannel::start);
+        log.info("Observer event bus started: {} inline, {} asynchronous", inlineObservers.size(), channels.size());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        for (AsyncObserverChannel channel : channels) {
+            channel.stop(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    public void publish(ProcessingEvent event) {
+        for (InvoiceProcessingObserver observer : inlineObservers) {
+            event.dispatchTo(observer);
+        }
+        for (AsyncObserverChannel channel : channels) {
+            channel.publish(event);
+        }
+    }
+
+    /**
+     * Delivery counters of the asynchronous observers
+     */
+    public List<ObserverMetrics> getMetrics() {
+        return channels.stream().map(AsyncObserverChannel::metrics).toList();
+    }
+}
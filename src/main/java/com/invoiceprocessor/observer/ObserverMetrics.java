@@ -0,0 +1,21 @@
+package com.invoiceprocessor.observer;
+
+/**
+ * Delivery counters of one observer.
+ * lag is the number of events published but not yet delivered; delivery delay is the age
+ * of the oldest event of a batch when it was handed to the observer.
+ */
+public record ObserverMetrics(
+        String observer,
+        DeliveryMode deliveryMode,
+        OverflowPolicy overflowPolicy,
+        int capacity,
+        long published,
+        long delivered,
+        long dropped,
+        long blockedPublishes,
+        long failedBatches,
+        long lag,
+        long lastDeliveryDelayMillis,
+        long maxDeliveryDelayMillis) {
+}
@@ -0,0 +1,15 @@
+package com.invoiceprocessor.observer;
+
+/**
+ * What publishing does when an asynchronous observer's ring buffer is full
+ */
+public enum OverflowPolicy {
+    /**
+     * Discard the event and count it; the pipeline never waits for the observer
+     */
+    DROP,
+    /**
+     * Wait for the observer to make room; the observer slows the pipeline down instead of losing events
+     */
+    BLOCK
+}
@@ -0,0 +1,50 @@
+package com.invoiceprocessor.observer;
+
+import com.invoiceprocessor.dto.ExtractedData;
+
+/**
+ * One pipeline notification, as carried by the event bus to asynchronous observers
+ */
+public record ProcessingEvent(Type type, String value, ExtractedData data, long publishedAtNanos) {
+
+    public enum Type {
+        PROCESSING_STARTED,
+        VALIDATION_COMPLETED,
+        DATA_EXTRACTED,
+        PROCESSING_COMPLETED,
+        PROCESSING_FAILED
+    }
+
+    public static ProcessingEvent processingStarted(String xmlType) {
+        return new ProcessingEvent(Type.PROCESSING_STARTED, xmlType, null, System.nanoTime());
+    }
+
+    public static ProcessingEvent validationCompleted(String xmlType) {
+        return new ProcessingEvent(Type.VALIDATION_COMPLETED, xmlType, null, System.nanoTime());
+    }
+
+    public static ProcessingEvent dataExtracted(ExtractedData data) {
+        return new ProcessingEvent(Type.DATA_EXTRACTED, null, data, System.nanoTime());
+    }
+
+    public static ProcessingEvent processingCompleted(String invoiceId) {
+        return new ProcessingEvent(Type.PROCESSING_COMPLETED, invoiceId, null, System.nanoTime());
+    }
+
+    public static ProcessingEvent processingFailed(String error) {
+        return new ProcessingEvent(Type.PROCESSING_FAILED, error, null, System.nanoTime());
+    }
+
+    /**
+     * Call the observer method matching this event
+     */
+    public void dispatchTo(InvoiceProcessingObserver observer) {
+        switch (type) {
+            case PROCESSING_STARTED -> observer.onProcessingStarted(value);
+            case VALIDATION_COMPLETED -> observer.onValidationCompleted(value);
+            case DATA_EXTRACTED -> observer.onDataExtracted(data);
+            case PROCESSING_COMPLETED -> observer.onProcessingCompleted(value);
+            case PROCESSING_FAILED -> observer.onProcessingFailed(value);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.invoiceprocessor.persistence;
+
+import com.invoiceprocessor.exception.ErrorCode;
+import com.invoiceprocessor.exception.PersistenceBackpressureException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Bounds the number of threads doing JDBC work at the same time.
+ * With virtual threads, request concurrency is no longer capped by the Tomcat pool, so without this
+ * thousands of threads would queue inside the connection pool. Waiting on a Semaphore parks a virtual
+ * thread without pinning its carrier.
+ */
+@Component
+public class JdbcConcurrencyLimiter {
+
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final long acquireTimeoutMillis;
+
+    public JdbcConcurrencyLimiter(
+            @Value("${invoice.jdbc.max-concurrency:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrency,
+            @Value("${invoice.jdbc.acquire-timeout-ms:30000}") long acquireTimeoutMillis) {
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.maxConcurrency = maxConcurrency;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    /**
+     * Run the database action once a permit is available
+     */
+    public <T> T execute(Supplier<T> action) {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new PersistenceBackpressureException(ErrorCode.DATABASE_BUSY,
+                    "Timed out waiting for a database slot (" + maxConcurrency + " in use)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PersistenceBackpressureException(ErrorCode.DATABASE_BUSY, "Interrupted while waiting for a database slot");
+        }
+        try {
+            return action.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+}
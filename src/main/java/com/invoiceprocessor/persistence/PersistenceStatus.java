@@ -0,0 +1,10 @@
+package com.invoiceprocessor.persistence;
+
+/**
+ * State of an invoice accepted by the write-behind queue
+ */
+public enum PersistenceStatus {
+    PENDING,
+    COMMITTED,
+    FAILED
+}
@@ -0,0 +1,226 @@
+package com.invoiceprocessor.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.invoiceprocessor.dto.ExtractedData;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only JSON-lines journal of the write-behind queue.
+ * Every invoice is journaled before it is queued, and a commit or failure marker is appended
+ * once the writer is done with it or the queue turned it away. On startup, entries without
+ * a marker are handed back for re-enqueueing and the journal is compacted to just those.
+ * While running, the entries without a marker are also kept in memory - at most the queue capacity -
+ * so the writer can compact the journal to them once enough markers have piled up.
+ */
+@Slf4j
+class WriteBehindJournal implements Closeable {
+
+    enum RecordType { PENDING, COMMITTED, FAILED }
+
+    record JournalRecord(RecordType type, String trackingId, ExtractedData data, String invoiceId) {
+    }
+
+    private final Path path;
+    private final boolean fsync;
+    private final ObjectMapper objectMapper;
+    private final int compactThreshold;
+    // ReentrantLock rather than synchronized so virtual threads are not pinned during file I/O
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // Guarded by writeLock: entries without a marker, and markers appended since the last compaction
+    private final Map<String, ExtractedData> outstanding = new LinkedHashMap<>();
+    private int markersSinceCompaction;
+    private FileChannel channel;
+
+    WriteBehindJournal(Path path, boolean fsync, ObjectMapper objectMapper, int compactThreshold) {
+        this.path = path;
+        this.fsync = fsync;
+        this.objectMapper = objectMapper;
+        this.compactThreshold = compactThreshold;
+    }
+
+    /**
+     * Read the journal, compact it and open it for appending.
+     * Returns the invoices that were accepted but never committed, in acceptance order.
+     */
+    Map<String, ExtractedData> recover() throws IOException {
+        writeLock.lock();
+        try {
+            return readOutstanding();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private Map<String, ExtractedData> readOutstanding() throws IOException {
+        outstanding.clear();
+        // A marker ends its entry wherever it appears, so a PENDING line after it cannot bring the entry back
+        Set<String> finished = new HashSet<>();
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        if (Files.exists(path)) {
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    JournalRecord record;
+                    try {
+                        record = objectMapper.readValue(line, JournalRecord.class);
+                    } catch (IOException e) {
+                        // A torn last line after a crash - everything before it is intact
+                        log.warn("Skipping unreadable write-behind journal line: {}", e.getMessage());
+                        continue;
+                    }
+                    if (record.type() != RecordType.PENDING) {
+                        finished.add(record.trackingId());
+                        outstanding.remove(record.trackingId());
+                    } else if (!finished.contains(record.trackingId())) {
+                        outstanding.putIfAbsent(record.trackingId(), record.data());
+                    }
+                }
+            }
+        }
+
+        compact();
+        channel = openForAppend();
+        markersSinceCompaction = 0;
+        return new LinkedHashMap<>(outstanding);
+    }
+
+    /**
+     * Rewrite the journal to the entries without a marker once compact-threshold markers were appended
+     * since the last compaction. Runs on the writer thread; appends wait for it, and it costs the
+     * outstanding entries rather than the history, so the file stays bounded however long the process runs.
+     */
+    boolean compactIfDue() {
+        writeLock.lock();
+        try {
+            if (markersSinceCompaction < compactThreshold) {
+                return false;
+            }
+            // Counted from here even if the rewrite fails, so a broken disk is not retried on every batch
+            markersSinceCompaction = 0;
+            compact();
+            FileChannel previous = channel;
+            channel = openForAppend();
+            previous.close();
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compact write-behind journal " + path, e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    int outstandingCount() {
+        writeLock.lock();
+        try {
+            return outstanding.size();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private FileChannel openForAppend() throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Write the outstanding entries next to the journal and move them over it, so a crash leaves either file intact
+     */
+    private void compact() throws IOException {
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        List<String> lines = new ArrayList<>(outstanding.size());
+        for (Map.Entry<String, ExtractedData> entry : outstanding.entrySet()) {
+            lines.add(objectMapper.writeValueAsString(
+                new JournalRecord(RecordType.PENDING, entry.getKey(), entry.getValue(), null)));
+        }
+        Files.write(compacted, lines, StandardCharsets.UTF_8);
+        if (fsync) {
+            try (FileChannel written = FileChannel.open(compacted, StandardOpenOption.WRITE)) {
+                written.force(false);
+            }
+        }
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    void appendPending(String trackingId, ExtractedData data) {
+        append(new JournalRecord(RecordType.PENDING, trackingId, data, null));
+    }
+
+    void appendCommitted(List<String> trackingIds, List<String> invoiceIds) {
+        List<JournalRecord> records = new ArrayList<>(trackingIds.size());
+        for (int i = 0; i < trackingIds.size(); i++) {
+            records.add(new JournalRecord(RecordType.COMMITTED, trackingIds.get(i), null, invoiceIds.get(i)));
+        }
+        append(records);
+    }
+
+    void appendFailed(String trackingId) {
+        append(new JournalRecord(RecordType.FAILED, trackingId, null, null));
+    }
+
+    private void append(JournalRecord record) {
+        append(List.of(record));
+    }
+
+    private void append(List<JournalRecord> records) {
+        try {
+            StringBuilder lines = new StringBuilder();
+            for (JournalRecord record : records) {
+                lines.append(objectMapper.writeValueAsString(record)).append('\n');
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+
+            writeLock.lock();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (fsync) {
+                    channel.force(false);
+                }
+                for (JournalRecord record : records) {
+                    if (record.type() == RecordType.PENDING) {
+                        outstanding.put(record.trackingId(), record.data());
+                    } else {
+                        outstanding.remove(record.trackingId());
+                        markersSinceCompaction++;
+                    }
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write write-behind journal " + path, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.invoiceprocessor.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.invoiceprocessor.dto.ExtractedData;
+import com.invoiceprocessor.dto.ProcessingResult;
+import com.invoiceprocessor.dto.TrackingResponse;
+import com.invoiceprocessor.exception.PersistenceBackpressureException;
+import com.invoiceprocessor.service.InvoiceService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind stage between extraction and the database.
+ * Request threads enqueue extracted data and return a tracking ID; a dedicated writer thread
+ * drains the bounded queue and saves invoices in size- or time-bounded batches.
+ * Accepted invoices are journaled to a local file before they are queued, so they survive a crash
+ * before being committed.
+ */
+@Component
+@Slf4j
+public class WriteBehindQueue {
+
+    private static final long TRACKING_EVICTION_INTERVAL_MILLIS = 60_000;
+
+    private record PendingInvoice(String trackingId, ExtractedData data) {
+    }
+
+    private record Tracking(PersistenceStatus status, String invoiceId, String error, long updatedAt) {
+    }
+
+    private final InvoiceService invoiceService;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long enqueueTimeoutMillis;
+    private final long trackingRetentionMillis;
+    private final int maxWriteAttempts;
+
+    private final BlockingQueue<PendingInvoice> queue;
+    private final Map<String, Tracking> tracking = new ConcurrentHashMap<>();
+    private final WriteBehindJournal journal;
+    // Commit markers the journal failed to write, retried by the writer; replaying those rows would insert them twice
+    private final Map<String, String> unjournaledCommits = new LinkedHashMap<>();
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public WriteBehindQueue(
+            InvoiceService invoiceService,
+            ObjectMapper objectMapper,
+            @Value("${invoice.write-behind.enabled:false}") boolean enabled,
+            @Value("${invoice.write-behind.capacity:10000}") int capacity,
+            @Value("${invoice.write-behind.batch-size:500}") int batchSize,
+            @Value("${invoice.write-behind.flush-interval-ms:200}") long flushIntervalMillis,
+            @Value("${invoice.write-behind.enqueue-timeout-ms:100}") long enqueueTimeoutMillis,
+            @Value("${invoice.write-behind.tracking-retention-ms:3600000}") long trackingRetentionMillis,
+            @Value("${invoice.write-behind.max-write-attempts:5}") int maxWriteAttempts,
+            @Value("${invoice.write-behind.journal-path:data/write-behind.journal}") String journalPath,
+            @Value("${invoice.write-behind.journal-fsync:true}") boolean journalFsync,
+            @Value("${invoice.write-behind.journal-compact-threshold:10000}") int journalCompactThreshold) {
+        this(invoiceService, enabled, capacity, batchSize, flushIntervalMillis, enqueueTimeoutMillis,
+            trackingRetentionMillis, maxWriteAttempts,
+            new WriteBehindJournal(Path.of(journalPath), journalFsync, objectMapper, journalCompactThreshold));
+    }
+
+    WriteBehindQueue(InvoiceService invoiceService, boolean enabled, int capacity, int batchSize,
+                     long flushIntervalMillis, long enqueueTimeoutMillis, long trackingRetentionMillis,
+                     int maxWriteAttempts, WriteBehindJournal journal) {
+        this.invoiceService = invoiceService;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.enqueueTimeoutMillis = enqueueTimeoutMillis;
+        this.trackingRetentionMillis = trackingRetentionMillis;
+        this.maxWriteAttempts = maxWriteAttempts;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.journal = journal;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Map<String, ExtractedData> recovered = journal.recover();
+        recovered.forEach((trackingId, data) -> {
+            track(trackingId, PersistenceStatus.PENDING, null, null);
+            if (!queue.offer(new PendingInvoice(trackingId, data))) {
+                // Stays in the compacted journal and is replayed on the next start
+                log.warn("Write-behind queue full during recovery, {} stays in the journal", trackingId);
+            }
+        });
+        if (!recovered.isEmpty()) {
+            log.info("Recovered {} uncommitted invoices from the write-behind journal", recovered.size());
+        }
+
+        running = true;
+        writerThread = new Thread(this::runWriter, "invoice-write-behind");
+        writerThread.setDaemon(false);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        // The writer drains what is left; anything it cannot finish is replayed from the journal
+        writerThread.join(TimeUnit.SECONDS.toMillis(30));
+        journal.close();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Accept extracted data for asynchronous persistence.
+     * Blocks up to the enqueue timeout when the queue is full, then rejects the invoice.
+     * The invoice is journaled before it is queued, so its commit marker always follows it in the journal.
+     */
+    public String submit(ExtractedData data) {
+        String trackingId = UUID.randomUUID().toString();
+        track(trackingId, PersistenceStatus.PENDING, null, null);
+        try {
+            journal.appendPending(trackingId, data);
+        } catch (RuntimeException e) {
+            // Nothing was queued, so the failed request leaves nothing behind
+            tracking.remove(trackingId);
+            throw e;
+        }
+        boolean queued;
+        try {
+            queued = queue.offer(new PendingInvoice(trackingId, data), enqueueTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reject(trackingId);
+            throw new PersistenceBackpressureException("Interrupted while waiting for write-behind queue");
+        }
+        if (!queued) {
+            reject(trackingId);
+            throw new PersistenceBackpressureException(
+                "Write-behind queue is full (" + queue.size() + " invoices pending), retry later");
+        }
+        return trackingId;
+    }
+
+    /**
+     * Close the journal entry of an invoice the client is told was not accepted
+     */
+    private void reject(String trackingId) {
+        tracking.remove(trackingId);
+        try {
+            journal.appendFailed(trackingId);
+        } catch (RuntimeException e) {
+            log.error("Write-behind invoice {} was rejected but stays in the journal and is replayed on restart: {}",
+                trackingId, e.getMessage());
+        }
+    }
+
+    public Optional<TrackingResponse> getStatus(String trackingId) {
+        Tracking state = tracking.get(trackingId);
+        if (state == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new TrackingResponse(trackingId, state.status(), state.invoiceId(), state.error()));
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private void runWriter() {
+        List<PendingInvoice> batch = new ArrayList<>(batchSize);
+        long nextEviction = 0;
+        while (running || !queue.isEmpty()) {
+            try {
+                if (!unjournaledCommits.isEmpty()) {
+                    journalCommits();
+                }
+                compactJournal();
+                if (System.currentTimeMillis() >= nextEviction) {
+                    evictExpiredTracking();
+                    nextEviction = System.currentTimeMillis() + TRACKING_EVICTION_INTERVAL_MILLIS;
+                }
+                PendingInvoice first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                collectBatch(batch);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Write-behind writer failed, {} invoices stay in the journal: {}", batch.size(), e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+        if (!unjournaledCommits.isEmpty()) {
+            journalCommits();
+        }
+    }
+
+    /**
+     * Fill the batch until it is full or the flush interval since the first item has passed
+     */
+    private void collectBatch(List<PendingInvoice> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                return;
+            }
+            PendingInvoice next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void write(List<PendingInvoice> batch) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                List<String> invoiceIds = invoiceService.saveBatch(batch.stream().map(PendingInvoice::data).toList());
+                markCommitted(batch, invoiceIds);
+                return;
+            } catch (DataIntegrityViolationException e) {
+                // Some row is rejected by the database - isolate it instead of retrying the batch
+                writeIndividually(batch);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= maxWriteAttempts) {
+                    writeIndividually(batch);
+                    return;
+                }
+                long backoff = Math.min(flushIntervalMillis * (1L << attempt), TimeUnit.SECONDS.toMillis(10));
+                log.warn("Write-behind batch of {} failed (attempt {}), retrying in {} ms: {}",
+                    batch.size(), attempt, backoff, e.getMessage());
+                Thread.sleep(backoff);
+            }
+        }
+    }
+
+    private void writeIndividually(List<PendingInvoice> batch) {
+        for (PendingInvoice pending : batch) {
+            try {
+                // A copy of an invoice saved in the meantime commits as that invoice
+                ProcessingResult result = invoiceService.save(pending.data());
+                markCommitted(List.of(pending), List.of(result.getInvoiceId()));
+            } catch (RuntimeException e) {
+                log.error("Write-behind invoice {} could not be saved: {}", pending.trackingId(), e.getMessage());
+                track(pending.trackingId(), PersistenceStatus.FAILED, null, e.getMessage());
+                try {
+                    journal.appendFailed(pending.trackingId());
+                } catch (RuntimeException journalFailure) {
+                    log.error("Failure marker of write-behind invoice {} not journaled, it is retried on restart: {}",
+                        pending.trackingId(), journalFailure.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * The rows are saved at this point, so a journal failure must not send the batch back for another save
+     */
+    private void markCommitted(List<PendingInvoice> batch, List<String> invoiceIds) {
+        for (int i = 0; i < batch.size(); i++) {
+            String trackingId = batch.get(i).trackingId();
+            track(trackingId, PersistenceStatus.COMMITTED, invoiceIds.get(i), null);
+            unjournaledCommits.put(trackingId, invoiceIds.get(i));
+        }
+        journalCommits();
+    }
+
+    /**
+     * Compaction failing leaves the journal as it was, only longer, so the writer carries on
+     */
+    private void compactJournal() {
+        try {
+            if (journal.compactIfDue()) {
+                log.debug("Write-behind journal compacted to {} outstanding invoices", journal.outstandingCount());
+            }
+        } catch (RuntimeException e) {
+            log.error("Write-behind journal compaction failed, appending to the uncompacted journal: {}", e.getMessage());
+        }
+    }
+
+    private void journalCommits() {
+        try {
+            journal.appendCommitted(List.copyOf(unjournaledCommits.keySet()), List.copyOf(unjournaledCommits.values()));
+            unjournaledCommits.clear();
+        } catch (RuntimeException e) {
+            log.error("Commit markers of {} write-behind invoices not journaled, retrying: {}",
+                unjournaledCommits.size(), e.getMessage());
+        }
+    }
+
+    private void track(String trackingId, PersistenceStatus status, String invoiceId, String error) {
+        tracking.put(trackingId, new Tracking(status, invoiceId, error, System.currentTimeMillis()));
+    }
+
+    private void evictExpiredTracking() {
+        long cutoff = System.currentTimeMillis() - trackingRetentionMillis;
+        tracking.entrySet().removeIf(entry ->
+            entry.getValue().status() != PersistenceStatus.PENDING && entry.getValue().updatedAt() < cutoff);
+    }
+}
@@ -0,0 +1,153 @@
+package com.invoiceprocessor.ratelimit;
+
+import com.invoiceprocessor.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * One token bucket per client, so a single tenant's backfill cannot use up the shared capacity.
+ * Buckets live in a ConcurrentHashMap: a known client costs a lock-free get and one CAS on its bucket,
+ * only the first request of a client locks a single bin. Buckets that have refilled completely carry
+ * no state and are swept periodically, so idle clients do not accumulate.
+ */
+@Component
+public class ClientRateLimiter {
+
+    public static final String REJECTION_COUNTER = "invoice.ratelimit.rejected";
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Sustained rate and burst of one client
+     */
+    public record Limit(double permitsPerSecond, int burst) {
+        public Limit {
+            if (!(permitsPerSecond > 0) || burst < 1) {
+                throw new IllegalArgumentException("Invalid rate limit: " + permitsPerSecond + "/s, burst " + burst);
+            }
+        }
+    }
+
+    private final boolean enabled;
+    private final Limit defaultLimit;
+    private final Map<String, Limit> clientLimits;
+    private final int maxClients;
+    private final long sweepIntervalNanos;
+    private final LongSupplier clock;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep;
+
+    private final Counter rejections;
+
+    @Autowired
+    public ClientRateLimiter(
+            MeterRegistry meterRegistry,
+            @Value("${invoice.rate-limit.enabled:true}") boolean enabled,
+            @Value("${invoice.rate-limit.default-rate:100}") double defaultRate,
+            @Value("${invoice.rate-limit.default-burst:200}") int defaultBurst,
+            @Value("${invoice.rate-limit.clients:}") List<String> clientLimits,
+            @Value("${invoice.rate-limit.max-clients:100000}") int maxClients,
+            @Value("${invoice.rate-limit.sweep-interval-ms:60000}") long sweepIntervalMillis) {
+        this(meterRegistry, enabled, new Limit(defaultRate, defaultBurst), parseClientLimits(clientLimits),
+            maxClients, TimeUnit.MILLISECONDS.toNanos(sweepIntervalMillis), System::nanoTime);
+    }
+
+    ClientRateLimiter(MeterRegistry meterRegistry, boolean enabled, Limit defaultLimit, Map<String, Limit> clientLimits,
+                      int maxClients, long sweepIntervalNanos, LongSupplier clock) {
+        this.enabled = enabled;
+        this.defaultLimit = defaultLimit;
+        this.clientLimits = Map.copyOf(clientLimits);
+        this.maxClients = maxClients;
+        this.sweepIntervalNanos = sweepIntervalNanos;
+        this.clock = clock;
+        this.lastSweep = new AtomicLong(clock.getAsLong());
+
+        this.rejections = Counter.builder(REJECTION_COUNTER)
+            .description("Invoice requests refused because the client exceeded its rate")
+            .register(meterRegistry);
+        Gauge.builder("invoice.ratelimit.clients", buckets, Map::size)
+            .description("Clients with a token bucket that has not refilled yet")
+            .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Take one request from the client's bucket, or throw RateLimitExceededException
+     */
+    public void acquire(String clientId) {
+        long now = clock.getAsLong();
+        TokenBucket bucket = buckets.get(clientId);
+        if (bucket == null) {
+            sweepIfDue(now);
+            bucket = buckets.computeIfAbsent(clientId, id -> new TokenBucket(limitFor(id), now));
+        }
+        long waitNanos = bucket.tryAcquire(now);
+        if (waitNanos > 0) {
+            rejections.increment();
+            throw new RateLimitExceededException("Request rate limit exceeded, retry later",
+                Math.max(1, (waitNanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND));
+        }
+    }
+
+    public Limit limitFor(String clientId) {
+        return clientLimits.getOrDefault(clientId, defaultLimit);
+    }
+
+    int size() {
+        return buckets.size();
+    }
+
+    /**
+     * Parse "client=rate/burst" entries; the client is an API key or NIP as sent in the client header
+     */
+    static Map<String, Limit> parseClientLimits(List<String> entries) {
+        Map<String, Limit> limits = new HashMap<>();
+        for (String entry : entries) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int equals = entry.lastIndexOf('=');
+            int slash = entry.lastIndexOf('/');
+            if (equals <= 0 || slash < equals) {
+                throw new IllegalArgumentException("Invalid client rate limit '" + entry + "', expected client=rate/burst");
+            }
+            try {
+                limits.put(entry.substring(0, equals).trim(), new Limit(
+                    Double.parseDouble(entry.substring(equals + 1, slash).trim()),
+                    Integer.parseInt(entry.substring(slash + 1).trim())));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid client rate limit '" + entry + "', expected client=rate/burst", e);
+            }
+        }
+        return limits;
+    }
+
+    /**
+     * Sweeps run once per sweep interval, or once per second while the map is over max-clients, so a
+     * flood of new client IDs cannot make every request walk the whole map. A request racing the sweep
+     * may spend its token on a bucket just removed, which gives that client at most one extra request.
+     */
+    private void sweepIfDue(long now) {
+        long last = lastSweep.get();
+        long interval = buckets.size() >= maxClients ? Math.min(sweepIntervalNanos, NANOS_PER_SECOND) : sweepIntervalNanos;
+        if (now - last < interval || !lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+}
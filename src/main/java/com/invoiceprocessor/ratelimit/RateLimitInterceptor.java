@@ -0,0 +1,53 @@
+package com.invoiceprocessor.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.List;
+
+/**
+ * Applies the per-client rate limit to invoice submissions before the body is read.
+ * The client is identified by the first configured header present (API key, then NIP), falling back
+ * to the remote address; a rejection becomes a 429 with Retry-After in GlobalExceptionHandler.
+ * A batch pays one token here, before its body is read; the client is kept as a request attribute so
+ * the rest of its documents can be charged while they are read.
+ */
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    public static final String CLIENT_ID_ATTRIBUTE = RateLimitInterceptor.class.getName() + ".clientId";
+
+    private final ClientRateLimiter clientRateLimiter;
+    private final List<String> clientHeaders;
+
+    public RateLimitInterceptor(
+            ClientRateLimiter clientRateLimiter,
+            @Value("${invoice.rate-limit.client-headers:X-API-Key,X-Client-NIP}") List<String> clientHeaders) {
+        this.clientRateLimiter = clientRateLimiter;
+        this.clientHeaders = List.copyOf(clientHeaders);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (clientRateLimiter.isEnabled() && HttpMethod.POST.matches(request.getMethod())) {
+            String clientId = clientId(request);
+            clientRateLimiter.acquire(clientId);
+            request.setAttribute(CLIENT_ID_ATTRIBUTE, clientId);
+        }
+        return true;
+    }
+
+    String clientId(HttpServletRequest request) {
+        for (String header : clientHeaders) {
+            String value = request.getHeader(header);
+            if (value != null && !value.isBlank()) {
+                return value.trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+}
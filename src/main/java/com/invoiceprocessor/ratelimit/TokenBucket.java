@@ -0,0 +1,49 @@
+package com.invoiceprocessor.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket kept as a single timestamp (the generic cell rate algorithm form).
+ * Instead of a token count and a refill time, the bucket stores the instant at which it would be
+ * full again; each request pushes that instant one emission interval further, and a request is
+ * refused when it would lie more than burst intervals ahead of now. One CAS per request and no
+ * refill arithmetic, so the bucket is lock-free and a full bucket is indistinguishable from a new one.
+ */
+public final class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final long emissionIntervalNanos;
+    private final long capacityNanos;
+    private final AtomicLong fullAt;
+
+    public TokenBucket(ClientRateLimiter.Limit limit, long nowNanos) {
+        this.emissionIntervalNanos = Math.max(1, Math.round(NANOS_PER_SECOND / limit.permitsPerSecond()));
+        this.capacityNanos = emissionIntervalNanos * limit.burst();
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Take one token; returns 0 when granted, otherwise the nanoseconds until one is available
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, nowNanos) + emissionIntervalNanos;
+            long ahead = next - nowNanos;
+            if (ahead > capacityNanos) {
+                return ahead - capacityNanos;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * A bucket that has refilled completely can be dropped, a new one behaves the same
+     */
+    public boolean isFull(long nowNanos) {
+        return fullAt.get() <= nowNanos;
+    }
+}
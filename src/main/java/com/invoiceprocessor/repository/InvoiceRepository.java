@@ -2,8 +2,18 @@ package com.invoiceprocessor.repository;
 
 import com.invoiceprocessor.entity.InvoiceEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 @Repository
 public interface InvoiceRepository extends JpaRepository<InvoiceEntity, Long> {
+    
+    @Query("select i.id from InvoiceEntity i where i.contentHash = :contentHash")
+    Optional<Long> findIdByContentHash(@Param("contentHash") String contentHash);
+    
+    @Query("select i.documentHash from InvoiceEntity i where i.id = :id")
+    Optional<String> findDocumentHashById(@Param("id") Long id);
 } 
\ No newline at end of file
@@ -0,0 +1,152 @@
+package com.invoiceprocessor.service;
+
+import com.invoiceprocessor.config.ProcessingExecutorConfig;
+import com.invoiceprocessor.dto.ExtractedData;
+import com.invoiceprocessor.dto.ProcessingResult;
+import com.invoiceprocessor.exception.BatchTooLargeException;
+import com.invoiceprocessor.exception.InvoiceProcessingException;
+import com.invoiceprocessor.exception.PersistenceBackpressureException;
+import com.invoiceprocessor.ratelimit.ClientRateLimiter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Processes many documents per request.
+ * Documents are extracted in parallel through the regular pipeline and persisted in batches;
+ * a failing document only fails its own result entry.
+ */
+@Service
+@Slf4j
+public class BatchInvoiceService {
+
+    private final InvoiceService invoiceService;
+    private final ClientRateLimiter clientRateLimiter;
+    private final Executor batchExecutor;
+    private final int batchSize;
+    private final int maxItems;
+
+    public BatchInvoiceService(
+            InvoiceService invoiceService,
+            ClientRateLimiter clientRateLimiter,
+            @Qualifier(ProcessingExecutorConfig.BATCH_EXECUTOR) Executor batchExecutor,
+            @Value("${invoice.batch.size:500}") int batchSize,
+            @Value("${invoice.batch.max-items:50000}") int maxItems) {
+        this.invoiceService = invoiceService;
+        this.clientRateLimiter = clientRateLimiter;
+        this.batchExecutor = batchExecutor;
+        this.batchSize = batchSize;
+        this.maxItems = maxItems;
+    }
+
+    /**
+     * Process the documents as they are read and return one result per document, in input order.
+     * Documents are taken window by window, so at most one window of Base64 documents and unmarshalled
+     * invoices is held in memory. Windows before a failure - a body that turns out malformed or too large,
+     * or persistence backpressure - stay saved; resubmitting them is answered from deduplication.
+     * With a client ID every document after the first takes a token from that client's rate limit,
+     * the first one was paid for when the request was admitted.
+     */
+    public List<ProcessingResult> processBatch(Iterator<String> base64Documents, String clientId) {
+        List<ProcessingResult> results = new ArrayList<>();
+        List<String> window = new ArrayList<>(batchSize);
+        while (base64Documents.hasNext()) {
+            int documentsRead = results.size() + window.size();
+            if (documentsRead == maxItems) {
+                throw new BatchTooLargeException("Batch contains more than " + maxItems + " documents");
+            }
+            if (clientId != null && documentsRead > 0) {
+                clientRateLimiter.acquire(clientId);
+            }
+            window.add(base64Documents.next());
+            if (window.size() == batchSize) {
+                results.addAll(processWindow(window));
+                window.clear();
+            }
+        }
+        if (!window.isEmpty()) {
+            results.addAll(processWindow(window));
+        }
+
+        log.info("Batch of {} documents processed", results.size());
+        return results;
+    }
+
+    private List<ProcessingResult> processWindow(List<String> documents) {
+        List<CompletableFuture<ProcessingResult>> futures = new ArrayList<>(documents.size());
+        for (String document : documents) {
+            futures.add(CompletableFuture.supplyAsync(() -> invoiceService.extractInvoice(document), batchExecutor));
+        }
+
+        ProcessingResult[] results = new ProcessingResult[documents.size()];
+        List<Integer> extractedIndexes = new ArrayList<>(futures.size());
+        List<ExtractedData> extracted = new ArrayList<>(futures.size());
+        for (int i = 0; i < results.length; i++) {
+            try {
+                ProcessingResult result = futures.get(i).join();
+                if (result.isDuplicate()) {
+                    results[i] = result;
+                } else {
+                    extracted.add(result.getExtractedData());
+                    extractedIndexes.add(i);
+                }
+            } catch (CompletionException e) {
+                results[i] = failure(e.getCause() != null ? e.getCause() : e);
+            }
+        }
+
+        if (!extracted.isEmpty()) {
+            persist(extracted, extractedIndexes, results);
+        }
+        return Arrays.asList(results);
+    }
+
+    private void persist(List<ExtractedData> extracted, List<Integer> indexes, ProcessingResult[] results) {
+        try {
+            List<String> invoiceIds = invoiceService.saveBatch(extracted);
+            for (int i = 0; i < extracted.size(); i++) {
+                results[indexes.get(i)] = ProcessingResult.success(invoiceIds.get(i), extracted.get(i));
+            }
+        } catch (DataIntegrityViolationException batchFailure) {
+            // A row the database rejects rolled the whole transaction back - save one by one to isolate it
+            log.warn("Batch insert of {} invoices failed, retrying individually: {}",
+                extracted.size(), batchFailure.getMessage());
+            for (int i = 0; i < extracted.size(); i++) {
+                ExtractedData data = extracted.get(i);
+                try {
+                    results[indexes.get(i)] = invoiceService.save(data);
+                } catch (PersistenceBackpressureException e) {
+                    throw e;
+                } catch (RuntimeException e) {
+                    results[indexes.get(i)] = failure(e);
+                }
+            }
+        } catch (PersistenceBackpressureException e) {
+            // No database slot freed up in time; more attempts would only queue behind the same slots
+            throw e;
+        } catch (RuntimeException windowFailure) {
+            // Connectivity and other database failures hit every row alike, so the rows are not retried one by one
+            log.warn("Batch insert of {} invoices failed: {}", extracted.size(), windowFailure.getMessage());
+            for (int i = 0; i < extracted.size(); i++) {
+                results[indexes.get(i)] = failure(windowFailure);
+            }
+        }
+    }
+
+    private static ProcessingResult failure(Throwable error) {
+        String details = error instanceof InvoiceProcessingException expected && expected.getDetail() != null
+            ? expected.getMessage() + ": " + expected.getDetail()
+            : error.getMessage();
+        return ProcessingResult.failure("Invoice processing failed", details);
+    }
+}
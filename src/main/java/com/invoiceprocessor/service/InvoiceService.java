@@ -1,130 +1,367 @@
 package com.invoiceprocessor.service;
 
+import com.invoiceprocessor.archive.ArchiveLocation;
+import com.invoiceprocessor.archive.DocumentArchive;
+import com.invoiceprocessor.chain.ValidationChain;
 import com.invoiceprocessor.chain.ValidationChainFactory;
-import com.invoiceprocessor.chain.ValidationHandler;
+import com.invoiceprocessor.chain.XmlSchemaValidationHandler;
+import com.invoiceprocessor.dedup.DeduplicationCache;
 import com.invoiceprocessor.dto.ExtractedData;
 import com.invoiceprocessor.dto.ProcessingResult;
 import com.invoiceprocessor.dto.ValidationContext;
 import com.invoiceprocessor.entity.InvoiceEntity;
 import com.invoiceprocessor.exception.Base64DecodingException;
-import com.invoiceprocessor.exception.XmlUnmarshallingException;
 import com.invoiceprocessor.exception.XmlValidationException;
 import com.invoiceprocessor.factory.XmlProcessorFactory;
-import com.invoiceprocessor.observer.InvoiceProcessingObserver;
+import com.invoiceprocessor.logging.PayloadLogger;
+import com.invoiceprocessor.metrics.PipelineMetrics;
+import com.invoiceprocessor.metrics.PipelineStage;
+import com.invoiceprocessor.metrics.StageTimings;
+import com.invoiceprocessor.observer.ObserverEventBus;
+import com.invoiceprocessor.observer.ProcessingEvent;
+import com.invoiceprocessor.persistence.JdbcConcurrencyLimiter;
 import com.invoiceprocessor.repository.InvoiceRepository;
 import com.invoiceprocessor.strategy.XmlProcessorStrategy;
-import jakarta.xml.bind.JAXBContext;
-import jakarta.xml.bind.JAXBElement;
-import jakarta.xml.bind.JAXBException;
-import jakarta.xml.bind.Unmarshaller;
+import com.invoiceprocessor.xml.ExtractionMode;
+import com.invoiceprocessor.xml.JaxbUnmarshallingEngine;
+import com.invoiceprocessor.xml.SchemaRegistry;
+import com.invoiceprocessor.xml.StaxExtractionEngine;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
-import javax.xml.XMLConstants;
 import javax.xml.transform.stream.StreamSource;
-import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
-import javax.xml.validation.Validator;
-import java.io.StringReader;
-import java.nio.charset.StandardCharsets;
+import java.io.ByteArrayInputStream;
 import java.util.Base64;
 import java.util.List;
-import java.util.function.Consumer;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class InvoiceService {
     
+    /**
+     * pipeline tag of the stage metrics: process saves each document, extract leaves saving to the caller
+     */
+    static final String PROCESS_PIPELINE = "process";
+    static final String EXTRACT_PIPELINE = "extract";
+    
+    /**
+     * processor tag of resubmitted documents answered from the deduplication cache
+     */
+    static final String DUPLICATE_PROCESSOR = "duplicate";
+    
     private final InvoiceRepository invoiceRepository;
     private final XmlProcessorFactory processorFactory;
-    private final List<InvoiceProcessingObserver> observers;
+    private final ObserverEventBus eventBus;
     private final ValidationChainFactory validationChainFactory;
+    private final JaxbUnmarshallingEngine unmarshallingEngine;
+    private final SchemaRegistry schemaRegistry;
+    private final JdbcConcurrencyLimiter jdbcConcurrencyLimiter;
+    private final StaxExtractionEngine staxExtractionEngine;
+    private final PipelineMetrics pipelineMetrics;
+    private final DeduplicationCache deduplicationCache;
+    private final PayloadLogger payloadLogger;
+    private final DocumentArchive documentArchive;
+    
+    /**
+     * When enabled, XSD validation runs inside the JAXB unmarshal instead of as a separate
+     * chain step, so each document is parsed once. Disabled keeps the multi-pass chain.
+     */
+    @Value("${invoice.processing.fused-validation:false}")
+    private boolean fusedValidation;
+    
+    /**
+     * STAX reads only the extracted fields in one streaming pass instead of building the JAXB object graph.
+     * Fused validation needs the JAXB unmarshal, so with STAX the chain always validates against the XSD.
+     */
+    @Value("${invoice.processing.extraction:jaxb}")
+    private ExtractionMode extractionMode = ExtractionMode.JAXB;
+    
+    @PostConstruct
+    void logExtractionMode() {
+        if (extractionMode == ExtractionMode.JAXB) {
+            log.info("Extraction mode jaxb: the extraction mappings are not applied and the fields column stays empty, "
+                + "set invoice.processing.extraction=stax to fill it");
+        }
+    }
     
     public ProcessingResult processInvoice(String base64xml) {
+        return process(() -> decodeBase64ToXml(base64xml));
+    }
+    
+    /**
+     * Process a document whose Base64 payload was already decoded while reading the request
+     */
+    public ProcessingResult processDecodedInvoice(byte[] xmlBytes) {
+        return process(() -> xmlBytes);
+    }
+    
+    /**
+     * Decode, validate, unmarshal and extract a document without persisting it.
+     * Used by batch ingestion and write-behind persistence, which save the extracted data in batches afterwards.
+     * A resubmitted document is answered as a duplicate before it is extracted, as in {@link #processInvoice(String)};
+     * otherwise the original is archived here, while the decoded bytes are still held, and both hashes travel on the data.
+     */
+    public ProcessingResult extractInvoice(String base64xml) {
+        return extractNotifyingFailure(() -> decodeBase64ToXml(base64xml));
+    }
+    
+    /**
+     * Same as {@link #extractInvoice(String)} for a document that was already decoded
+     */
+    public ProcessingResult extractDecodedInvoice(byte[] xmlBytes) {
+        return extractNotifyingFailure(() -> xmlBytes);
+    }
+    
+    private ProcessingResult extractNotifyingFailure(Supplier<byte[]> xmlSource) {
+        StageTimings timings = pipelineMetrics.start(EXTRACT_PIPELINE);
         try {
-            notifyObservers(obs -> obs.onProcessingStarted("Unknown"));
+            byte[] xmlBytes = decode(xmlSource, timings);
+            String contentHash = deduplicationCache.isEnabled() ? DeduplicationCache.hash(xmlBytes) : null;
+            Optional<ProcessingResult> duplicate = findDuplicate(contentHash, timings);
+            if (duplicate.isPresent()) {
+                return duplicate.get();
+            }
             
-            // 1. Decode Base64 to XML
-            String xmlContent = decodeBase64ToXml(base64xml);
-            log.info("Decoded XML content: {}", xmlContent);
+            ExtractedData extractedData = extract(xmlBytes, timings);
+            extractedData.setContentHash(contentHash);
+            extractedData.setDocumentHash(archive(xmlBytes, contentHash, timings));
+            pipelineMetrics.recordSuccess(timings);
+            return ProcessingResult.extracted(extractedData);
+        } catch (Exception e) {
+            pipelineMetrics.recordFailure(timings, e);
+            eventBus.publish(ProcessingEvent.processingFailed(e.getMessage()));
+            throw e;
+        }
+    }
+    
+    /**
+     * Persist extracted invoices in a single transaction, returning their IDs in input order.
+     * saveAll opens the transaction itself, so the JDBC permit is held for exactly its duration.
+     * Two copies of one document fail the whole batch on the unique content hash; save them one by one
+     * with {@link #save(ExtractedData)} to have the later copy answered as a duplicate.
+     */
+    public List<String> saveBatch(List<ExtractedData> batch) {
+        List<InvoiceEntity> entities = batch.stream().map(this::toEntity).toList();
+        List<InvoiceEntity> saved = jdbcConcurrencyLimiter.execute(() -> invoiceRepository.saveAll(entities));
+        log.info("Saved batch of {} invoices", saved.size());
+        
+        List<String> invoiceIds = saved.stream().map(entity -> entity.getId().toString()).toList();
+        for (int i = 0; i < invoiceIds.size(); i++) {
+            if (batch.get(i).getContentHash() != null) {
+                deduplicationCache.remember(batch.get(i).getContentHash(), invoiceIds.get(i));
+            }
+            eventBus.publish(ProcessingEvent.processingCompleted(invoiceIds.get(i)));
+        }
+        return invoiceIds;
+    }
+    
+    /**
+     * Persist one extracted invoice; a copy of a document saved concurrently is answered as a duplicate
+     */
+    public ProcessingResult save(ExtractedData data) {
+        ProcessingResult result = saveToDatabase(data);
+        eventBus.publish(ProcessingEvent.processingCompleted(result.getInvoiceId()));
+        return result;
+    }
+    
+    /**
+     * Where the original document of a saved invoice is archived, if it is
+     */
+    public Optional<ArchiveLocation> findArchivedDocument(Long invoiceId) {
+        if (!documentArchive.isEnabled()) {
+            return Optional.empty();
+        }
+        return jdbcConcurrencyLimiter.execute(() -> invoiceRepository.findDocumentHashById(invoiceId))
+            .flatMap(documentArchive::find);
+    }
+    
+    private ProcessingResult process(Supplier<byte[]> xmlSource) {
+        StageTimings timings = pipelineMetrics.start(PROCESS_PIPELINE);
+        try {
+            byte[] xmlBytes = decode(xmlSource, timings);
             
-            // 2. Validate XML using Chain of Responsibility
-            ValidationContext validationContext = new ValidationContext(xmlContent);
-            ValidationHandler validationChain = validationChainFactory.createValidationChain();
-            validationChain.handle(validationContext);
-            notifyObservers(obs -> obs.onValidationCompleted("XML"));
+            // Resubmitted documents short-circuit to the invoice stored the first time
+            String contentHash = deduplicationCache.isEnabled() ? DeduplicationCache.hash(xmlBytes) : null;
+            Optional<ProcessingResult> duplicate = findDuplicate(contentHash, timings);
+            if (duplicate.isPresent()) {
+                return duplicate.get();
+            }
             
-            // 3. Unmarshal XML to Java objects
-            Object xmlObject = unmarshalXml(xmlContent);
-            log.info("XML unmarshalling successful");
+            ExtractedData extractedData = extract(xmlBytes, timings);
+            extractedData.setContentHash(contentHash);
             
-            // 4. Use Strategy Pattern to extract data
-            XmlProcessorStrategy processor = processorFactory.getProcessor(xmlObject);
-            ExtractedData extractedData = processor.extractData(xmlObject);
-            notifyObservers(obs -> obs.onDataExtracted(extractedData));
+            // 5. Archive the original before the row that points to it is saved
+            extractedData.setDocumentHash(archive(xmlBytes, contentHash, timings));
             
-            // 5. Save to database
-            String invoiceId = saveToDatabase(extractedData);
-            notifyObservers(obs -> obs.onProcessingCompleted(invoiceId));
+            // 6. Save to database
+            ProcessingResult result = timings.time(PipelineStage.SAVE, () -> saveToDatabase(extractedData));
+            pipelineMetrics.recordSuccess(timings);
+            eventBus.publish(ProcessingEvent.processingCompleted(result.getInvoiceId()));
             
-            return ProcessingResult.success(invoiceId, extractedData);
+            return result;
             
         } catch (Exception e) {
-            notifyObservers(obs -> obs.onProcessingFailed(e.getMessage()));
+            pipelineMetrics.recordFailure(timings, e);
+            eventBus.publish(ProcessingEvent.processingFailed(e.getMessage()));
             throw e;
         }
     }
     
-    private String saveToDatabase(ExtractedData data) {
-        InvoiceEntity entity = new InvoiceEntity();
-        entity.setNip(data.getNip());
-        entity.setP1(data.getP1());
-        entity.setP2(data.getP2());
+    private byte[] decode(Supplier<byte[]> xmlSource, StageTimings timings) {
+        eventBus.publish(ProcessingEvent.processingStarted("Unknown"));
+        
+        // 1. Decode Base64 to raw XML bytes (never materialised as a String)
+        byte[] xmlBytes = timings.time(PipelineStage.DECODE, xmlSource);
+        timings.setPayloadBytes(xmlBytes.length);
+        log.debug("Decoded XML content: {} bytes", xmlBytes.length);
+        payloadLogger.log(xmlBytes);
+        return xmlBytes;
+    }
+    
+    private ExtractedData extract(byte[] xmlBytes, StageTimings timings) {
+        // 2. Validate XML using Chain of Responsibility
+        boolean streaming = extractionMode == ExtractionMode.STAX;
+        boolean schemaDeferred = fusedValidation && !streaming;
+        ValidationContext validationContext = new ValidationContext(xmlBytes);
+        if (schemaDeferred) {
+            validationContext.setAttribute(XmlSchemaValidationHandler.SCHEMA_DEFERRED_ATTRIBUTE, true);
+        }
+        // The document type is only known once the bytes are parsed, so the shared default chain applies
+        ValidationChain validationChain = validationChainFactory.getValidationChain();
+        timings.time(PipelineStage.VALIDATION, () -> validationChain.handle(validationContext));
+        if (!schemaDeferred) {
+            eventBus.publish(ProcessingEvent.validationCompleted("XML"));
+        }
+        
+        ExtractedData extractedData;
+        if (streaming) {
+            // 3-4. Pull the extracted fields straight from the bytes
+            extractedData = timings.time(PipelineStage.EXTRACTION, () -> staxExtractionEngine.extract(xmlBytes));
+        } else {
+            // 3. Unmarshal XML to Java objects (validating against the XSD in fused mode)
+            Object xmlObject = timings.time(PipelineStage.UNMARSHAL, () -> unmarshalXml(xmlBytes));
+            if (schemaDeferred) {
+                eventBus.publish(ProcessingEvent.validationCompleted("XML"));
+            }
+            log.debug("XML unmarshalling successful");
+            
+            // 4. Use Strategy Pattern to extract data
+            extractedData = timings.time(PipelineStage.EXTRACTION, () -> {
+                XmlProcessorStrategy processor = processorFactory.getProcessor(xmlObject);
+                return processor.extractData(xmlObject);
+            });
+        }
+        timings.setProcessorType(extractedData.getProcessorType());
+        eventBus.publish(ProcessingEvent.dataExtracted(extractedData));
         
-        InvoiceEntity saved = invoiceRepository.save(entity);
+        return extractedData;
+    }
+    
+    /**
+     * The invoice already stored for the content hash, answered as a completed duplicate
+     */
+    private Optional<ProcessingResult> findDuplicate(String contentHash, StageTimings timings) {
+        if (contentHash == null) {
+            return Optional.empty();
+        }
+        Optional<String> existingId = deduplicationCache.findInvoiceId(contentHash);
+        if (existingId.isEmpty()) {
+            return Optional.empty();
+        }
+        log.info("Duplicate document, already stored as invoice {}", existingId.get());
+        timings.setProcessorType(DUPLICATE_PROCESSOR);
+        pipelineMetrics.recordSuccess(timings);
+        eventBus.publish(ProcessingEvent.processingCompleted(existingId.get()));
+        return Optional.of(ProcessingResult.duplicate(existingId.get()));
+    }
+    
+    /**
+     * Archive the original under its SHA-256, reusing the content hash when deduplication already computed it.
+     * Returns the hash the row keeps, or null with the archive disabled.
+     */
+    private String archive(byte[] xmlBytes, String contentHash, StageTimings timings) {
+        if (!documentArchive.isEnabled()) {
+            return null;
+        }
+        String documentHash = contentHash != null ? contentHash : DeduplicationCache.hash(xmlBytes);
+        timings.time(PipelineStage.ARCHIVE, () -> documentArchive.store(documentHash, xmlBytes));
+        return documentHash;
+    }
+    
+    private ProcessingResult saveToDatabase(ExtractedData data) {
+        String contentHash = data.getContentHash();
+        InvoiceEntity entity = toEntity(data);
+        InvoiceEntity saved;
+        try {
+            saved = jdbcConcurrencyLimiter.execute(() -> invoiceRepository.save(entity));
+        } catch (DataIntegrityViolationException e) {
+            // An identical document was saved concurrently - the unique content hash rejected this copy.
+            // Looked up directly: a lost race is not a cache lookup and stays out of the lookup metrics.
+            if (contentHash != null) {
+                Optional<Long> existingId = jdbcConcurrencyLimiter.execute(
+                    () -> invoiceRepository.findIdByContentHash(contentHash));
+                if (existingId.isPresent()) {
+                    String invoiceId = existingId.get().toString();
+                    log.info("Duplicate document saved concurrently as invoice {}", invoiceId);
+                    deduplicationCache.remember(contentHash, invoiceId);
+                    return ProcessingResult.duplicate(invoiceId);
+                }
+            }
+            throw e;
+        }
         log.info("Invoice saved successfully with ID: {}", saved.getId());
         
-        return saved.getId().toString();
+        String invoiceId = saved.getId().toString();
+        if (contentHash != null) {
+            deduplicationCache.remember(contentHash, invoiceId);
+        }
+        return ProcessingResult.success(invoiceId, data);
     }
     
-    private void notifyObservers(Consumer<InvoiceProcessingObserver> action) {
-        observers.forEach(action);
+    private InvoiceEntity toEntity(ExtractedData data) {
+        InvoiceEntity entity = new InvoiceEntity();
+        entity.setNip(data.getNip());
+        entity.setP1(data.getP1());
+        entity.setP2(data.getP2());
+        entity.setContentHash(data.getContentHash());
+        entity.setDocumentHash(data.getDocumentHash());
+        if (data.getFields() != null && !data.getFields().isEmpty()) {
+            entity.setFields(data.getFields());
+        }
+        return entity;
     }
     
-    private String decodeBase64ToXml(String base64xml) {
+    private byte[] decodeBase64ToXml(String base64xml) {
         try {
             if (base64xml == null) {
                 throw new Base64DecodingException("Base64 string cannot be null");
             }
-            if (base64xml.trim().isEmpty()) {
+            if (base64xml.isBlank()) {
                 throw new Base64DecodingException("Base64 string cannot be empty");
             }
-            byte[] decodedBytes = Base64.getDecoder().decode(base64xml);
-            return new String(decodedBytes, StandardCharsets.UTF_8);
+            return Base64.getDecoder().decode(base64xml);
         } catch (Base64DecodingException e) {
             throw e;
         } catch (IllegalArgumentException e) {
-            throw new Base64DecodingException("Invalid Base64 encoding: " + e.getMessage(), e);
+            throw new Base64DecodingException("Invalid Base64 encoding", e);
         } catch (Exception e) {
-            throw new Base64DecodingException("Failed to decode Base64: " + e.getMessage(), e);
+            throw new Base64DecodingException("Failed to decode Base64", e);
         }
     }
     
-    private Object unmarshalXml(String xmlContent) {
-        try {
-            JAXBContext context = JAXBContext.newInstance("com.example.generated");
-            Unmarshaller unmarshaller = context.createUnmarshaller();
-            Object result = unmarshaller.unmarshal(new StringReader(xmlContent));
-            
-            if (result instanceof JAXBElement) {
-                return ((JAXBElement<?>) result).getValue();
-            }
-            return result;
-        } catch (JAXBException e) {
-            throw new XmlUnmarshallingException("XML unmarshalling failed: " + e.getMessage(), e);
+    private Object unmarshalXml(byte[] xmlBytes) {
+        // A byte stream lets the parser detect the encoding from the XML prolog
+        StreamSource source = new StreamSource(new ByteArrayInputStream(xmlBytes));
+        if (fusedValidation) {
+            return unmarshallingEngine.unmarshal(source, schemaRegistry.getDefaultSchema().getSchema());
         }
+        return unmarshallingEngine.unmarshal(source);
     }
 }
\ No newline at end of file
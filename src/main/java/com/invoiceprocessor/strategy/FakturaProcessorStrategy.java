@@ -3,13 +3,18 @@ package com.invoiceprocessor.strategy;
 import com.example.generated.FakturaComplexType;
 import com.invoiceprocessor.dto.ExtractedData;
 import com.invoiceprocessor.exception.DataExtractionException;
+import com.invoiceprocessor.xml.SchemaRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import javax.xml.namespace.QName;
+
 @Component
 @Slf4j
 public class FakturaProcessorStrategy implements XmlProcessorStrategy {
     
+    private static final QName ROOT = new QName(SchemaRegistry.TARGET_NAMESPACE, "Faktura");
+    
     @Override
     public boolean canHandle(Object xmlObject) {
         return xmlObject instanceof FakturaComplexType;
@@ -24,12 +29,12 @@ public class FakturaProcessorStrategy implements XmlProcessorStrategy {
             String p1 = faktura.getFa().getP1() != null ? faktura.getFa().getP1().toString() : "";
             String p2 = faktura.getFa().getP2();
             
-            log.info("Extracted data from Faktura - NIP: {}, P1: {}, P2: {}", nip, p1, p2);
+            log.debug("Extracted data from Faktura - NIP: {}, P1: {}, P2: {}", nip, p1, p2);
             
             return new ExtractedData(nip, p1, p2, "Faktura");
             
         } catch (Exception e) {
-            throw new DataExtractionException("Failed to extract data from Faktura: " + e.getMessage(), e);
+            throw new DataExtractionException("Failed to extract data from Faktura", e);
         }
     }
     
@@ -42,4 +47,14 @@ public class FakturaProcessorStrategy implements XmlProcessorStrategy {
     public int getPriority() {
         return 10;
     }
+    
+    @Override
+    public Class<?> getSupportedType() {
+        return FakturaComplexType.class;
+    }
+    
+    @Override
+    public QName getRootElement() {
+        return ROOT;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.invoiceprocessor.strategy;
+
+import com.invoiceprocessor.dto.ExtractedData;
+import com.invoiceprocessor.exception.DataExtractionException;
+import com.invoiceprocessor.xml.ExtractedFields;
+import com.invoiceprocessor.xml.SchemaRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.namespace.QName;
+import java.util.Set;
+
+/**
+ * Streaming counterpart of {@link FakturaProcessorStrategy}
+ */
+@Component
+@Slf4j
+public class FakturaStreamingStrategy implements StreamingProcessorStrategy {
+    
+    static final String NIP_FIELD = "nip";
+    static final String P1_FIELD = "p1";
+    static final String P2_FIELD = "p2";
+    
+    private static final QName ROOT = new QName(SchemaRegistry.TARGET_NAMESPACE, "Faktura");
+    private static final Set<String> REQUIRED_FIELDS = Set.of(NIP_FIELD, P1_FIELD, P2_FIELD);
+    private static final DatatypeFactory DATATYPE_FACTORY = newDatatypeFactory();
+    
+    @Override
+    public QName getRootElement() {
+        return ROOT;
+    }
+    
+    @Override
+    public Set<String> getRequiredFields() {
+        return REQUIRED_FIELDS;
+    }
+    
+    @Override
+    public ExtractedData extractData(ExtractedFields fields) {
+        try {
+            String nip = fields.get(NIP_FIELD);
+            String p1 = fields.isPresent(P1_FIELD) ? canonicalDate(fields.get(P1_FIELD)) : "";
+            String p2 = fields.get(P2_FIELD);
+            
+            log.debug("Extracted data from Faktura - NIP: {}, P1: {}, P2: {}", nip, p1, p2);
+            
+            return new ExtractedData(nip, p1, p2, "Faktura", fields.asMap());
+            
+        } catch (Exception e) {
+            throw new DataExtractionException("Failed to extract data from Faktura", e);
+        }
+    }
+    
+    /**
+     * Render P_1 the way the JAXB strategy does (XMLGregorianCalendar.toString).
+     * A plain yyyy-MM-dd is already canonical; only values with a time zone need parsing.
+     */
+    private static String canonicalDate(String text) {
+        String date = text.strip();
+        return date.length() == 10 ? date : DATATYPE_FACTORY.newXMLGregorianCalendar(date).toXMLFormat();
+    }
+    
+    private static DatatypeFactory newDatatypeFactory() {
+        try {
+            return DatatypeFactory.newInstance();
+        } catch (DatatypeConfigurationException e) {
+            throw new IllegalStateException("No DatatypeFactory available", e);
+        }
+    }
+    
+    @Override
+    public String getStrategyName() {
+        return "FakturaStreamingProcessor";
+    }
+}
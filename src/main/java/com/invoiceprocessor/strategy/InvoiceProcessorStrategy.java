@@ -3,13 +3,18 @@ package com.invoiceprocessor.strategy;
 import com.example.generated.InvoiceComplexType;
 import com.invoiceprocessor.dto.ExtractedData;
 import com.invoiceprocessor.exception.DataExtractionException;
+import com.invoiceprocessor.xml.SchemaRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import javax.xml.namespace.QName;
+
 @Component
 @Slf4j
 public class InvoiceProcessorStrategy implements XmlProcessorStrategy {
     
+    private static final QName ROOT = new QName(SchemaRegistry.TARGET_NAMESPACE, "Invoice");
+    
     @Override
     public boolean canHandle(Object xmlObject) {
         return xmlObject instanceof InvoiceComplexType;
@@ -24,12 +29,12 @@ public class InvoiceProcessorStrategy implements XmlProcessorStrategy {
             String p1 = invoice.getInvoiceNumber();
             String p2 = "INV-" + invoice.getInvoiceNumber();
             
-            log.info("Extracted data from Invoice - NIP: {}, P1: {}, P2: {}", nip, p1, p2);
+            log.debug("Extracted data from Invoice - NIP: {}, P1: {}, P2: {}", nip, p1, p2);
             
             return new ExtractedData(nip, p1, p2, "Invoice");
             
         } catch (Exception e) {
-            throw new DataExtractionException("Failed to extract data from Invoice: " + e.getMessage(), e);
+            throw new DataExtractionException("Failed to extract data from Invoice", e);
         }
     }
     
@@ -42,4 +47,14 @@ public class InvoiceProcessorStrategy implements XmlProcessorStrategy {
     public int getPriority() {
         return 5;
     }
+    
+    @Override
+    public Class<?> getSupportedType() {
+        return InvoiceComplexType.class;
+    }
+    
+    @Override
+    public QName getRootElement() {
+        return ROOT;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.invoiceprocessor.strategy;
+
+import com.invoiceprocessor.dto.ExtractedData;
+import com.invoiceprocessor.xml.ExtractedFields;
+import com.invoiceprocessor.xml.SchemaRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.xml.namespace.QName;
+import java.util.Set;
+
+/**
+ * Streaming counterpart of {@link InvoiceProcessorStrategy}
+ */
+@Component
+@Slf4j
+public class InvoiceStreamingStrategy implements StreamingProcessorStrategy {
+    
+    static final String INVOICE_NUMBER_FIELD = "invoiceNumber";
+    
+    private static final QName ROOT = new QName(SchemaRegistry.TARGET_NAMESPACE, "Invoice");
+    private static final Set<String> REQUIRED_FIELDS = Set.of(INVOICE_NUMBER_FIELD);
+    
+    @Override
+    public QName getRootElement() {
+        return ROOT;
+    }
+    
+    @Override
+    public Set<String> getRequiredFields() {
+        return REQUIRED_FIELDS;
+    }
+    
+    @Override
+    public ExtractedData extractData(ExtractedFields fields) {
+        String nip = "DEFAULT_NIP"; // Default for Invoice type
+        String p1 = fields.get(INVOICE_NUMBER_FIELD);
+        String p2 = "INV-" + p1;
+        
+        log.debug("Extracted data from Invoice - NIP: {}, P1: {}, P2: {}", nip, p1, p2);
+        
+        return new ExtractedData(nip, p1, p2, "Invoice", fields.asMap());
+    }
+    
+    @Override
+    public String getStrategyName() {
+        return "InvoiceStreamingProcessor";
+    }
+}
@@ -0,0 +1,34 @@
+package com.invoiceprocessor.strategy;
+
+import com.invoiceprocessor.dto.ExtractedData;
+import com.invoiceprocessor.xml.ExtractedFields;
+
+import javax.xml.namespace.QName;
+import java.util.Set;
+
+/**
+ * Strategy interface for extracting data while streaming through a document,
+ * without building its JAXB object graph
+ */
+public interface StreamingProcessorStrategy {
+    
+    /**
+     * Root element of the documents this strategy handles
+     */
+    QName getRootElement();
+    
+    /**
+     * Output names this strategy reads; they must be declared in the extraction mappings
+     */
+    Set<String> getRequiredFields();
+    
+    /**
+     * Build the extracted data from the fields collected by the root element's path matcher
+     */
+    ExtractedData extractData(ExtractedFields fields);
+    
+    /**
+     * Get the name of this strategy
+     */
+    String getStrategyName();
+}
@@ -2,6 +2,8 @@ package com.invoiceprocessor.strategy;
 
 import com.invoiceprocessor.dto.ExtractedData;
 
+import javax.xml.namespace.QName;
+
 /**
  * Strategy interface for processing different types of XML documents
  */
@@ -26,4 +28,20 @@ public interface XmlProcessorStrategy {
      * Get the priority of this strategy (higher number = higher priority)
      */
     int getPriority();
+    
+    /**
+     * JAXB class handled by this strategy. Strategies that declare it are dispatched through a lookup
+     * table built at startup, so canHandle must be equivalent to an instanceof check of this type.
+     * Null keeps the strategy on canHandle-based dispatch.
+     */
+    default Class<?> getSupportedType() {
+        return null;
+    }
+    
+    /**
+     * Root element of the documents this strategy handles, used to pick it before unmarshalling
+     */
+    default QName getRootElement() {
+        return null;
+    }
 }
\ No newline at end of file
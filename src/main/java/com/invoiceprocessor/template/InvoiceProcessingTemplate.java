@@ -3,18 +3,22 @@ package com.invoiceprocessor.template;
 import com.invoiceprocessor.dto.ExtractedData;
 import com.invoiceprocessor.dto.ProcessingResult;
 import com.invoiceprocessor.exception.Base64DecodingException;
+import com.invoiceprocessor.exception.InvoiceProcessingException;
 import com.invoiceprocessor.exception.XmlUnmarshallingException;
 import com.invoiceprocessor.exception.XmlValidationException;
+import com.invoiceprocessor.metrics.PipelineMetrics;
+import com.invoiceprocessor.metrics.PipelineStage;
+import com.invoiceprocessor.metrics.StageTimings;
+import com.invoiceprocessor.xml.CompiledSchema;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.xml.XMLConstants;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
-import javax.xml.validation.Validator;
-import java.io.StringReader;
-import java.nio.charset.StandardCharsets;
+import java.io.ByteArrayInputStream;
 import java.util.Base64;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Template Method Pattern for invoice processing
@@ -23,37 +27,48 @@ import java.util.Base64;
 @Slf4j
 public abstract class InvoiceProcessingTemplate {
     
+    static final String PIPELINE = "template";
+    
+    private final ReentrantLock schemaLock = new ReentrantLock();
+    private volatile CompiledSchema compiledSchema;
+    
     /**
      * Template method defining the processing algorithm
      */
     public final ProcessingResult process(String base64xml) {
+        PipelineMetrics metrics = getPipelineMetrics();
+        StageTimings timings = metrics.start(PIPELINE);
         try {
             onProcessingStarted();
             
             // Step 1: Decode Base64
-            String xmlContent = decodeBase64(base64xml);
-            onBase64Decoded(xmlContent);
+            byte[] xmlBytes = timings.time(PipelineStage.DECODE, () -> decodeBase64(base64xml));
+            timings.setPayloadBytes(xmlBytes.length);
+            onBase64Decoded(xmlBytes);
             
             // Step 2: Validate XML
-            validateXml(xmlContent);
+            timings.time(PipelineStage.VALIDATION, () -> validateXml(xmlBytes));
             onXmlValidated();
             
             // Step 3: Parse XML
-            Object xmlObject = parseXml(xmlContent);
+            Object xmlObject = timings.time(PipelineStage.UNMARSHAL, () -> parseXml(xmlBytes));
             onXmlParsed(xmlObject);
             
             // Step 4: Extract data (strategy-specific)
-            ExtractedData data = extractData(xmlObject);
+            ExtractedData data = timings.time(PipelineStage.EXTRACTION, () -> extractData(xmlObject));
+            timings.setProcessorType(data.getProcessorType());
             onDataExtracted(data);
             
             // Step 5: Save data
-            String invoiceId = saveData(data);
+            String invoiceId = timings.time(PipelineStage.SAVE, () -> saveData(data));
             onDataSaved(invoiceId);
             
+            metrics.recordSuccess(timings);
             onProcessingCompleted(invoiceId);
             return ProcessingResult.success(invoiceId, data);
             
         } catch (Exception e) {
+            metrics.recordFailure(timings, e);
             onProcessingFailed(e);
             throw e;
         }
@@ -61,67 +76,92 @@ public abstract class InvoiceProcessingTemplate {
     
     // Template steps - some concrete, some abstract
     
-    protected final String decodeBase64(String base64xml) {
+    protected final byte[] decodeBase64(String base64xml) {
         try {
             if (base64xml == null) {
                 throw new Base64DecodingException("Base64 string cannot be null");
             }
-            if (base64xml.trim().isEmpty()) {
+            if (base64xml.isBlank()) {
                 throw new Base64DecodingException("Base64 string cannot be empty");
             }
-            byte[] decodedBytes = Base64.getDecoder().decode(base64xml);
-            return new String(decodedBytes, StandardCharsets.UTF_8);
+            return Base64.getDecoder().decode(base64xml);
         } catch (Base64DecodingException e) {
             throw e;
         } catch (IllegalArgumentException e) {
-            throw new Base64DecodingException("Invalid Base64 encoding: " + e.getMessage(), e);
+            throw new Base64DecodingException("Invalid Base64 encoding", e);
         } catch (Exception e) {
-            throw new Base64DecodingException("Failed to decode Base64: " + e.getMessage(), e);
+            throw new Base64DecodingException("Failed to decode Base64", e);
         }
     }
     
-    protected final void validateXml(String xmlContent) {
+    protected final void validateXml(byte[] xmlBytes) {
         try {
-            SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-            Schema schema = getSchema(factory);
-            
-            Validator validator = schema.newValidator();
-            validator.validate(new StreamSource(new StringReader(xmlContent)));
+            getCompiledSchema().validate(new StreamSource(new ByteArrayInputStream(xmlBytes)));
         } catch (Exception e) {
-            throw new XmlValidationException("XML validation failed: " + e.getMessage(), e);
+            throw new XmlValidationException("XML validation failed", e);
+        }
+    }
+    
+    /**
+     * Schema used by {@link #validateXml(byte[])}.
+     * By default {@link #getSchema(SchemaFactory)} is compiled once per template instance;
+     * Spring-managed subclasses can return a schema shared through the SchemaRegistry instead.
+     */
+    protected CompiledSchema getCompiledSchema() throws Exception {
+        CompiledSchema schema = compiledSchema;
+        if (schema != null) {
+            return schema;
         }
+        schemaLock.lock();
+        try {
+            if (compiledSchema == null) {
+                SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+                compiledSchema = CompiledSchema.of(getSchema(factory));
+            }
+            return compiledSchema;
+        } finally {
+            schemaLock.unlock();
+        }
+    }
+    
+    /**
+     * Where stage timings are recorded. The global Micrometer registry by default;
+     * Spring-managed subclasses can return the application's PipelineMetrics bean.
+     */
+    protected PipelineMetrics getPipelineMetrics() {
+        return PipelineMetrics.global();
     }
     
     // Abstract methods - must be implemented by subclasses
     protected abstract Schema getSchema(SchemaFactory factory) throws Exception;
-    protected abstract Object parseXml(String xmlContent);
+    protected abstract Object parseXml(byte[] xmlBytes);
     protected abstract ExtractedData extractData(Object xmlObject);
     protected abstract String saveData(ExtractedData data);
     
     // Hook methods - can be overridden by subclasses
     protected void onProcessingStarted() {
-        log.info("🚀 Processing started");
+        log.debug("🚀 Processing started");
     }
     
-    protected void onBase64Decoded(String xmlContent) {
-        log.debug("✅ Base64 decoded successfully, length: {}", xmlContent.length());
+    protected void onBase64Decoded(byte[] xmlBytes) {
+        log.debug("✅ Base64 decoded successfully, length: {}", xmlBytes.length);
     }
     
     protected void onXmlValidated() {
-        log.info("✅ XML validation completed");
+        log.debug("✅ XML validation completed");
     }
     
     protected void onXmlParsed(Object xmlObject) {
-        log.info("✅ XML parsing completed: {}", xmlObject.getClass().getSimpleName());
+        log.debug("✅ XML parsing completed: {}", xmlObject.getClass().getSimpleName());
     }
     
     protected void onDataExtracted(ExtractedData data) {
-        log.info("📊 Data extracted: Type={}, NIP={}, P1={}, P2={}", 
+        log.debug("📊 Data extracted: Type={}, NIP={}, P1={}, P2={}", 
             data.getProcessorType(), data.getNip(), data.getP1(), data.getP2());
     }
     
     protected void onDataSaved(String invoiceId) {
-        log.info("💾 Data saved successfully with ID: {}", invoiceId);
+        log.debug("💾 Data saved successfully with ID: {}", invoiceId);
     }
     
     protected void onProcessingCompleted(String invoiceId) {
@@ -129,6 +169,13 @@ public abstract class InvoiceProcessingTemplate {
     }
     
     protected void onProcessingFailed(Exception e) {
+        if (e instanceof InvoiceProcessingException expected) {
+            // A rejected document, not a fault - one line without the stack, as GlobalExceptionHandler logs it
+            String detail = expected.getDetail();
+            log.warn("❌ Processing failed: {}: {}{}", expected.getErrorCode(), expected.getMessage(),
+                detail != null ? " - " + detail : "");
+            return;
+        }
         log.error("❌ Processing failed: {}", e.getMessage(), e);
     }
 } 
\ No newline at end of file
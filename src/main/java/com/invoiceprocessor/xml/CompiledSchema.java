@@ -0,0 +1,106 @@
+package com.invoiceprocessor.xml;
+
+import org.xml.sax.SAXException;
+
+import javax.xml.transform.Source;
+import javax.xml.validation.Schema;
+import javax.xml.validation.Validator;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A compiled, thread-safe {@link Schema} together with a pool of reusable validators.
+ * Validators are not thread-safe, so each validation borrows one and returns it afterwards.
+ */
+public final class CompiledSchema {
+
+    public static final int DEFAULT_MAX_IDLE_VALIDATORS = 32;
+
+    private final Schema schema;
+    private final long sourceLastModified;
+    private final long compileTimeNanos;
+    private final int maxIdleValidators;
+
+    private final Queue<Validator> idleValidators = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicLong validatorsCreated = new AtomicLong();
+    private final AtomicLong nextStaleCheckAt = new AtomicLong();
+
+    public CompiledSchema(Schema schema, long sourceLastModified, long compileTimeNanos, int maxIdleValidators) {
+        this.schema = schema;
+        this.sourceLastModified = sourceLastModified;
+        this.compileTimeNanos = compileTimeNanos;
+        this.maxIdleValidators = maxIdleValidators;
+    }
+
+    public static CompiledSchema of(Schema schema) {
+        return new CompiledSchema(schema, 0L, 0L, DEFAULT_MAX_IDLE_VALIDATORS);
+    }
+
+    /**
+     * Validate the source with a pooled validator
+     */
+    public void validate(Source source) throws SAXException, IOException {
+        Validator validator = acquire();
+        try {
+            validator.validate(source);
+        } finally {
+            release(validator);
+        }
+    }
+
+    private Validator acquire() {
+        Validator validator = idleValidators.poll();
+        if (validator != null) {
+            idleCount.decrementAndGet();
+            return validator;
+        }
+        validatorsCreated.incrementAndGet();
+        return schema.newValidator();
+    }
+
+    private void release(Validator validator) {
+        try {
+            validator.reset();
+        } catch (UnsupportedOperationException e) {
+            // Implementation cannot be reset - let it be garbage collected
+            return;
+        }
+        if (idleCount.incrementAndGet() <= maxIdleValidators) {
+            idleValidators.offer(validator);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Claim the next staleness check slot; only one caller per interval wins
+     */
+    boolean tryClaimStaleCheck(long nowMillis, long intervalMillis) {
+        long next = nextStaleCheckAt.get();
+        return nowMillis >= next && nextStaleCheckAt.compareAndSet(next, nowMillis + intervalMillis);
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    public long getSourceLastModified() {
+        return sourceLastModified;
+    }
+
+    public long getCompileTimeNanos() {
+        return compileTimeNanos;
+    }
+
+    public long getValidatorsCreated() {
+        return validatorsCreated.get();
+    }
+
+    public int getIdleValidators() {
+        return idleCount.get();
+    }
+}
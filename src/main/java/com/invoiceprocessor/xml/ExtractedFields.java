@@ -0,0 +1,47 @@
+package com.invoiceprocessor.xml;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Values collected by a {@link PathMatcher} for one document, by output name.
+ * Fields whose element does not occur in the document are null.
+ */
+public final class ExtractedFields {
+
+    private final Map<String, Integer> slots;
+    private final List<String> fieldNames;
+    private final String[] values;
+
+    ExtractedFields(Map<String, Integer> slots, List<String> fieldNames, String[] values) {
+        this.slots = slots;
+        this.fieldNames = fieldNames;
+        this.values = values;
+    }
+
+    public String get(String field) {
+        Integer slot = slots.get(field);
+        if (slot == null) {
+            throw new IllegalArgumentException("Field '" + field + "' is not mapped");
+        }
+        return values[slot];
+    }
+
+    public boolean isPresent(String field) {
+        return get(field) != null;
+    }
+
+    /**
+     * The fields found in the document, in mapping order
+     */
+    public Map<String, String> asMap() {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                map.put(fieldNames.get(i), values[i]);
+            }
+        }
+        return map;
+    }
+}
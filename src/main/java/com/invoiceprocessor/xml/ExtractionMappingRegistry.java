@@ -0,0 +1,78 @@
+package com.invoiceprocessor.xml;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Loads the declarative field mappings and compiles them into one {@link PathMatcher} per root element.
+ * Mapping errors fail startup rather than the first request.
+ */
+@Component
+@Slf4j
+public class ExtractionMappingRegistry {
+
+    public static final String DEFAULT_MAPPINGS_LOCATION = "classpath:extraction/mappings.properties";
+
+    private static final String NAMESPACE_KEY = "namespace";
+
+    private final Map<QName, PathMatcher> matchers;
+
+    public ExtractionMappingRegistry(
+            @Value("${invoice.extraction.mappings:" + DEFAULT_MAPPINGS_LOCATION + "}") Resource mappings) {
+        Properties properties = new Properties();
+        try (InputStream in = mappings.getInputStream()) {
+            properties.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read extraction mappings " + mappings.getDescription(), e);
+        }
+        this.matchers = compile(properties, mappings.getDescription());
+    }
+
+    public Optional<PathMatcher> getMatcher(QName rootElement) {
+        return Optional.ofNullable(matchers.get(rootElement));
+    }
+
+    private static Map<QName, PathMatcher> compile(Properties properties, String source) {
+        String namespace = properties.getProperty(NAMESPACE_KEY, XMLConstants.NULL_NS_URI).strip();
+
+        // Sorted so slot order does not depend on Properties hashing
+        Map<String, Map<String, String>> pathsByRoot = new TreeMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (NAMESPACE_KEY.equals(key)) {
+                continue;
+            }
+            int dot = key.indexOf('.');
+            if (dot <= 0 || dot == key.length() - 1) {
+                throw new IllegalStateException("Invalid extraction mapping key '" + key + "' in " + source
+                    + ", expected <root element>.<output name>");
+            }
+            pathsByRoot.computeIfAbsent(key.substring(0, dot), root -> new TreeMap<>())
+                .put(key.substring(dot + 1), properties.getProperty(key));
+        }
+
+        Map<QName, PathMatcher> matchers = new HashMap<>();
+        pathsByRoot.forEach((root, paths) -> {
+            try {
+                matchers.put(new QName(namespace, root), PathMatcher.compile(paths));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Invalid extraction mapping for " + root + " in " + source + ": "
+                    + e.getMessage(), e);
+            }
+            log.info("Compiled {} extraction mappings for {}", paths.size(), root);
+        });
+        return Map.copyOf(matchers);
+    }
+}
@@ -0,0 +1,15 @@
+package com.invoiceprocessor.xml;
+
+/**
+ * How extracted fields are read from a validated document
+ */
+public enum ExtractionMode {
+    /**
+     * Unmarshal the full JAXB object graph and use an XmlProcessorStrategy
+     */
+    JAXB,
+    /**
+     * Pull only the needed paths with StAX and stop as soon as all are found
+     */
+    STAX
+}
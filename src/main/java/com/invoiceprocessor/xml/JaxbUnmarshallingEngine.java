@@ -0,0 +1,156 @@
+package com.invoiceprocessor.xml;
+
+import com.invoiceprocessor.exception.XmlUnmarshallingException;
+import com.invoiceprocessor.exception.XmlValidationException;
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBElement;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Unmarshaller;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Unmarshals documents of the generated JAXB model.
+ * The JAXBContext is built once; Unmarshaller instances (not thread-safe) are kept in a bounded,
+ * lock-free pool instead of thread locals so that virtual threads do not each create their own.
+ */
+@Component
+@Slf4j
+public class JaxbUnmarshallingEngine {
+
+    public static final String CONTEXT_PATH = "com.example.generated";
+    public static final int DEFAULT_POOL_SIZE = 32;
+
+    private static final String WARM_UP_DOCUMENT =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<Invoice xmlns=\"http://crd.gov.pl/wzor/2023/06/29/12648/\">"
+            + "<InvoiceNumber>WARM-UP</InvoiceNumber>"
+            + "</Invoice>";
+
+    private final JAXBContext context;
+    private final int maxPoolSize;
+
+    private final Queue<Unmarshaller> idleUnmarshallers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicLong unmarshallersCreated = new AtomicLong();
+
+    public JaxbUnmarshallingEngine(
+            @Value("${invoice.jaxb.pool-size:" + DEFAULT_POOL_SIZE + "}") int maxPoolSize,
+            @Value("${invoice.jaxb.warm-up:true}") boolean warmUp) {
+        this.maxPoolSize = maxPoolSize;
+        this.context = createContext();
+        if (warmUp) {
+            warmUp();
+        }
+    }
+
+    private static JAXBContext createContext() {
+        long start = System.nanoTime();
+        try {
+            JAXBContext context = JAXBContext.newInstance(CONTEXT_PATH);
+            log.info("JAXB context for {} created in {} ms", CONTEXT_PATH,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return context;
+        } catch (JAXBException e) {
+            throw new IllegalStateException("Failed to create JAXB context for " + CONTEXT_PATH, e);
+        }
+    }
+
+    /**
+     * Run one small document through the pool so the first real request does not pay
+     * for lazy initialisation inside the JAXB runtime
+     */
+    private void warmUp() {
+        long start = System.nanoTime();
+        Object warmUpResult = unmarshal(new StreamSource(
+            new ByteArrayInputStream(WARM_UP_DOCUMENT.getBytes(StandardCharsets.UTF_8))));
+        log.info("JAXB warm-up completed in {} ms ({})",
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), warmUpResult.getClass().getSimpleName());
+    }
+
+    /**
+     * Unmarshal the source, unwrapping any JAXBElement root
+     */
+    public Object unmarshal(Source source) {
+        Unmarshaller unmarshaller = acquire();
+        try {
+            return unwrap(unmarshaller.unmarshal(source));
+        } catch (JAXBException e) {
+            throw new XmlUnmarshallingException("XML unmarshalling failed", e);
+        } finally {
+            release(unmarshaller);
+        }
+    }
+    
+    /**
+     * Unmarshal while validating against the schema, so the document is parsed only once.
+     * Parse and validation failures are reported as XmlValidationException with the same
+     * message format as the XSD handler of the validation chain.
+     */
+    public Object unmarshal(Source source, Schema schema) {
+        Unmarshaller unmarshaller = acquire();
+        unmarshaller.setSchema(schema);
+        try {
+            return unwrap(unmarshaller.unmarshal(source));
+        } catch (JAXBException e) {
+            // The parser message is the linked exception, reported as the detail
+            throw new XmlValidationException("XSD schema validation failed", e);
+        } finally {
+            unmarshaller.setSchema(null);
+            release(unmarshaller);
+        }
+    }
+    
+    private static Object unwrap(Object result) {
+        if (result instanceof JAXBElement) {
+            return ((JAXBElement<?>) result).getValue();
+        }
+        return result;
+    }
+
+    private Unmarshaller acquire() {
+        Unmarshaller unmarshaller = idleUnmarshallers.poll();
+        if (unmarshaller != null) {
+            idleCount.decrementAndGet();
+            return unmarshaller;
+        }
+        try {
+            unmarshallersCreated.incrementAndGet();
+            return context.createUnmarshaller();
+        } catch (JAXBException e) {
+            throw new XmlUnmarshallingException("Failed to create unmarshaller", e);
+        }
+    }
+
+    private void release(Unmarshaller unmarshaller) {
+        if (idleCount.incrementAndGet() <= maxPoolSize) {
+            idleUnmarshallers.offer(unmarshaller);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+
+    public JAXBContext getContext() {
+        return context;
+    }
+
+    public long getUnmarshallersCreated() {
+        return unmarshallersCreated.get();
+    }
+
+    public int getIdleUnmarshallers() {
+        return idleCount.get();
+    }
+}
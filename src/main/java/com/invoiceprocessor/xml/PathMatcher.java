@@ -0,0 +1,126 @@
+package com.invoiceprocessor.xml;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Element paths of one root element compiled into a state machine.
+ * Each state is an element path prefix with a transition per child element name; states at the end
+ * of a mapped path own an output slot. Matching walks a document once: unknown children are skipped
+ * without descending, values go into a slot array, and reading stops once every slot is filled.
+ */
+public final class PathMatcher {
+
+    private static final class State {
+        private final Map<String, State> transitions = new HashMap<>();
+        private int slot = -1;
+    }
+
+    private final State start;
+    private final List<String> fieldNames;
+    private final Map<String, Integer> slots;
+
+    private PathMatcher(State start, List<String> fieldNames) {
+        this.start = start;
+        this.fieldNames = List.copyOf(fieldNames);
+        Map<String, Integer> slots = new HashMap<>();
+        for (int i = 0; i < fieldNames.size(); i++) {
+            slots.put(fieldNames.get(i), i);
+        }
+        this.slots = Map.copyOf(slots);
+    }
+
+    /**
+     * Compile output name to path mappings, e.g. "currency" to "Fa/KodWaluty".
+     * A path may not be both a field and the parent of another field.
+     */
+    public static PathMatcher compile(Map<String, String> pathsByField) {
+        State start = new State();
+        List<String> fieldNames = List.copyOf(pathsByField.keySet());
+        for (int slot = 0; slot < fieldNames.size(); slot++) {
+            String field = fieldNames.get(slot);
+            String path = pathsByField.get(field);
+            if (path == null || path.isBlank()) {
+                throw new IllegalArgumentException("Empty path for field '" + field + "'");
+            }
+            State state = start;
+            for (String step : path.strip().split("/")) {
+                if (step.isEmpty()) {
+                    throw new IllegalArgumentException("Invalid path '" + path + "' for field '" + field + "'");
+                }
+                if (state.slot >= 0) {
+                    throw new IllegalArgumentException("Path '" + path + "' of field '" + field
+                        + "' runs through the element of field '" + fieldNames.get(state.slot) + "'");
+                }
+                state = state.transitions.computeIfAbsent(step, name -> new State());
+            }
+            if (state.slot >= 0 || !state.transitions.isEmpty()) {
+                throw new IllegalArgumentException("Path '" + path + "' of field '" + field
+                    + "' overlaps the path of another field");
+            }
+            state.slot = slot;
+        }
+        return new PathMatcher(start, fieldNames);
+    }
+
+    public List<String> getFieldNames() {
+        return fieldNames;
+    }
+
+    /**
+     * Collect the mapped values below the root element the reader is positioned on
+     */
+    public ExtractedFields match(XMLStreamReader reader) throws XMLStreamException {
+        String[] values = new String[fieldNames.size()];
+        int found = 0;
+        State[] parents = new State[8];
+        int depth = 0;
+        State current = start;
+
+        while (found < values.length && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                State next = current.transitions.get(reader.getLocalName());
+                if (next == null) {
+                    skipElement(reader);
+                } else if (next.slot >= 0) {
+                    // Reads up to and including the matching end tag; the first occurrence wins
+                    String text = reader.getElementText();
+                    if (values[next.slot] == null) {
+                        values[next.slot] = text;
+                        found++;
+                    }
+                } else {
+                    if (depth == parents.length) {
+                        parents = Arrays.copyOf(parents, depth * 2);
+                    }
+                    parents[depth++] = current;
+                    current = next;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if (depth == 0) {
+                    break; // end of the root element
+                }
+                current = parents[--depth];
+            }
+        }
+        return new ExtractedFields(slots, fieldNames, values);
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.invoiceprocessor.xml;
+
+import com.invoiceprocessor.exception.XmlUnmarshallingException;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+
+/**
+ * Reads a document only up to its first start element to find out what it is.
+ * Only the prolog and the root start tag are parsed, whatever the document size.
+ */
+public final class RootElementSniffer {
+
+    private static final XMLInputFactory INPUT_FACTORY = newInputFactory();
+
+    private RootElementSniffer() {
+    }
+
+    public static QName sniff(byte[] xml) {
+        XMLStreamReader reader = null;
+        try {
+            reader = INPUT_FACTORY.createXMLStreamReader(new ByteArrayInputStream(xml));
+            return advanceToRoot(reader);
+        } catch (XMLStreamException e) {
+            throw new XmlUnmarshallingException("Failed to read root element", e);
+        } finally {
+            close(reader);
+        }
+    }
+
+    /**
+     * Move the reader onto the root start element and return its name
+     */
+    public static QName advanceToRoot(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                return reader.getName();
+            }
+        }
+        throw new XmlUnmarshallingException("Failed to read root element: document has no root element");
+    }
+
+    /**
+     * StAX input factory with DTDs and external entities disabled; thread-safe once configured
+     */
+    public static XMLInputFactory newInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    static void close(XMLStreamReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                // Nothing left to read
+            }
+        }
+    }
+}
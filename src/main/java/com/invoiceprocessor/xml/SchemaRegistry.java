@@ -0,0 +1,151 @@
+package com.invoiceprocessor.xml;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import javax.xml.XMLConstants;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of compiled XSD schemas.
+ * Each schema is compiled once and shared; with hot reload enabled the source file
+ * is re-checked periodically and recompiled when it changes.
+ */
+@Component
+@Slf4j
+public class SchemaRegistry {
+
+    public static final String DEFAULT_SCHEMA_LOCATION = "xsd/schemat.xsd";
+    public static final String TARGET_NAMESPACE = "http://crd.gov.pl/wzor/2023/06/29/12648/";
+
+    private final Map<String, CompiledSchema> schemas = new ConcurrentHashMap<>();
+    private final boolean hotReload;
+    private final long reloadCheckIntervalMillis;
+    private final int maxIdleValidators;
+
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong compilations = new AtomicLong();
+    private final AtomicLong totalCompileTimeNanos = new AtomicLong();
+
+    public SchemaRegistry(
+            MeterRegistry meterRegistry,
+            @Value("${invoice.schema.hot-reload:false}") boolean hotReload,
+            @Value("${invoice.schema.reload-check-interval-ms:5000}") long reloadCheckIntervalMillis,
+            @Value("${invoice.schema.max-idle-validators:" + CompiledSchema.DEFAULT_MAX_IDLE_VALIDATORS + "}") int maxIdleValidators) {
+        this.hotReload = hotReload;
+        this.reloadCheckIntervalMillis = reloadCheckIntervalMillis;
+        this.maxIdleValidators = maxIdleValidators;
+
+        FunctionCounter.builder("invoice.schema.cache.hits", cacheHits, AtomicLong::get)
+            .description("Schema lookups served by an already compiled schema")
+            .register(meterRegistry);
+        FunctionTimer.builder("invoice.schema.compile", this,
+                registry -> registry.compilations.get(), registry -> registry.totalCompileTimeNanos.get(),
+                TimeUnit.NANOSECONDS)
+            .description("XSD compilations, at startup and on hot reload")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Compile the default schema at startup so no request pays for it
+     */
+    @PostConstruct
+    public void preload() {
+        getDefaultSchema();
+    }
+
+    public CompiledSchema getDefaultSchema() {
+        return getSchema(DEFAULT_SCHEMA_LOCATION);
+    }
+
+    /**
+     * Get the compiled schema for a classpath location, compiling it on first use
+     */
+    public CompiledSchema getSchema(String location) {
+        CompiledSchema current = schemas.get(location);
+        if (current != null && !isStale(location, current)) {
+            cacheHits.incrementAndGet();
+            return current;
+        }
+
+        return schemas.compute(location, (key, existing) -> {
+            if (existing != current) {
+                // Another thread already compiled or reloaded it
+                return existing;
+            }
+            try {
+                return compile(key);
+            } catch (IllegalStateException e) {
+                if (existing == null) {
+                    throw e;
+                }
+                log.error("Schema reload failed for {}, keeping previous version: {}", key, e.getMessage());
+                return existing;
+            }
+        });
+    }
+
+    private boolean isStale(String location, CompiledSchema schema) {
+        if (!hotReload || !schema.tryClaimStaleCheck(System.currentTimeMillis(), reloadCheckIntervalMillis)) {
+            return false;
+        }
+        long lastModified = lastModified(location);
+        boolean stale = lastModified > schema.getSourceLastModified();
+        if (stale) {
+            log.info("Schema {} changed on disk, recompiling", location);
+        }
+        return stale;
+    }
+
+    private CompiledSchema compile(String location) {
+        long start = System.nanoTime();
+        try {
+            // SchemaFactory is not thread-safe, so a fresh one is used per compilation
+            SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+            ClassPathResource xsdResource = new ClassPathResource(location);
+            Schema schema = factory.newSchema(xsdResource.getURL());
+
+            long elapsed = System.nanoTime() - start;
+            compilations.incrementAndGet();
+            totalCompileTimeNanos.addAndGet(elapsed);
+            log.info("Compiled schema {} in {} ms", location, TimeUnit.NANOSECONDS.toMillis(elapsed));
+
+            return new CompiledSchema(schema, lastModified(location), elapsed, maxIdleValidators);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to compile schema " + location + ": " + e.getMessage(), e);
+        }
+    }
+
+    private long lastModified(String location) {
+        try {
+            return new ClassPathResource(location).lastModified();
+        } catch (IOException e) {
+            // Resource is not backed by a file (e.g. inside a jar) - treat as unchanged
+            return 0L;
+        }
+    }
+
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    public long getCompilations() {
+        return compilations.get();
+    }
+
+    public long getTotalCompileTimeNanos() {
+        return totalCompileTimeNanos.get();
+    }
+}
@@ -0,0 +1,76 @@
+package com.invoiceprocessor.xml;
+
+import com.invoiceprocessor.dto.ExtractedData;
+import com.invoiceprocessor.exception.DataExtractionException;
+import com.invoiceprocessor.exception.XmlUnmarshallingException;
+import com.invoiceprocessor.strategy.StreamingProcessorStrategy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Extracts data with a single StAX pass instead of unmarshalling the full JAXB object graph.
+ * The fields of each root element come from the compiled extraction mappings; the matcher skips
+ * subtrees without mapped paths and stops as soon as every field has been found.
+ * Documents are expected to be schema-validated beforehand.
+ */
+@Component
+@Slf4j
+public class StaxExtractionEngine {
+
+    private record RootHandler(StreamingProcessorStrategy strategy, PathMatcher matcher) {
+    }
+
+    private final XMLInputFactory inputFactory;
+    private final Map<QName, RootHandler> handlersByRoot;
+
+    public StaxExtractionEngine(List<StreamingProcessorStrategy> strategies, ExtractionMappingRegistry mappingRegistry) {
+        this.inputFactory = RootElementSniffer.newInputFactory();
+
+        Map<QName, RootHandler> handlers = new HashMap<>();
+        for (StreamingProcessorStrategy strategy : strategies) {
+            QName root = strategy.getRootElement();
+            PathMatcher matcher = mappingRegistry.getMatcher(root).orElseThrow(() -> new IllegalStateException(
+                "No extraction mappings for " + root + " required by " + strategy.getStrategyName()));
+            Set<String> missing = strategy.getRequiredFields().stream()
+                .filter(field -> !matcher.getFieldNames().contains(field))
+                .collect(Collectors.toSet());
+            if (!missing.isEmpty()) {
+                throw new IllegalStateException("Extraction mappings for " + root + " lack fields " + missing
+                    + " required by " + strategy.getStrategyName());
+            }
+            if (handlers.put(root, new RootHandler(strategy, matcher)) != null) {
+                throw new IllegalStateException("More than one streaming processor for " + root);
+            }
+        }
+        this.handlersByRoot = Map.copyOf(handlers);
+    }
+
+    public ExtractedData extract(byte[] xml) {
+        XMLStreamReader reader = null;
+        try {
+            reader = inputFactory.createXMLStreamReader(new ByteArrayInputStream(xml));
+            QName root = RootElementSniffer.advanceToRoot(reader);
+            RootHandler handler = handlersByRoot.get(root);
+            if (handler == null) {
+                throw new DataExtractionException("No streaming processor found for root element: " + root);
+            }
+            log.debug("Streaming extraction with {}", handler.strategy().getStrategyName());
+            return handler.strategy().extractData(handler.matcher().match(reader));
+        } catch (XMLStreamException e) {
+            throw new XmlUnmarshallingException("XML streaming extraction failed", e);
+        } finally {
+            RootElementSniffer.close(reader);
+        }
+    }
+}
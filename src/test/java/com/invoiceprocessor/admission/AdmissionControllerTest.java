@@ -0,0 +1,139 @@
+package com.invoiceprocessor.admission;
+
+import com.invoiceprocessor.exception.AdmissionRejectedException;
+import com.invoiceprocessor.exception.ErrorCode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("AdmissionController Tests")
+class AdmissionControllerTest {
+
+    private static final long THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Should grow the limit on fast completions under load and back off on slow ones")
+    void shouldAdaptLimitToLatency() {
+        // Given
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 2, 6, THRESHOLD_NANOS, 0.5);
+        for (int i = 0; i < 4; i++) {
+            assertThat(limit.tryAcquire()).isTrue();
+        }
+        assertThat(limit.tryAcquire()).isFalse();
+
+        // When - fast completions while the limit is in use
+        limit.release(THRESHOLD_NANOS / 2, false);
+        limit.release(THRESHOLD_NANOS / 2, false);
+
+        // Then
+        assertThat(limit.getLimit()).isEqualTo(6);
+
+        // When - slow completion, then an overloaded one
+        limit.release(THRESHOLD_NANOS * 2, false);
+        assertThat(limit.getLimit()).isEqualTo(3);
+        limit.release(0, true);
+
+        // Then - never below the minimum
+        assertThat(limit.getLimit()).isEqualTo(2);
+        assertThat(limit.getInFlight()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should not grow the limit while it is mostly unused")
+    void shouldNotGrowWhenIdle() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 2, 20, THRESHOLD_NANOS, 0.9);
+
+        limit.tryAcquire();
+        limit.release(0, false);
+
+        assertThat(limit.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Should keep bulk completions out of the latency signal but back off when they overload")
+    void shouldNotSampleBulkLatency() {
+        // Given - a zero threshold makes every sampled completion slow
+        AdmissionController controller = new AdmissionController(meterRegistry, true, 8, 2, 8, 0, 0.5,
+            1_000_000, 4096, 1);
+
+        // When
+        controller.release(controller.admit(100, true), false);
+
+        // Then
+        assertThat(controller.getLimit()).isEqualTo(8);
+
+        // When
+        controller.release(controller.admit(100, false), false);
+        controller.release(controller.admit(100, true), true);
+
+        // Then
+        assertThat(controller.getLimit()).isEqualTo(2);
+        assertThat(controller.getInFlightBytes()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should shed requests beyond the concurrency limit and release their bytes")
+    void shouldRejectBeyondConcurrencyLimit() {
+        // Given
+        AdmissionController controller = controller(2, 1_000_000);
+        controller.admit(100);
+        controller.admit(100);
+
+        // Then
+        assertThatThrownBy(() -> controller.admit(100))
+            .isInstanceOf(AdmissionRejectedException.class)
+            .satisfies(e -> {
+                assertThat(((AdmissionRejectedException) e).getErrorCode()).isEqualTo(ErrorCode.CONCURRENCY_LIMIT_EXCEEDED);
+                assertThat(((AdmissionRejectedException) e).getRetryAfterSeconds()).isEqualTo(1);
+            });
+        assertThat(controller.getInFlightBytes()).isEqualTo(200);
+        assertThat(meterRegistry.get(AdmissionController.REJECTION_COUNTER).tag("reason", "concurrency")
+            .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should shed requests beyond the byte budget but admit an oversized one alone")
+    void shouldEnforceByteBudget() {
+        // Given
+        AdmissionController controller = controller(10, 1000);
+        AdmissionController.Permit first = controller.admit(600);
+
+        // Then
+        assertThatThrownBy(() -> controller.admit(500))
+            .isInstanceOf(AdmissionRejectedException.class)
+            .satisfies(e -> assertThat(((AdmissionRejectedException) e).getErrorCode())
+                .isEqualTo(ErrorCode.PAYLOAD_BUDGET_EXCEEDED));
+
+        // When
+        controller.release(first, false);
+
+        // Then
+        AdmissionController.Permit oversized = controller.admit(5000);
+        assertThat(controller.getInFlightBytes()).isEqualTo(5000);
+        controller.release(oversized, false);
+        assertThat(controller.getInFlightBytes()).isZero();
+        assertThat(meterRegistry.get("invoice.admission.inflight").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should charge a default size for requests without Content-Length")
+    void shouldChargeUnknownLength() {
+        AdmissionController controller = controller(10, 1_000_000);
+
+        controller.admit(-1);
+
+        assertThat(controller.getInFlightBytes()).isEqualTo(4096);
+    }
+
+    private AdmissionController controller(int limit, long maxInFlightBytes) {
+        return new AdmissionController(meterRegistry, true, limit, 1, limit, 100, 0.9,
+            maxInFlightBytes, 4096, 1);
+    }
+}
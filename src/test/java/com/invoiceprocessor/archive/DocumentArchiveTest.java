@@ -0,0 +1,243 @@
+package com.invoiceprocessor.archive;
+
+import com.invoiceprocessor.dedup.DeduplicationCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.InflaterInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("DocumentArchive Tests")
+class DocumentArchiveTest {
+
+    private static final String FAKTURA = """
+        <?xml version="1.0" encoding="UTF-8"?>
+        <Faktura xmlns="http://crd.gov.pl/wzor/2023/06/29/12648/">
+            <Naglowek>
+                <KodFormularza>FA</KodFormularza>
+                <WariantFormularza>1</WariantFormularza>
+                <DataWytworzeniaFa>2023-12-01T10:30:00</DataWytworzeniaFa>
+                <SystemInfo>Test System v1.0</SystemInfo>
+            </Naglowek>
+            <Podmiot1>
+                <DaneIdentyfikacyjne>
+                    <NIP>1234567890</NIP>
+                    <Nazwa>Test Company</Nazwa>
+                </DaneIdentyfikacyjne>
+            </Podmiot1>
+            <Fa>
+                <KodWaluty>PLN</KodWaluty>
+                <P_1>2023-01-15</P_1>
+                <P_2>INV-001</P_2>
+            </Fa>
+        </Faktura>
+        """;
+
+    @TempDir
+    Path directory;
+
+    private SimpleMeterRegistry meterRegistry;
+    private DocumentArchive archive;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (archive != null) {
+            archive.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should store a document once per content hash and read it back")
+    void shouldStoreAndReadDocument() throws IOException {
+        // Given
+        archive = open(dictionary(), Long.MAX_VALUE);
+        byte[] xml = FAKTURA.getBytes(StandardCharsets.UTF_8);
+        String contentHash = DeduplicationCache.hash(xml);
+
+        // When
+        ArchiveLocation location = archive.store(contentHash, xml);
+        ArchiveLocation again = archive.store(contentHash, xml);
+
+        // Then
+        assertThat(again).isEqualTo(location);
+        assertThat(location.codec()).isEqualTo(ArchiveCodec.DEFLATE_DICTIONARY);
+        assertThat(location.storedLength()).isLessThan(xml.length / 2);
+        assertThat(read(location)).isEqualTo(xml);
+        assertThat(archive.find(contentHash)).contains(location);
+        assertThat(meterRegistry.get(DocumentArchive.DOCUMENT_COUNTER).tag("outcome", "duplicate")
+            .counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(DocumentArchive.BYTES_COUNTER).tag("kind", "raw")
+            .counter().count()).isEqualTo(xml.length);
+    }
+
+    @Test
+    @DisplayName("Should compress a small document at least twice as well with the dictionary")
+    void shouldCompressBetterWithDictionary() throws IOException {
+        // Given
+        byte[] xml = FAKTURA.getBytes(StandardCharsets.UTF_8);
+
+        // When
+        DeflateCompressor.Compressed plain = new DeflateCompressor(6, null, 1).compress(xml);
+        DeflateCompressor.Compressed preset = new DeflateCompressor(6, dictionary(), 1).compress(xml);
+
+        // Then
+        assertThat(plain.codec()).isEqualTo(ArchiveCodec.DEFLATE);
+        assertThat(preset.codec()).isEqualTo(ArchiveCodec.DEFLATE_DICTIONARY);
+        assertThat(preset.bytes().length * 2).isLessThanOrEqualTo(plain.bytes().length);
+    }
+
+    @Test
+    @DisplayName("Should keep plain zlib without a dictionary, servable as Content-Encoding: deflate")
+    void shouldTransferPlainZlibUnchanged() throws IOException {
+        // Given
+        archive = open(null, Long.MAX_VALUE);
+        byte[] xml = FAKTURA.getBytes(StandardCharsets.UTF_8);
+        ArchiveLocation location = archive.store(DeduplicationCache.hash(xml), xml);
+
+        // When
+        ByteArrayOutputStream stored = new ByteArrayOutputStream();
+        archive.transferStoredTo(location, Channels.newChannel(stored));
+
+        // Then - any zlib decoder reads it
+        assertThat(location.codec()).isEqualTo(ArchiveCodec.DEFLATE);
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(stored.toByteArray()))) {
+            assertThat(in.readAllBytes()).isEqualTo(xml);
+        }
+    }
+
+    @Test
+    @DisplayName("Should store incompressible documents as they are")
+    void shouldStoreIncompressibleDocument() throws IOException {
+        // Given
+        archive = open(null, Long.MAX_VALUE);
+        byte[] random = new byte[4096];
+        new Random(7).nextBytes(random);
+
+        // When
+        ArchiveLocation location = archive.store(DeduplicationCache.hash(random), random);
+
+        // Then
+        assertThat(location.codec()).isEqualTo(ArchiveCodec.STORED);
+        assertThat(location.storedLength()).isEqualTo(random.length);
+        assertThat(read(location)).isEqualTo(random);
+    }
+
+    @Test
+    @DisplayName("Should roll over to a new segment and rebuild the index on reopen")
+    void shouldRebuildIndexAcrossSegments() throws IOException {
+        // Given - segments small enough for one document each
+        archive = open(dictionary(), 64);
+        byte[] first = FAKTURA.getBytes(StandardCharsets.UTF_8);
+        byte[] second = FAKTURA.replace("INV-001", "INV-002").getBytes(StandardCharsets.UTF_8);
+        ArchiveLocation firstLocation = archive.store(DeduplicationCache.hash(first), first);
+        ArchiveLocation secondLocation = archive.store(DeduplicationCache.hash(second), second);
+        archive.close();
+
+        // When
+        archive = open(dictionary(), 64);
+
+        // Then
+        assertThat(secondLocation.segment()).isEqualTo(firstLocation.segment() + 1);
+        assertThat(archive.find(DeduplicationCache.hash(first))).contains(firstLocation);
+        assertThat(read(archive.find(DeduplicationCache.hash(second)).orElseThrow())).isEqualTo(second);
+        assertThat(meterRegistry.get("invoice.archive.entries").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should index sealed segments on disk and rebuild a missing index file from its segment")
+    void shouldIndexSealedSegmentsOnDisk() throws IOException {
+        // Given - one document per segment, so the first two are sealed
+        archive = open(dictionary(), 64);
+        List<byte[]> documents = List.of(
+            FAKTURA.getBytes(StandardCharsets.UTF_8),
+            FAKTURA.replace("INV-001", "INV-002").getBytes(StandardCharsets.UTF_8),
+            FAKTURA.replace("INV-001", "INV-003").getBytes(StandardCharsets.UTF_8));
+        List<ArchiveLocation> locations = new ArrayList<>();
+        for (byte[] document : documents) {
+            locations.add(archive.store(DeduplicationCache.hash(document), document));
+        }
+        archive.close();
+        Path firstIndex = directory.resolve("segment-00000001.idx");
+        assertThat(firstIndex).exists();
+        assertThat(directory.resolve("segment-00000002.idx")).exists();
+        assertThat(directory.resolve("segment-00000003.idx")).doesNotExist();
+
+        // When
+        Files.delete(firstIndex);
+        archive = open(dictionary(), 64);
+
+        // Then
+        assertThat(firstIndex).exists();
+        for (int i = 0; i < documents.size(); i++) {
+            assertThat(archive.find(DeduplicationCache.hash(documents.get(i)))).contains(locations.get(i));
+        }
+        assertThat(read(locations.get(0))).isEqualTo(documents.get(0));
+        assertThat(archive.find(DeduplicationCache.hash("<other/>".getBytes(StandardCharsets.UTF_8)))).isEmpty();
+        assertThat(meterRegistry.get("invoice.archive.entries").gauge().value()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should cut a torn record off the last segment and keep appending after it")
+    void shouldTruncateTornRecord() throws IOException {
+        // Given
+        archive = open(dictionary(), Long.MAX_VALUE);
+        byte[] first = FAKTURA.getBytes(StandardCharsets.UTF_8);
+        ArchiveLocation location = archive.store(DeduplicationCache.hash(first), first);
+        archive.close();
+        Path segment = archive.segmentPath(location);
+        long intactSize = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x49, 0x58, 0x41, 0x31, 1, 2, 3}));
+        }
+
+        // When
+        archive = open(dictionary(), Long.MAX_VALUE);
+        byte[] second = FAKTURA.replace("INV-001", "INV-002").getBytes(StandardCharsets.UTF_8);
+        ArchiveLocation secondLocation = archive.store(DeduplicationCache.hash(second), second);
+
+        // Then
+        assertThat(secondLocation.offset()).isEqualTo(intactSize + SegmentStore.HEADER_BYTES);
+        assertThat(read(archive.find(DeduplicationCache.hash(first)).orElseThrow())).isEqualTo(first);
+        assertThat(read(secondLocation)).isEqualTo(second);
+    }
+
+    private DocumentArchive open(byte[] dictionary, long segmentMaxBytes) throws IOException {
+        // A fresh registry per instance, the gauges of a reopened archive must not point at the old index
+        meterRegistry = new SimpleMeterRegistry();
+        DocumentArchive opened = new DocumentArchive(meterRegistry, true, directory, segmentMaxBytes,
+            new DeflateCompressor(6, dictionary, DeflateCompressor.DEFAULT_POOL_SIZE), false);
+        opened.open();
+        return opened;
+    }
+
+    private byte[] read(ArchiveLocation location) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        archive.writeTo(location, out);
+        return out.toByteArray();
+    }
+
+    private static byte[] dictionary() throws IOException {
+        try (InputStream in = new ClassPathResource("archive/faktura.dict").getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.invoiceprocessor.chain;
+
+import com.invoiceprocessor.dto.ValidationContext;
+import com.invoiceprocessor.exception.XmlValidationException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.annotation.Order;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("ValidationChainFactory Tests")
+class ValidationChainFactoryTest {
+
+    private final List<String> calls = new ArrayList<>();
+
+    @Test
+    @DisplayName("Should order handlers by @Order regardless of bean order")
+    void shouldOrderHandlers() {
+        // Given
+        ValidationChainFactory factory = new ValidationChainFactory(
+            List.of(new Second("second", false), new First("first", false)), true);
+
+        // When
+        factory.getValidationChain().handle(context());
+
+        // Then
+        assertThat(calls).containsExactly("first", "second");
+    }
+
+    @Test
+    @DisplayName("Should build per-type chains and fall back to the default chain")
+    void shouldBuildPerTypeChains() {
+        // Given
+        First common = new First("common", false);
+        TypeSpecific fakturaOnly = new TypeSpecific("faktura", "Faktura");
+        ValidationChainFactory factory = new ValidationChainFactory(List.of(fakturaOnly, common), true);
+
+        // Then
+        assertThat(factory.getValidationChain().getHandlers()).containsExactly(common);
+        assertThat(factory.getValidationChain("Faktura").getHandlers()).containsExactly(common, fakturaOnly);
+        assertThat(factory.getValidationChain("Invoice")).isSameAs(factory.getValidationChain());
+        assertThat(factory.getValidationChain(null)).isSameAs(factory.getValidationChain());
+    }
+
+    @Test
+    @DisplayName("Should hand out the same prebuilt chain on every call")
+    void shouldReusePrebuiltChain() {
+        ValidationChainFactory factory = new ValidationChainFactory(List.of(new First("first", false)), true);
+
+        assertThat(factory.getValidationChain()).isSameAs(factory.getValidationChain());
+        assertThatThrownBy(() -> factory.getValidationChain().getHandlers().add(new Second("second", false)))
+            .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    @DisplayName("Should stop at the first failure when short-circuiting")
+    void shouldShortCircuit() {
+        // Given
+        ValidationChainFactory factory = new ValidationChainFactory(
+            List.of(new First("first", true), new Second("second", true)), true);
+
+        // Then
+        assertThatThrownBy(() -> factory.getValidationChain().handle(context()))
+            .isInstanceOf(XmlValidationException.class)
+            .hasMessage("first failed");
+        assertThat(calls).containsExactly("first");
+    }
+
+    @Test
+    @DisplayName("Should run every handler and aggregate failures without short-circuit")
+    void shouldAggregateFailures() {
+        // Given
+        ValidationChainFactory factory = new ValidationChainFactory(
+            List.of(new First("first", true), new Second("second", true)), false);
+
+        // Then
+        assertThatThrownBy(() -> factory.getValidationChain().handle(context()))
+            .isInstanceOf(XmlValidationException.class)
+            .hasMessageContaining("first failed")
+            .hasMessageContaining("second failed")
+            .satisfies(e -> assertThat(e.getSuppressed()).hasSize(1));
+        assertThat(calls).containsExactly("first", "second");
+    }
+
+    @Test
+    @DisplayName("Should rethrow a single failure unchanged without short-circuit")
+    void shouldRethrowSingleFailure() {
+        ValidationChainFactory factory = new ValidationChainFactory(
+            List.of(new First("first", true), new Second("second", false)), false);
+
+        assertThatThrownBy(() -> factory.getValidationChain().handle(context()))
+            .hasMessage("first failed");
+        assertThat(calls).containsExactly("first", "second");
+    }
+
+    private static ValidationContext context() {
+        return new ValidationContext("<?xml version=\"1.0\"?><a/>".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private class RecordingHandler extends ValidationHandler {
+
+        private final String name;
+        private final boolean fail;
+
+        RecordingHandler(String name, boolean fail) {
+            this.name = name;
+            this.fail = fail;
+        }
+
+        @Override
+        protected boolean canHandle(ValidationContext context) {
+            return true;
+        }
+
+        @Override
+        protected void doValidation(ValidationContext context) {
+            calls.add(name);
+            if (fail) {
+                throw new XmlValidationException(name + " failed");
+            }
+        }
+
+        @Override
+        protected String getHandlerName() {
+            return name;
+        }
+    }
+
+    @Order(1)
+    private class First extends RecordingHandler {
+        First(String name, boolean fail) {
+            super(name, fail);
+        }
+    }
+
+    @Order(2)
+    private class Second extends RecordingHandler {
+        Second(String name, boolean fail) {
+            super(name, fail);
+        }
+    }
+
+    @Order(3)
+    private class TypeSpecific extends RecordingHandler {
+
+        private final String type;
+
+        TypeSpecific(String name, String type) {
+            super(name, false);
+            this.type = type;
+        }
+
+        @Override
+        public Set<String> getDocumentTypes() {
+            return Set.of(type);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.invoiceprocessor.chain;
+
+import com.invoiceprocessor.dto.ValidationContext;
+import com.invoiceprocessor.exception.XmlValidationException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("XmlFormatValidationHandler Tests")
+class XmlFormatValidationHandlerTest {
+
+    private final XmlFormatValidationHandler handler = new XmlFormatValidationHandler(1024, 4);
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "<?xml version=\"1.0\"?><a/>",
+        "\uFEFF  <?xml version=\"1.0\"?>\n<a x=\"1 > 0\"><b>5 > 3</b><c/></a>",
+        "<?xml version=\"1.0\"?><!-- <not a tag --><a><![CDATA[ <b> ]]></a><?pi <?>",
+        "<?xml version=\"1.0\"?><!DOCTYPE a [ <!ELEMENT a (#PCDATA)> ]><a>text</a>",
+        "<?xml version=\"1.0\"?><a><b><c><d/></c></b></a>"
+    })
+    @DisplayName("Should accept well-formed documents")
+    void shouldAcceptWellFormedDocuments(String xml) {
+        assertThatCode(() -> handler.handle(context(xml))).doesNotThrowAnyException();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "<?xml version=\"1.0\"?><a><b></a>",
+        "<?xml version=\"1.0\"?><a></a></a>",
+        "<?xml version=\"1.0\"?><a <b/></a>",
+        "<?xml version=\"1.0\"?><a>",
+        "<?xml version=\"1.0\"?><a><!-- unterminated </a>",
+        "<?xml version=\"1.0\"?><a attr=\"unterminated></a>"
+    })
+    @DisplayName("Should reject unbalanced markup")
+    void shouldRejectUnbalancedMarkup(String xml) {
+        assertThatThrownBy(() -> handler.handle(context(xml)))
+            .isInstanceOf(XmlValidationException.class)
+            .hasMessage("Invalid XML format: unbalanced tags");
+    }
+
+    @Test
+    @DisplayName("Should reject documents without a prolog or root element")
+    void shouldRejectMissingPrologOrRoot() {
+        assertThatThrownBy(() -> handler.handle(context("plain text")))
+            .isInstanceOf(XmlValidationException.class)
+            .hasMessage("XML must start with XML declaration");
+        assertThatThrownBy(() -> handler.handle(context("<?xml version=\"1.0\"?> text only")))
+            .isInstanceOf(XmlValidationException.class)
+            .hasMessage("Invalid XML format: missing root element");
+    }
+
+    @Test
+    @DisplayName("Should enforce the depth and size limits")
+    void shouldEnforceLimits() {
+        assertThatThrownBy(() -> handler.handle(context("<?xml version=\"1.0\"?><a><b><c><d><e></e></d></c></b></a>")))
+            .isInstanceOf(XmlValidationException.class)
+            .hasMessageContaining("maximum element depth of 4");
+        assertThatThrownBy(() -> handler.handle(context("<?xml version=\"1.0\"?><a>" + "x".repeat(1024) + "</a>")))
+            .isInstanceOf(XmlValidationException.class)
+            .hasMessageContaining("maximum size of 1024 bytes");
+    }
+
+    private static ValidationContext context(String xml) {
+        return new ValidationContext(xml.getBytes(StandardCharsets.UTF_8));
+    }
+}
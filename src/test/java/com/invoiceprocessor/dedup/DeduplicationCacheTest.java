@@ -0,0 +1,99 @@
+package com.invoiceprocessor.dedup;
+
+import com.invoiceprocessor.persistence.JdbcConcurrencyLimiter;
+import com.invoiceprocessor.repository.InvoiceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DeduplicationCache Tests")
+class DeduplicationCacheTest {
+
+    @Mock
+    private InvoiceRepository invoiceRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private DeduplicationCache deduplicationCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        deduplicationCache = new DeduplicationCache(
+            invoiceRepository, new JdbcConcurrencyLimiter(10, 1000), meterRegistry, true, 2);
+    }
+
+    @Test
+    @DisplayName("Should hash identical bytes to the same hex SHA-256")
+    void shouldHashContent() {
+        String hash = DeduplicationCache.hash("<a/>".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(hash).hasSize(64).matches("[0-9a-f]+");
+        assertThat(DeduplicationCache.hash("<a/>".getBytes(StandardCharsets.UTF_8))).isEqualTo(hash);
+        assertThat(DeduplicationCache.hash("<b/>".getBytes(StandardCharsets.UTF_8))).isNotEqualTo(hash);
+    }
+
+    @Test
+    @DisplayName("Should answer remembered hashes from the cache without querying the database")
+    void shouldAnswerFromCache() {
+        // Given
+        deduplicationCache.remember("h1", "1");
+
+        // When & Then
+        assertThat(deduplicationCache.findInvoiceId("h1")).contains("1");
+        verifyNoInteractions(invoiceRepository);
+        assertThat(lookups("cache_hit")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should fall back to the content hash column and cache what it finds")
+    void shouldFallBackToDatabase() {
+        // Given
+        when(invoiceRepository.findIdByContentHash("h1")).thenReturn(Optional.of(5L));
+        when(invoiceRepository.findIdByContentHash("h2")).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThat(deduplicationCache.findInvoiceId("h1")).contains("5");
+        assertThat(deduplicationCache.findInvoiceId("h1")).contains("5");
+        assertThat(deduplicationCache.findInvoiceId("h2")).isEmpty();
+
+        verify(invoiceRepository, times(1)).findIdByContentHash("h1");
+        assertThat(lookups("store_hit")).isEqualTo(1);
+        assertThat(lookups("cache_hit")).isEqualTo(1);
+        assertThat(lookups("miss")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used hash when full")
+    void shouldEvictLeastRecentlyUsed() {
+        // Given
+        when(invoiceRepository.findIdByContentHash(anyString())).thenReturn(Optional.empty());
+        deduplicationCache.remember("h1", "1");
+        deduplicationCache.remember("h2", "2");
+        deduplicationCache.findInvoiceId("h1");
+
+        // When
+        deduplicationCache.remember("h3", "3");
+
+        // Then
+        assertThat(deduplicationCache.size()).isEqualTo(2);
+        assertThat(deduplicationCache.findInvoiceId("h1")).contains("1");
+        assertThat(deduplicationCache.findInvoiceId("h2")).isEmpty();
+        assertThat(meterRegistry.get(DeduplicationCache.EVICTION_COUNTER).counter().count()).isEqualTo(1);
+    }
+
+    private double lookups(String result) {
+        return meterRegistry.get(DeduplicationCache.LOOKUP_COUNTER).tag("result", result).counter().count();
+    }
+}
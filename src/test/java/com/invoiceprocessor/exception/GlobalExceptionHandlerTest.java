@@ -1,6 +1,7 @@
 package com.invoiceprocessor.exception;
 
 import com.invoiceprocessor.dto.ErrorResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
@@ -10,6 +11,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.dao.DataAccessException;
 import org.springframework.http.HttpStatus;
@@ -33,6 +35,9 @@ class GlobalExceptionHandlerTest {
     @Mock
     private HttpServletRequest request;
 
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private GlobalExceptionHandler globalExceptionHandler;
 
@@ -232,6 +237,94 @@ class GlobalExceptionHandlerTest {
         assertThat(response.getBody().getPath()).isEqualTo("/api/invoices");
     }
 
+    @Test
+    @DisplayName("Should handle PersistenceBackpressureException with Retry-After")
+    void shouldHandlePersistenceBackpressureException() {
+        // Given
+        PersistenceBackpressureException exception = new PersistenceBackpressureException("Write-behind queue is full");
+
+        // When
+        ResponseEntity<ErrorResponse> response = globalExceptionHandler
+            .handlePersistenceBackpressureException(exception, request);
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst("Retry-After")).isEqualTo("1");
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().getError()).isEqualTo("PERSISTENCE_QUEUE_FULL");
+        assertThat(response.getBody().getPath()).isEqualTo("/api/invoices");
+    }
+
+    @Test
+    @DisplayName("Should answer a database slot timeout as DATABASE_BUSY, not a full queue")
+    void shouldHandleDatabaseBusy() {
+        // Given
+        PersistenceBackpressureException exception = new PersistenceBackpressureException(
+            ErrorCode.DATABASE_BUSY, "Timed out waiting for a database slot (10 in use)");
+
+        // When
+        ResponseEntity<ErrorResponse> response = globalExceptionHandler
+            .handlePersistenceBackpressureException(exception, request);
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst("Retry-After")).isEqualTo("1");
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().getError()).isEqualTo("DATABASE_BUSY");
+    }
+
+    @Test
+    @DisplayName("Should handle AdmissionRejectedException with Retry-After")
+    void shouldHandleAdmissionRejectedException() {
+        // Given
+        AdmissionRejectedException exception = new AdmissionRejectedException(
+            ErrorCode.CONCURRENCY_LIMIT_EXCEEDED, "Too many invoices in progress, retry later", 2);
+
+        // When
+        ResponseEntity<ErrorResponse> response = globalExceptionHandler
+            .handleAdmissionRejectedException(exception, request);
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst("Retry-After")).isEqualTo("2");
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().getError()).isEqualTo("CONCURRENCY_LIMIT_EXCEEDED");
+    }
+
+    @Test
+    @DisplayName("Should handle RateLimitExceededException with 429 and Retry-After")
+    void shouldHandleRateLimitExceededException() {
+        // Given
+        RateLimitExceededException exception = new RateLimitExceededException("Request rate limit exceeded, retry later", 3);
+
+        // When
+        ResponseEntity<ErrorResponse> response = globalExceptionHandler
+            .handleRateLimitExceededException(exception, request);
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(response.getHeaders().getFirst("Retry-After")).isEqualTo("3");
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().getError()).isEqualTo("RATE_LIMIT_EXCEEDED");
+    }
+
+    @Test
+    @DisplayName("Should handle InvalidIdempotencyKeyException as a bad request")
+    void shouldHandleInvalidIdempotencyKeyException() {
+        // Given
+        InvalidIdempotencyKeyException exception =
+            new InvalidIdempotencyKeyException("Idempotency-Key must be at most 255 characters");
+
+        // When
+        ResponseEntity<ErrorResponse> response = globalExceptionHandler
+            .handleInvalidIdempotencyKeyException(exception, request);
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().getError()).isEqualTo("IDEMPOTENCY_KEY_INVALID");
+    }
+
     @Test
     @DisplayName("Should handle generic RuntimeException correctly")
     void shouldHandleRuntimeException() {
@@ -326,4 +419,40 @@ class GlobalExceptionHandlerTest {
             .handleGenericException(new Exception("test"), request)
             .getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
     }
-} 
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should count each handled error by code and exception class")
+    void shouldCountHandledErrors() {
+        // When
+        globalExceptionHandler.handleXmlValidationException(new XmlValidationException("a"), request);
+        globalExceptionHandler.handleXmlValidationException(new XmlValidationException("b"), request);
+        globalExceptionHandler.handleRuntimeException(new IllegalStateException("c"), request);
+
+        // Then
+        assertThat(meterRegistry.get(GlobalExceptionHandler.ERROR_COUNTER)
+            .tags("error", "XML_VALIDATION_ERROR", "exception", "XmlValidationException")
+            .counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(GlobalExceptionHandler.ERROR_COUNTER)
+            .tags("error", "RUNTIME_ERROR", "exception", "IllegalStateException")
+            .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should return the cause as detail of a stackless expected failure")
+    void shouldReturnDetailOfExpectedFailure() {
+        // Given
+        XmlValidationException exception = new XmlValidationException("XSD schema validation failed",
+            new IllegalArgumentException("cvc-complex-type.2.4.a: Invalid content was found starting with element 'P_2'"));
+
+        // When
+        ResponseEntity<ErrorResponse> response = globalExceptionHandler
+            .handleXmlValidationException(exception, request);
+
+        // Then
+        assertThat(exception.getStackTrace()).isEmpty();
+        assertThat(exception.getErrorCode()).isEqualTo(ErrorCode.XML_VALIDATION_ERROR);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().getMessage()).isEqualTo("XSD schema validation failed");
+        assertThat(response.getBody().getDetail()).startsWith("cvc-complex-type.2.4.a");
+    }
+}
@@ -0,0 +1,105 @@
+package com.invoiceprocessor.factory;
+
+import com.example.generated.FakturaComplexType;
+import com.example.generated.InvoiceComplexType;
+import com.invoiceprocessor.dto.ExtractedData;
+import com.invoiceprocessor.exception.DataExtractionException;
+import com.invoiceprocessor.strategy.FakturaProcessorStrategy;
+import com.invoiceprocessor.strategy.InvoiceProcessorStrategy;
+import com.invoiceprocessor.strategy.XmlProcessorStrategy;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("XmlProcessorFactory Tests")
+class XmlProcessorFactoryTest {
+
+    private final FakturaProcessorStrategy fakturaStrategy = new FakturaProcessorStrategy();
+    private final InvoiceProcessorStrategy invoiceStrategy = new InvoiceProcessorStrategy();
+    private final XmlProcessorFactory factory = new XmlProcessorFactory(List.of(invoiceStrategy, fakturaStrategy));
+
+    @Test
+    @DisplayName("Should dispatch by bound class")
+    void shouldDispatchByType() {
+        assertThat(factory.getProcessor(new FakturaComplexType())).isSameAs(fakturaStrategy);
+        assertThat(factory.getProcessor(new InvoiceComplexType())).isSameAs(invoiceStrategy);
+        assertThat(factory.getAllStrategies()).containsExactly(fakturaStrategy, invoiceStrategy);
+    }
+
+    @Test
+    @DisplayName("Should let a higher priority canHandle strategy outrank the table")
+    void shouldPreferHigherPriorityDynamicStrategy() {
+        // Given
+        XmlProcessorStrategy correction = new TestStrategy("Correction", 20, FakturaComplexType.class, false);
+        XmlProcessorFactory withDynamic = new XmlProcessorFactory(List.of(fakturaStrategy, correction, invoiceStrategy));
+
+        // Then
+        assertThat(withDynamic.getProcessor(new FakturaComplexType())).isSameAs(correction);
+        assertThat(withDynamic.getProcessor(new InvoiceComplexType())).isSameAs(invoiceStrategy);
+    }
+
+    @Test
+    @DisplayName("Should reject two strategies for the same type with the same priority")
+    void shouldRejectPriorityConflict() {
+        XmlProcessorStrategy duplicate = new TestStrategy("Duplicate", 10, FakturaComplexType.class, true);
+
+        assertThatThrownBy(() -> new XmlProcessorFactory(List.of(fakturaStrategy, duplicate)))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("Duplicate");
+    }
+
+    @Test
+    @DisplayName("Should pick the processor from the root element before unmarshalling")
+    void shouldSniffProcessorFromRootElement() {
+        // Given
+        byte[] invoice = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <!-- comments and whitespace before the root are skipped -->
+            <Invoice xmlns="http://crd.gov.pl/wzor/2023/06/29/12648/"><InvoiceNumber>1</InvoiceNumber>
+            """.getBytes(StandardCharsets.UTF_8);
+        byte[] unknown = "<Order xmlns=\"urn:example\"/>".getBytes(StandardCharsets.UTF_8);
+
+        // Then - the truncated document is fine, nothing past the root start tag is read
+        assertThat(factory.sniffProcessor(invoice)).isSameAs(invoiceStrategy);
+        assertThatThrownBy(() -> factory.sniffProcessor(unknown))
+            .isInstanceOf(DataExtractionException.class)
+            .hasMessageContaining("Order");
+    }
+
+    /**
+     * Strategy handling instances of a type, declaring it for table dispatch or not
+     */
+    private record TestStrategy(String name, int priority, Class<?> type, boolean declaresType)
+            implements XmlProcessorStrategy {
+
+        @Override
+        public boolean canHandle(Object xmlObject) {
+            return type.isInstance(xmlObject);
+        }
+
+        @Override
+        public ExtractedData extractData(Object xmlObject) {
+            return new ExtractedData();
+        }
+
+        @Override
+        public String getStrategyName() {
+            return name;
+        }
+
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+
+        @Override
+        public Class<?> getSupportedType() {
+            return declaresType ? type : null;
+        }
+    }
+}
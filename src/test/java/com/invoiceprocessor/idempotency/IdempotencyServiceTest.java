@@ -0,0 +1,226 @@
+package com.invoiceprocessor.idempotency;
+
+import com.invoiceprocessor.dto.InvoiceResponse;
+import com.invoiceprocessor.exception.IdempotencyKeyConflictException;
+import com.invoiceprocessor.exception.InvalidIdempotencyKeyException;
+import com.invoiceprocessor.exception.PersistenceBackpressureException;
+import com.invoiceprocessor.exception.XmlValidationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("IdempotencyService Tests")
+class IdempotencyServiceTest {
+
+    private static final long TTL_MILLIS = 60_000;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final AtomicInteger executions = new AtomicInteger();
+    private SimpleMeterRegistry meterRegistry;
+    private InMemoryIdempotencyStore store;
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        store = new InMemoryIdempotencyStore(TTL_MILLIS, 1000, now::get);
+        idempotencyService = new IdempotencyService(store, meterRegistry, 5000);
+    }
+
+    @Test
+    @DisplayName("Should run every request without a key")
+    void shouldRunWithoutKey() {
+        idempotencyService.execute(null, payload("a"), this::created);
+        idempotencyService.execute(" ", payload("a"), this::created);
+
+        assertThat(executions).hasValue(2);
+        assertThat(store.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should replay the stored response for a retried key")
+    void shouldReplayCompletedResponse() {
+        // Given
+        ResponseEntity<InvoiceResponse> first = idempotencyService.execute("key-1", payload("a"), this::created);
+
+        // When
+        ResponseEntity<InvoiceResponse> retry = idempotencyService.execute("key-1", payload("a"), this::created);
+
+        // Then
+        assertThat(executions).hasValue(1);
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(retry.getBody()).isSameAs(first.getBody());
+        assertThat(retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(first.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER)).isFalse();
+        assertThat(requests("replayed")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should let an in-flight retry join the running request")
+    void shouldJoinInFlightRequest() throws Exception {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<ResponseEntity<InvoiceResponse>> first = CompletableFuture.supplyAsync(() ->
+            idempotencyService.execute("key-2", payload("a"), () -> {
+                started.countDown();
+                await(release);
+                return created();
+            }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When
+        CompletableFuture<ResponseEntity<InvoiceResponse>> retry = CompletableFuture.supplyAsync(() ->
+            idempotencyService.execute("key-2", payload("a"), this::created));
+        waitUntil(() -> requests("joined") == 1);
+        release.countDown();
+
+        // Then
+        assertThat(retry.get(5, TimeUnit.SECONDS).getBody()).isSameAs(first.get(5, TimeUnit.SECONDS).getBody());
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Should rethrow a document failure to retries without running again")
+    void shouldReplayDeterministicFailure() {
+        // Given
+        Supplier<ResponseEntity<InvoiceResponse>> invalid = () -> {
+            executions.incrementAndGet();
+            throw new XmlValidationException("XSD schema validation failed");
+        };
+        assertThatThrownBy(() -> idempotencyService.execute("key-3", payload("a"), invalid))
+            .isInstanceOf(XmlValidationException.class);
+
+        // When & Then
+        assertThatThrownBy(() -> idempotencyService.execute("key-3", payload("a"), invalid))
+            .isInstanceOf(XmlValidationException.class)
+            .hasMessage("XSD schema validation failed");
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Should release the key after a transient failure")
+    void shouldRunAgainAfterTransientFailure() {
+        // Given
+        assertThatThrownBy(() -> idempotencyService.execute("key-4", payload("a"), () -> {
+            throw new PersistenceBackpressureException("Timed out waiting for a database slot");
+        })).isInstanceOf(PersistenceBackpressureException.class);
+
+        // When
+        ResponseEntity<InvoiceResponse> retry = idempotencyService.execute("key-4", payload("a"), this::created);
+
+        // Then
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Should reject a key reused for a different payload")
+    void shouldRejectKeyReuseForDifferentPayload() {
+        idempotencyService.execute("key-5", payload("a"), this::created);
+
+        assertThatThrownBy(() -> idempotencyService.execute("key-5", payload("b"), this::created))
+            .isInstanceOf(IdempotencyKeyConflictException.class)
+            .hasMessageContaining("different payload");
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Should run again once the stored response has expired")
+    void shouldExpireAfterTtl() {
+        // Given
+        idempotencyService.execute("key-6", payload("a"), this::created);
+
+        // When
+        now.addAndGet(TTL_MILLIS + 1);
+        ResponseEntity<InvoiceResponse> later = idempotencyService.execute("key-6", payload("a"), this::created);
+
+        // Then
+        assertThat(later.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER)).isFalse();
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Should release the key when the request fails with an Error")
+    void shouldReleaseKeyAfterError() {
+        // Given
+        assertThatThrownBy(() -> idempotencyService.execute("key-7", payload("a"), () -> {
+            throw new OutOfMemoryError("Java heap space");
+        })).isInstanceOf(OutOfMemoryError.class);
+
+        // When
+        ResponseEntity<InvoiceResponse> retry = idempotencyService.execute("key-7", payload("a"), this::created);
+
+        // Then
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(retry.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should reject an over-long key as a client error")
+    void shouldRejectOverlongKey() {
+        String key = "k".repeat(IdempotencyService.MAX_KEY_LENGTH + 1);
+
+        assertThatThrownBy(() -> idempotencyService.execute(key, payload("a"), this::created))
+            .isInstanceOf(InvalidIdempotencyKeyException.class);
+        assertThat(executions).hasValue(0);
+    }
+
+    @Test
+    @DisplayName("Should fingerprint a Base64 payload as the document it decodes to")
+    void shouldFingerprintBase64AsDecodedDocument() {
+        byte[] xml = "<Faktura/>".getBytes(StandardCharsets.UTF_8);
+        String base64 = Base64.getEncoder().encodeToString(xml);
+
+        assertThat(IdempotencyService.fingerprintBase64(base64)).isEqualTo(IdempotencyService.fingerprint(xml));
+        assertThat(IdempotencyService.fingerprintBase64("not base64!"))
+            .isEqualTo(IdempotencyService.fingerprintBase64("not base64!"))
+            .isNotEqualTo(IdempotencyService.fingerprint(xml));
+    }
+
+    private ResponseEntity<InvoiceResponse> created() {
+        executions.incrementAndGet();
+        return ResponseEntity.status(HttpStatus.CREATED).body(new InvoiceResponse("Invoice saved successfully"));
+    }
+
+    private double requests(String result) {
+        return meterRegistry.get(IdempotencyService.REQUEST_COUNTER).tag("result", result).counter().count();
+    }
+
+    private static Supplier<String> payload(String content) {
+        return () -> IdempotencyService.fingerprint(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(Supplier<Boolean> condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.get()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition not met within 5 seconds");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.invoiceprocessor.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.invoiceprocessor.exception.Base64DecodingException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("StreamingInvoiceRequestReader Tests")
+class StreamingInvoiceRequestReaderTest {
+
+    private final StreamingInvoiceRequestReader reader = new StreamingInvoiceRequestReader(new ObjectMapper());
+
+    @Test
+    @DisplayName("Should decode base64xml field while reading the body")
+    void shouldDecodeBase64Field() {
+        // Given
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><Invoice/>";
+        String base64 = Base64.getEncoder().encodeToString(xml.getBytes(StandardCharsets.UTF_8));
+        String body = "{\"other\":{\"nested\":[1,2]},\"base64xml\":\"" + base64 + "\"}";
+
+        // When
+        byte[] result = reader.readXml(message(body), body.length());
+
+        // Then
+        assertThat(new String(result, StandardCharsets.UTF_8)).isEqualTo(xml);
+    }
+
+    @Test
+    @DisplayName("Should reject invalid Base64 content")
+    void shouldRejectInvalidBase64() {
+        String body = "{\"base64xml\":\"invalid-base64-string\"}";
+
+        assertThatThrownBy(() -> reader.readXml(message(body), body.length()))
+            .isInstanceOf(Base64DecodingException.class)
+            .hasMessageContaining("Invalid Base64 encoding");
+    }
+
+    @Test
+    @DisplayName("Should reject missing and empty base64xml field")
+    void shouldRejectMissingField() {
+        assertThatThrownBy(() -> reader.readXml(message("{}"), 2))
+            .isInstanceOf(Base64DecodingException.class)
+            .hasMessageContaining("Base64 string cannot be null");
+
+        assertThatThrownBy(() -> reader.readXml(message("{\"base64xml\":\"\"}"), 15))
+            .isInstanceOf(Base64DecodingException.class)
+            .hasMessageContaining("Base64 string cannot be empty");
+    }
+
+    @Test
+    @DisplayName("Should reject malformed JSON")
+    void shouldRejectMalformedJson() {
+        assertThatThrownBy(() -> reader.readXml(message("{\"base64xml\": "), 13))
+            .isInstanceOf(HttpMessageNotReadableException.class);
+    }
+
+    @Test
+    @DisplayName("Should read the documents of a JSON array and of an NDJSON stream one at a time")
+    void shouldReadBatchDocuments() throws Exception {
+        // Given
+        String array = "[{\"base64xml\":\"YQ==\"},{\"base64xml\":\"Yg==\"}]";
+        String ndjson = "{\"base64xml\":\"YQ==\"}\n{\"base64xml\":\"Yg==\"}\n";
+
+        // When
+        List<String> fromArray = readAll(reader.readJsonArrayDocuments(message(array)));
+        List<String> fromNdjson = readAll(reader.readNdjsonDocuments(message(ndjson)));
+
+        // Then
+        assertThat(fromArray).containsExactly("YQ==", "Yg==");
+        assertThat(fromNdjson).containsExactly("YQ==", "Yg==");
+    }
+
+    @Test
+    @DisplayName("Should reject a batch body that is not an array and name the malformed document")
+    void shouldRejectMalformedBatch() throws Exception {
+        assertThatThrownBy(() -> reader.readJsonArrayDocuments(message("{\"base64xml\":\"YQ==\"}")))
+            .isInstanceOf(HttpMessageNotReadableException.class)
+            .hasMessageContaining("must be a JSON array");
+
+        try (BatchDocumentReader documents = reader.readNdjsonDocuments(message("{\"base64xml\":\"YQ==\"}\n{\"base64xml\":"))) {
+            assertThat(documents.next()).isEqualTo("YQ==");
+            assertThatThrownBy(documents::hasNext)
+                .isInstanceOf(HttpMessageNotReadableException.class)
+                .hasMessageContaining("at document 2");
+        }
+    }
+
+    private static List<String> readAll(BatchDocumentReader documents) throws IOException {
+        try (documents) {
+            List<String> result = new ArrayList<>();
+            documents.forEachRemaining(result::add);
+            return result;
+        }
+    }
+
+    private static MockHttpInputMessage message(String body) {
+        return new MockHttpInputMessage(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
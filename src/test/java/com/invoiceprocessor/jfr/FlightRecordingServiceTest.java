@@ -0,0 +1,136 @@
+package com.invoiceprocessor.jfr;
+
+import com.invoiceprocessor.chain.XmlFormatValidationHandler;
+import com.invoiceprocessor.dto.ValidationContext;
+import com.invoiceprocessor.exception.XmlValidationException;
+import com.invoiceprocessor.metrics.PipelineMetrics;
+import com.invoiceprocessor.metrics.PipelineStage;
+import com.invoiceprocessor.metrics.StageTimings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("FlightRecordingService Tests")
+class FlightRecordingServiceTest {
+
+    @TempDir
+    Path dumpDirectory;
+
+    private final XmlFormatValidationHandler formatHandler = new XmlFormatValidationHandler(
+        XmlFormatValidationHandler.DEFAULT_MAX_BYTES, XmlFormatValidationHandler.DEFAULT_MAX_DEPTH);
+
+    private FlightRecordingService flightRecordingService;
+
+    @BeforeEach
+    void setUp() {
+        flightRecordingService = new FlightRecordingService(dumpDirectory.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        flightRecordingService.close();
+    }
+
+    @Test
+    @DisplayName("Should record stage, document and validation handler events until stopped")
+    void shouldRecordInvoiceEvents() throws Exception {
+        // Given
+        FlightRecordingStatus started = flightRecordingService.start(null, null, null);
+        assertThat(started.recording()).isTrue();
+        assertThat(started.settings()).isEqualTo("default");
+
+        // When
+        PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+        StageTimings timings = metrics.start("process");
+        byte[] xml = "<?xml version=\"1.0\"?><a/>".getBytes(StandardCharsets.UTF_8);
+        timings.time(PipelineStage.DECODE, () -> xml);
+        timings.setPayloadBytes(xml.length);
+        timings.time(PipelineStage.VALIDATION, () -> formatHandler.handle(new ValidationContext(xml)));
+        timings.setProcessorType("Faktura");
+        metrics.recordSuccess(timings);
+
+        FlightRecordingStatus stopped = flightRecordingService.stop();
+
+        // Then
+        assertThat(stopped.recording()).isFalse();
+        assertThat(stopped.lastDump()).isNotNull();
+        List<RecordedEvent> events = invoiceEvents(Path.of(stopped.lastDump()));
+
+        assertThat(events).filteredOn(e -> e.getEventType().getName().equals("com.invoiceprocessor.InvoiceStage"))
+            .extracting(e -> e.getString("stage"))
+            .containsExactly("decode", "validation");
+        assertThat(events).filteredOn(e -> e.getEventType().getName().equals("com.invoiceprocessor.InvoiceStage"))
+            .allSatisfy(e -> {
+                assertThat(e.getString("strategy")).isEqualTo("Faktura");
+                assertThat(e.getLong("payloadBytes")).isEqualTo(xml.length);
+                assertThat(e.getString("outcome")).isEqualTo("success");
+            });
+        assertThat(events).filteredOn(e -> e.getEventType().getName().equals("com.invoiceprocessor.InvoiceProcessed"))
+            .singleElement()
+            .satisfies(e -> assertThat(e.getString("outcome")).isEqualTo("success"));
+        assertThat(events).filteredOn(e -> e.getEventType().getName().equals("com.invoiceprocessor.ValidationHandler"))
+            .singleElement()
+            .satisfies(e -> {
+                assertThat(e.getString("handler")).isEqualTo("XMLFormat");
+                assertThat(e.getString("outcome")).isEqualTo("passed");
+            });
+    }
+
+    @Test
+    @DisplayName("Should tag the failing stage and handler")
+    void shouldTagFailingStage() throws Exception {
+        // Given
+        flightRecordingService.start(null, null, null);
+        PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+        StageTimings timings = metrics.start("process");
+        byte[] notXml = "plain text".getBytes(StandardCharsets.UTF_8);
+
+        // When
+        assertThatThrownBy(() -> timings.time(PipelineStage.VALIDATION,
+                () -> formatHandler.handle(new ValidationContext(notXml))))
+            .isInstanceOf(XmlValidationException.class);
+        metrics.recordFailure(timings, new XmlValidationException("not XML"));
+        List<RecordedEvent> events = invoiceEvents(Path.of(flightRecordingService.stop().lastDump()));
+
+        // Then
+        assertThat(events).filteredOn(e -> e.getEventType().getName().equals("com.invoiceprocessor.InvoiceProcessed"))
+            .singleElement()
+            .satisfies(e -> {
+                assertThat(e.getString("outcome")).isEqualTo("failure");
+                assertThat(e.getString("failedStage")).isEqualTo("validation");
+                assertThat(e.getString("strategy")).isEqualTo("unknown");
+            });
+        assertThat(events).filteredOn(e -> e.getEventType().getName().equals("com.invoiceprocessor.ValidationHandler"))
+            .singleElement()
+            .satisfies(e -> {
+                assertThat(e.getString("outcome")).isEqualTo("failed");
+                assertThat(e.getString("exception")).isEqualTo("XmlValidationException");
+            });
+    }
+
+    @Test
+    @DisplayName("Should reject unknown settings")
+    void shouldRejectUnknownSettings() {
+        assertThatThrownBy(() -> flightRecordingService.start("no-such-settings", null, null))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThat(flightRecordingService.getStatus().recording()).isFalse();
+    }
+
+    private static List<RecordedEvent> invoiceEvents(Path dump) throws Exception {
+        return RecordingFile.readAllEvents(dump).stream()
+            .filter(e -> e.getEventType().getName().startsWith("com.invoiceprocessor."))
+            .toList();
+    }
+}
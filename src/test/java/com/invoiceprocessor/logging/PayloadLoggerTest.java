@@ -0,0 +1,28 @@
+package com.invoiceprocessor.logging;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("PayloadLogger Tests")
+class PayloadLoggerTest {
+
+    @Test
+    @DisplayName("Should truncate the preview and keep it on one line")
+    void shouldTruncatePreview() {
+        byte[] xml = "<?xml version=\"1.0\"?>\r\n<Faktura>\n<Fa/></Faktura>".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(PayloadLogger.preview(xml, 24)).isEqualTo("<?xml version=\"1.0\"?>  <...");
+        assertThat(PayloadLogger.preview(xml, 1024)).doesNotContain("\n", "\r").doesNotEndWith("...");
+    }
+
+    @Test
+    @DisplayName("Should sample by rate")
+    void shouldSampleByRate() {
+        assertThat(new PayloadLogger(PayloadLogMode.HASH, 256, 1.0).sampled()).isTrue();
+        assertThat(new PayloadLogger(PayloadLogMode.HASH, 256, 0.0).sampled()).isFalse();
+    }
+}
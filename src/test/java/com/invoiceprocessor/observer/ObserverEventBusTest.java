@@ -0,0 +1,170 @@
+package com.invoiceprocessor.observer;
+
+import com.invoiceprocessor.dto.ExtractedData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ObserverEventBus Tests")
+class ObserverEventBusTest {
+
+    private ObserverEventBus eventBus;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (eventBus != null) {
+            eventBus.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Should call inline observers on the publishing thread")
+    void shouldDeliverInlineSynchronously() {
+        // Given
+        RecordingObserver inline = new RecordingObserver(DeliveryMode.INLINE, OverflowPolicy.DROP);
+        eventBus = start(List.of(inline), 16);
+
+        // When
+        eventBus.publish(ProcessingEvent.processingCompleted("42"));
+
+        // Then
+        assertThat(inline.completed).containsExactly("42");
+        assertThat(inline.threads).containsExactly(Thread.currentThread().getName());
+        assertThat(eventBus.getMetrics()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should deliver every event in order to an asynchronous observer on its own thread")
+    void shouldDeliverAsynchronouslyInOrder() throws InterruptedException {
+        // Given
+        RecordingObserver async = new RecordingObserver(DeliveryMode.ASYNC, OverflowPolicy.BLOCK);
+        eventBus = start(List.of(async), 8);
+
+        // When - more events than the buffer holds, so publishing has to wait for the observer
+        for (int i = 0; i < 100; i++) {
+            eventBus.publish(ProcessingEvent.processingCompleted(String.valueOf(i)));
+        }
+
+        // Then
+        waitUntil(() -> async.completed.size() == 100);
+        assertThat(async.completed).containsExactlyElementsOf(
+            IntStream.range(0, 100).mapToObj(String::valueOf).toList());
+        assertThat(async.threads).allMatch(name -> name.startsWith("observer-"));
+        ObserverMetrics metrics = eventBus.getMetrics().get(0);
+        assertThat(metrics.dropped()).isZero();
+        waitUntil(() -> eventBus.getMetrics().get(0).lag() == 0);
+    }
+
+    @Test
+    @DisplayName("Should drop and count events when a DROP observer falls behind")
+    void shouldDropWhenSlowObserverIsFull() throws InterruptedException {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingObserver slow = new RecordingObserver(DeliveryMode.ASYNC, OverflowPolicy.DROP) {
+            @Override
+            public void onProcessingCompleted(String invoiceId) {
+                awaitQuietly(release);
+                super.onProcessingCompleted(invoiceId);
+            }
+        };
+        eventBus = start(List.of(slow), 4);
+
+        // When - the observer is stuck on the first event while 20 more are published
+        eventBus.publish(ProcessingEvent.processingCompleted("first"));
+        waitUntil(() -> eventBus.getMetrics().get(0).delivered() == 0
+            && eventBus.getMetrics().get(0).lag() == 1 && slow.entered);
+        for (int i = 0; i < 20; i++) {
+            eventBus.publish(ProcessingEvent.dataExtracted(new ExtractedData()));
+        }
+
+        // Then - the publisher never waited and the overflow is visible in the metrics
+        ObserverMetrics metrics = eventBus.getMetrics().get(0);
+        assertThat(metrics.dropped()).isEqualTo(16);
+        assertThat(metrics.lag()).isEqualTo(5);
+        release.countDown();
+        waitUntil(() -> eventBus.getMetrics().get(0).lag() == 0);
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 5 seconds").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static ObserverEventBus start(List<InvoiceProcessingObserver> observers, int bufferSize) {
+        ObserverEventBus bus = new ObserverEventBus(observers, bufferSize, 4);
+        bus.start();
+        return bus;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class RecordingObserver implements InvoiceProcessingObserver {
+
+        final List<String> completed = new CopyOnWriteArrayList<>();
+        final List<String> threads = new CopyOnWriteArrayList<>();
+        volatile boolean entered;
+        private final DeliveryMode deliveryMode;
+        private final OverflowPolicy overflowPolicy;
+
+        RecordingObserver(DeliveryMode deliveryMode, OverflowPolicy overflowPolicy) {
+            this.deliveryMode = deliveryMode;
+            this.overflowPolicy = overflowPolicy;
+        }
+
+        @Override
+        public void onEvents(List<ProcessingEvent> events) {
+            entered = true;
+            InvoiceProcessingObserver.super.onEvents(events);
+        }
+
+        @Override
+        public void onProcessingStarted(String xmlType) {
+        }
+
+        @Override
+        public void onValidationCompleted(String xmlType) {
+        }
+
+        @Override
+        public void onDataExtracted(ExtractedData data) {
+        }
+
+        @Override
+        public void onProcessingCompleted(String invoiceId) {
+            completed.add(invoiceId);
+            threads.add(Thread.currentThread().getName());
+        }
+
+        @Override
+        public void onProcessingFailed(String error) {
+        }
+
+        @Override
+        public DeliveryMode getDeliveryMode() {
+            return deliveryMode;
+        }
+
+        @Override
+        public OverflowPolicy getOverflowPolicy() {
+            return overflowPolicy;
+        }
+    }
+}
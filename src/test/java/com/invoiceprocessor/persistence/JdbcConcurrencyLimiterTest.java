@@ -0,0 +1,66 @@
+package com.invoiceprocessor.persistence;
+
+import com.invoiceprocessor.exception.ErrorCode;
+import com.invoiceprocessor.exception.PersistenceBackpressureException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("JdbcConcurrencyLimiter Tests")
+class JdbcConcurrencyLimiterTest {
+
+    @Test
+    @DisplayName("Should release the permit after the action, also when it throws")
+    void shouldReleasePermit() {
+        // Given
+        JdbcConcurrencyLimiter limiter = new JdbcConcurrencyLimiter(2, 100);
+
+        // When
+        String result = limiter.execute(() -> {
+            assertThat(limiter.getAvailablePermits()).isEqualTo(1);
+            return "saved";
+        });
+        assertThatThrownBy(() -> limiter.execute(() -> {
+            throw new IllegalStateException("connection reset");
+        })).isInstanceOf(IllegalStateException.class);
+
+        // Then
+        assertThat(result).isEqualTo("saved");
+        assertThat(limiter.getAvailablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should answer DATABASE_BUSY when no slot frees up within the timeout")
+    void shouldTimeOutWaitingForSlot() throws Exception {
+        // Given - the only slot is held by another thread
+        JdbcConcurrencyLimiter limiter = new JdbcConcurrencyLimiter(1, 50);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> holder = CompletableFuture.supplyAsync(() -> limiter.execute(() -> {
+            holding.countDown();
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }));
+        assertThat(holding.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When & Then
+        assertThatThrownBy(() -> limiter.execute(() -> "saved"))
+            .isInstanceOfSatisfying(PersistenceBackpressureException.class,
+                e -> assertThat(e.getErrorCode()).isEqualTo(ErrorCode.DATABASE_BUSY));
+
+        release.countDown();
+        assertThat(holder.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(limiter.getAvailablePermits()).isEqualTo(1);
+        assertThat(limiter.execute(() -> "saved")).isEqualTo("saved");
+    }
+}
@@ -0,0 +1,133 @@
+package com.invoiceprocessor.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.invoiceprocessor.dto.ExtractedData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("WriteBehindJournal Tests")
+class WriteBehindJournalTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    private WriteBehindJournal journal;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should hand back entries without a marker in acceptance order and compact to them")
+    void shouldRecoverOutstandingEntries() throws IOException {
+        // Given
+        reopen();
+        journal.appendPending("t1", invoice("INV-1"));
+        journal.appendPending("t2", invoice("INV-2"));
+        journal.appendPending("t3", invoice("INV-3"));
+        journal.appendCommitted(List.of("t1"), List.of("1"));
+        journal.appendFailed("t2");
+
+        // When
+        Map<String, ExtractedData> outstanding = reopen();
+
+        // Then
+        assertThat(outstanding).containsOnlyKeys("t3");
+        assertThat(outstanding.get("t3").getP2()).isEqualTo("INV-3");
+        assertThat(Files.readAllLines(journalPath())).hasSize(1).allMatch(line -> line.contains("\"PENDING\""));
+    }
+
+    @Test
+    @DisplayName("Should compact to the outstanding entries at runtime once enough markers were appended")
+    void shouldCompactAtRuntime() throws IOException {
+        // Given
+        reopen();
+        journal.appendPending("t1", invoice("INV-1"));
+        journal.appendPending("t2", invoice("INV-2"));
+        journal.appendPending("t3", invoice("INV-3"));
+        journal.appendCommitted(List.of("t1"), List.of("1"));
+        assertThat(journal.compactIfDue()).isFalse();
+        journal.appendFailed("t2");
+
+        // When
+        boolean compacted = journal.compactIfDue();
+        journal.appendPending("t4", invoice("INV-4"));
+
+        // Then
+        assertThat(compacted).isTrue();
+        assertThat(journal.outstandingCount()).isEqualTo(2);
+        assertThat(Files.readAllLines(journalPath())).hasSize(2).allMatch(line -> line.contains("\"PENDING\""));
+        assertThat(reopen()).containsOnlyKeys("t3", "t4");
+    }
+
+    @Test
+    @DisplayName("Should keep the archived document hash of a replayed entry")
+    void shouldRecoverDocumentHash() throws IOException {
+        // Given
+        reopen();
+        ExtractedData data = invoice("INV-1");
+        data.setDocumentHash("ab".repeat(32));
+        journal.appendPending("t1", data);
+
+        // When & Then
+        assertThat(reopen().get("t1").getDocumentHash()).isEqualTo("ab".repeat(32));
+    }
+
+    @Test
+    @DisplayName("Should not replay an entry whose marker was written before its pending line")
+    void shouldIgnoreMarkerOrder() throws IOException {
+        // Given
+        reopen();
+        journal.appendCommitted(List.of("t1"), List.of("1"));
+        journal.appendPending("t1", invoice("INV-1"));
+
+        // When & Then
+        assertThat(reopen()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should skip a torn last line left by a crash")
+    void shouldSkipTornLine() throws IOException {
+        // Given
+        reopen();
+        journal.appendPending("t1", invoice("INV-1"));
+        journal.close();
+        Files.writeString(journalPath(), "{\"type\":\"COMMITTED\",\"track", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        // When & Then
+        assertThat(reopen()).containsOnlyKeys("t1");
+    }
+
+    private Map<String, ExtractedData> reopen() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+        journal = new WriteBehindJournal(journalPath(), false, objectMapper, 2);
+        return journal.recover();
+    }
+
+    private Path journalPath() {
+        return directory.resolve("write-behind.journal");
+    }
+
+    private static ExtractedData invoice(String number) {
+        return new ExtractedData("1234567890", "2023-01-15", number, "Faktura");
+    }
+}
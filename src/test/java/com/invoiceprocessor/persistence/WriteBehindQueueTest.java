@@ -0,0 +1,212 @@
+package com.invoiceprocessor.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.invoiceprocessor.dto.ExtractedData;
+import com.invoiceprocessor.dto.ProcessingResult;
+import com.invoiceprocessor.dto.TrackingResponse;
+import com.invoiceprocessor.exception.PersistenceBackpressureException;
+import com.invoiceprocessor.service.InvoiceService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("WriteBehindQueue Tests")
+class WriteBehindQueueTest {
+
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Mock
+    private InvoiceService invoiceService;
+
+    @TempDir
+    Path directory;
+
+    private WriteBehindJournal journal;
+    private WriteBehindQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        journal = spy(new WriteBehindJournal(directory.resolve("write-behind.journal"), false, objectMapper, 1000));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (queue != null) {
+            queue.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Should replay invoices accepted but not committed before a crash")
+    void shouldReplayUncommittedInvoicesOnStart() throws Exception {
+        // Given - a journal left behind by a crashed instance
+        WriteBehindJournal crashed = new WriteBehindJournal(directory.resolve("write-behind.journal"), false, objectMapper, 1000);
+        crashed.recover();
+        crashed.appendPending("t1", invoice("INV-1"));
+        crashed.appendPending("t2", invoice("INV-2"));
+        crashed.appendCommitted(List.of("t1"), List.of("1"));
+        crashed.close();
+        answerSaveBatch();
+
+        // When
+        start(10, 10);
+
+        // Then
+        verify(journal, timeout(TIMEOUT_MILLIS)).appendCommitted(List.of("t2"), List.of("1"));
+        verify(invoiceService).saveBatch(argThat(batch -> batch.size() == 1 && batch.get(0).getP2().equals("INV-2")));
+        assertThat(queue.getStatus("t2")).map(TrackingResponse::getStatus).contains(PersistenceStatus.COMMITTED);
+        assertThat(recoverAfterStop()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should journal an invoice before the writer can commit it")
+    void shouldJournalPendingBeforeCommit() throws Exception {
+        // Given
+        answerSaveBatch();
+        start(10, 10);
+
+        // When
+        String trackingId = queue.submit(invoice("INV-1"));
+
+        // Then
+        verify(journal, timeout(TIMEOUT_MILLIS)).appendCommitted(List.of(trackingId), List.of("1"));
+        // The spy records the call before the marker is written; the writer has finished it once stopped
+        queue.stop();
+        queue = null;
+        List<String> lines = Files.readAllLines(directory.resolve("write-behind.journal"));
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0)).contains("\"PENDING\"");
+        assertThat(lines.get(1)).contains("\"COMMITTED\"");
+        assertThat(recoverAfterStop()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should close the journal entry of an invoice turned away by a full queue")
+    void shouldMarkRejectedInvoiceFailed() throws Exception {
+        // Given - the writer is stuck on the first invoice and the queue holds the second
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(invoiceService.saveBatch(anyList())).thenAnswer(invocation -> {
+            saving.countDown();
+            assertThat(release.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)).isTrue();
+            return ids(invocation.getArgument(0));
+        });
+        start(1, 1);
+        queue.submit(invoice("INV-1"));
+        assertThat(saving.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)).isTrue();
+        queue.submit(invoice("INV-2"));
+
+        // When & Then
+        assertThatThrownBy(() -> queue.submit(invoice("INV-3"))).isInstanceOf(PersistenceBackpressureException.class);
+        verify(journal).appendFailed(any());
+        release.countDown();
+        verify(invoiceService, timeout(TIMEOUT_MILLIS).times(2)).saveBatch(anyList());
+        assertThat(recoverAfterStop()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should not queue an invoice the journal failed to record")
+    void shouldNotQueueUnjournaledInvoice() throws Exception {
+        // Given
+        start(10, 10);
+        doThrow(new UncheckedIOException(new IOException("disk full"))).when(journal).appendPending(any(), any());
+
+        // When & Then
+        assertThatThrownBy(() -> queue.submit(invoice("INV-1"))).isInstanceOf(UncheckedIOException.class);
+        assertThat(queue.getQueueSize()).isZero();
+        verifyNoInteractions(invoiceService);
+    }
+
+    @Test
+    @DisplayName("Should keep a saved batch committed and retry its marker when the journal write fails")
+    void shouldRetryCommitMarkerWithoutSavingAgain() throws Exception {
+        // Given
+        answerSaveBatch();
+        doThrow(new UncheckedIOException(new IOException("disk full")))
+            .doCallRealMethod()
+            .when(journal).appendCommitted(anyList(), anyList());
+        start(10, 10);
+
+        // When
+        String trackingId = queue.submit(invoice("INV-1"));
+
+        // Then
+        verify(journal, timeout(TIMEOUT_MILLIS).times(2)).appendCommitted(List.of(trackingId), List.of("1"));
+        verify(invoiceService, times(1)).saveBatch(anyList());
+        assertThat(queue.getStatus(trackingId)).map(TrackingResponse::getStatus).contains(PersistenceStatus.COMMITTED);
+        assertThat(recoverAfterStop()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should commit a copy of an invoice saved in the meantime as that invoice")
+    void shouldCommitDuplicateAsExistingInvoice() throws Exception {
+        // Given
+        when(invoiceService.saveBatch(anyList())).thenThrow(new DataIntegrityViolationException("uk_invoices_content_hash"));
+        when(invoiceService.save(any())).thenReturn(ProcessingResult.duplicate("9"));
+        start(10, 10);
+
+        // When
+        String trackingId = queue.submit(invoice("INV-1"));
+
+        // Then
+        verify(journal, timeout(TIMEOUT_MILLIS)).appendCommitted(List.of(trackingId), List.of("9"));
+        assertThat(queue.getStatus(trackingId)).map(TrackingResponse::getInvoiceId).contains("9");
+    }
+
+    private void start(int capacity, int batchSize) throws IOException {
+        queue = new WriteBehindQueue(invoiceService, true, capacity, batchSize, 20, 10, 3_600_000, 3, journal);
+        queue.start();
+    }
+
+    private void answerSaveBatch() {
+        when(invoiceService.saveBatch(anyList())).thenAnswer(invocation -> ids(invocation.getArgument(0)));
+    }
+
+    private List<String> ids(List<ExtractedData> batch) {
+        return batch.stream().map(data -> String.valueOf(sequence.incrementAndGet())).toList();
+    }
+
+    private Map<String, ExtractedData> recoverAfterStop() throws Exception {
+        if (queue != null) {
+            queue.stop();
+            queue = null;
+        }
+        WriteBehindJournal reopened = new WriteBehindJournal(directory.resolve("write-behind.journal"), false, objectMapper, 1000);
+        try {
+            return reopened.recover();
+        } finally {
+            reopened.close();
+        }
+    }
+
+    private static ExtractedData invoice(String number) {
+        return new ExtractedData("1234567890", "2023-01-15", number, "Faktura");
+    }
+}
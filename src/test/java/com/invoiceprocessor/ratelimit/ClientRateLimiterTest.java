@@ -0,0 +1,124 @@
+package com.invoiceprocessor.ratelimit;
+
+import com.invoiceprocessor.exception.ErrorCode;
+import com.invoiceprocessor.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("ClientRateLimiter Tests")
+class ClientRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong(1_000 * SECOND);
+
+    @Test
+    @DisplayName("Should allow the burst, then refill at the configured rate")
+    void shouldAllowBurstThenRefill() {
+        // Given - 10 per second, burst of 3
+        ClientRateLimiter limiter = limiter(Map.of(), 100);
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire("erp");
+        }
+
+        // Then
+        assertThatThrownBy(() -> limiter.acquire("erp"))
+            .isInstanceOf(RateLimitExceededException.class)
+            .satisfies(e -> {
+                RateLimitExceededException rejected = (RateLimitExceededException) e;
+                assertThat(rejected.getErrorCode()).isEqualTo(ErrorCode.RATE_LIMIT_EXCEEDED);
+                assertThat(rejected.getRetryAfterSeconds()).isEqualTo(1);
+            });
+
+        // When - one emission interval later
+        clock.addAndGet(SECOND / 10);
+
+        // Then
+        limiter.acquire("erp");
+        assertThatThrownBy(() -> limiter.acquire("erp")).isInstanceOf(RateLimitExceededException.class);
+        assertThat(meterRegistry.get(ClientRateLimiter.REJECTION_COUNTER).counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should keep clients independent and apply per-client limits")
+    void shouldIsolateClients() {
+        // Given
+        ClientRateLimiter limiter = limiter(Map.of("backfill", new ClientRateLimiter.Limit(1, 1)), 100);
+
+        // When
+        limiter.acquire("backfill");
+
+        // Then
+        assertThatThrownBy(() -> limiter.acquire("backfill")).isInstanceOf(RateLimitExceededException.class);
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire("other");
+        }
+        assertThat(limiter.limitFor("backfill").burst()).isEqualTo(1);
+        assertThat(limiter.limitFor("other").burst()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should evict buckets that have refilled once the sweep interval has passed")
+    void shouldEvictIdleClients() {
+        // Given
+        ClientRateLimiter limiter = limiter(Map.of(), 100);
+        limiter.acquire("a");
+        limiter.acquire("b");
+        assertThat(limiter.size()).isEqualTo(2);
+
+        // When - both buckets refill, and a new client arrives after the sweep interval
+        clock.addAndGet(60 * SECOND);
+        limiter.acquire("c");
+
+        // Then
+        assertThat(limiter.size()).isEqualTo(1);
+        assertThat(meterRegistry.get("invoice.ratelimit.clients").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should sweep early when the map outgrows max-clients")
+    void shouldSweepEarlyOverCapacity() {
+        // Given
+        ClientRateLimiter limiter = limiter(Map.of(), 2);
+        limiter.acquire("a");
+        limiter.acquire("b");
+
+        // When - well within the sweep interval, but over capacity
+        clock.addAndGet(2 * SECOND);
+        limiter.acquire("c");
+
+        // Then
+        assertThat(limiter.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should parse per-client limits and reject malformed entries")
+    void shouldParseClientLimits() {
+        assertThat(ClientRateLimiter.parseClientLimits(List.of("erp-a=5/10", " 1234567890 = 0.5 / 1 ", "")))
+            .containsEntry("erp-a", new ClientRateLimiter.Limit(5, 10))
+            .containsEntry("1234567890", new ClientRateLimiter.Limit(0.5, 1))
+            .hasSize(2);
+
+        assertThatThrownBy(() -> ClientRateLimiter.parseClientLimits(List.of("erp-a=5")))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ClientRateLimiter.parseClientLimits(List.of("erp-a=x/10")))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ClientRateLimiter.parseClientLimits(List.of("erp-a=0/10")))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private ClientRateLimiter limiter(Map<String, ClientRateLimiter.Limit> clientLimits, int maxClients) {
+        return new ClientRateLimiter(meterRegistry, true, new ClientRateLimiter.Limit(10, 3), clientLimits,
+            maxClients, 60 * SECOND, clock::get);
+    }
+}
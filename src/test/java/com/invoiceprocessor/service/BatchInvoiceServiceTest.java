@@ -0,0 +1,175 @@
+package com.invoiceprocessor.service;
+
+import com.invoiceprocessor.dto.ExtractedData;
+import com.invoiceprocessor.dto.ProcessingResult;
+import com.invoiceprocessor.exception.BatchTooLargeException;
+import com.invoiceprocessor.exception.ErrorCode;
+import com.invoiceprocessor.exception.PersistenceBackpressureException;
+import com.invoiceprocessor.exception.RateLimitExceededException;
+import com.invoiceprocessor.exception.XmlValidationException;
+import com.invoiceprocessor.ratelimit.ClientRateLimiter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("BatchInvoiceService Tests")
+class BatchInvoiceServiceTest {
+
+    @Mock
+    private InvoiceService invoiceService;
+
+    @Mock
+    private ClientRateLimiter clientRateLimiter;
+
+    private BatchInvoiceService batchInvoiceService;
+
+    private final ExtractedData first = new ExtractedData("1111111111", "2023-01-15", "INV-001", "Faktura");
+    private final ExtractedData second = new ExtractedData("2222222222", "2023-01-16", "INV-002", "Faktura");
+
+    @BeforeEach
+    void setUp() {
+        // Run extraction on the calling thread to keep the test deterministic
+        batchInvoiceService = new BatchInvoiceService(invoiceService, clientRateLimiter, Runnable::run, 2, 100);
+    }
+
+    @Test
+    @DisplayName("Should return per-item results without failing the batch on a bad document")
+    void shouldIsolateBadDocument() {
+        // Given
+        when(invoiceService.extractInvoice("good-1")).thenReturn(ProcessingResult.extracted(first));
+        when(invoiceService.extractInvoice("bad")).thenThrow(new XmlValidationException("XSD schema validation failed"));
+        when(invoiceService.extractInvoice("good-2")).thenReturn(ProcessingResult.extracted(second));
+        when(invoiceService.saveBatch(List.of(first))).thenReturn(List.of("1"));
+        when(invoiceService.saveBatch(List.of(second))).thenReturn(List.of("2"));
+
+        // When
+        List<ProcessingResult> results = batchInvoiceService.processBatch(List.of("good-1", "bad", "good-2").iterator(), null);
+
+        // Then
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0).isSuccess()).isTrue();
+        assertThat(results.get(0).getInvoiceId()).isEqualTo("1");
+        assertThat(results.get(1).isSuccess()).isFalse();
+        assertThat(results.get(1).getErrorDetails()).contains("XSD schema validation failed");
+        assertThat(results.get(2).getInvoiceId()).isEqualTo("2");
+    }
+
+    @Test
+    @DisplayName("Should fall back to single inserts when a batch insert fails")
+    void shouldRetryIndividuallyWhenBatchInsertFails() {
+        // Given
+        when(invoiceService.extractInvoice("a")).thenReturn(ProcessingResult.extracted(first));
+        when(invoiceService.extractInvoice("b")).thenReturn(ProcessingResult.extracted(second));
+        when(invoiceService.saveBatch(List.of(first, second))).thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(invoiceService.save(first)).thenReturn(ProcessingResult.success("10", first));
+        when(invoiceService.save(second)).thenThrow(new DataIntegrityViolationException("p2 too long"));
+
+        // When
+        List<ProcessingResult> results = batchInvoiceService.processBatch(List.of("a", "b").iterator(), null);
+
+        // Then
+        assertThat(results.get(0).isSuccess()).isTrue();
+        assertThat(results.get(0).getInvoiceId()).isEqualTo("10");
+        assertThat(results.get(1).isSuccess()).isFalse();
+        verify(invoiceService, times(1)).saveBatch(anyList());
+    }
+
+    @Test
+    @DisplayName("Should fail the window without single inserts when the database is unreachable")
+    void shouldFailWindowOnConnectivityError() {
+        // Given
+        when(invoiceService.extractInvoice("a")).thenReturn(ProcessingResult.extracted(first));
+        when(invoiceService.extractInvoice("b")).thenReturn(ProcessingResult.extracted(second));
+        when(invoiceService.saveBatch(List.of(first, second)))
+            .thenThrow(new DataAccessResourceFailureException("Connection refused"));
+
+        // When
+        List<ProcessingResult> results = batchInvoiceService.processBatch(List.of("a", "b").iterator(), null);
+
+        // Then
+        assertThat(results).noneMatch(ProcessingResult::isSuccess);
+        assertThat(results.get(0).getErrorDetails()).isEqualTo("Connection refused");
+        verify(invoiceService, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Should pass database backpressure on instead of retrying row by row")
+    void shouldPropagateDatabaseBusy() {
+        // Given
+        when(invoiceService.extractInvoice("a")).thenReturn(ProcessingResult.extracted(first));
+        when(invoiceService.extractInvoice("b")).thenReturn(ProcessingResult.extracted(second));
+        when(invoiceService.saveBatch(List.of(first, second))).thenThrow(new PersistenceBackpressureException(
+            ErrorCode.DATABASE_BUSY, "Timed out waiting for a database slot (10 in use)"));
+
+        // When & Then
+        assertThatThrownBy(() -> batchInvoiceService.processBatch(List.of("a", "b").iterator(), null))
+            .isInstanceOf(PersistenceBackpressureException.class);
+        verify(invoiceService, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Should answer a resubmitted document as a duplicate without saving it again")
+    void shouldAnswerDuplicateWithoutSaving() {
+        // Given
+        when(invoiceService.extractInvoice("known")).thenReturn(ProcessingResult.duplicate("7"));
+        when(invoiceService.extractInvoice("new")).thenReturn(ProcessingResult.extracted(first));
+        when(invoiceService.saveBatch(List.of(first))).thenReturn(List.of("8"));
+
+        // When
+        List<ProcessingResult> results = batchInvoiceService.processBatch(List.of("known", "new").iterator(), null);
+
+        // Then
+        assertThat(results.get(0).isDuplicate()).isTrue();
+        assertThat(results.get(0).getInvoiceId()).isEqualTo("7");
+        assertThat(results.get(1).getInvoiceId()).isEqualTo("8");
+        verify(invoiceService).saveBatch(List.of(first));
+    }
+
+    @Test
+    @DisplayName("Should reject a batch over max-items while reading, keeping the windows already saved")
+    void shouldRejectBatchOverMaxItemsWhileReading() {
+        // Given
+        BatchInvoiceService limited = new BatchInvoiceService(invoiceService, clientRateLimiter, Runnable::run, 2, 3);
+        when(invoiceService.extractInvoice("a")).thenReturn(ProcessingResult.extracted(first));
+        when(invoiceService.extractInvoice("b")).thenReturn(ProcessingResult.extracted(second));
+        when(invoiceService.saveBatch(List.of(first, second))).thenReturn(List.of("1", "2"));
+
+        // When & Then
+        assertThatThrownBy(() -> limited.processBatch(List.of("a", "b", "c", "d").iterator(), null))
+            .isInstanceOfSatisfying(BatchTooLargeException.class,
+                e -> assertThat(e.getErrorCode()).isEqualTo(ErrorCode.BATCH_TOO_LARGE));
+        verify(invoiceService).saveBatch(List.of(first, second));
+        verify(invoiceService, never()).extractInvoice("c");
+    }
+
+    @Test
+    @DisplayName("Should charge the client one token per document after the first while reading")
+    void shouldChargeClientPerDocument() {
+        // Given
+        when(invoiceService.extractInvoice("a")).thenReturn(ProcessingResult.extracted(first));
+        when(invoiceService.extractInvoice("b")).thenReturn(ProcessingResult.extracted(second));
+        when(invoiceService.saveBatch(List.of(first, second))).thenReturn(List.of("1", "2"));
+        doNothing().doThrow(new RateLimitExceededException("Request rate limit exceeded, retry later", 3))
+            .when(clientRateLimiter).acquire("erp");
+
+        // When & Then - "a" was paid for on admission, "b" takes the last token, "c" is refused
+        assertThatThrownBy(() -> batchInvoiceService.processBatch(List.of("a", "b", "c").iterator(), "erp"))
+            .isInstanceOf(RateLimitExceededException.class);
+        verify(clientRateLimiter, times(2)).acquire("erp");
+        verify(invoiceService, never()).extractInvoice("c");
+    }
+}
@@ -1,7 +1,11 @@
 package com.invoiceprocessor.service;
 
+import com.invoiceprocessor.archive.ArchiveCodec;
+import com.invoiceprocessor.archive.ArchiveLocation;
+import com.invoiceprocessor.archive.DocumentArchive;
+import com.invoiceprocessor.chain.ValidationChain;
 import com.invoiceprocessor.chain.ValidationChainFactory;
-import com.invoiceprocessor.chain.ValidationHandler;
+import com.invoiceprocessor.dedup.DeduplicationCache;
 import com.invoiceprocessor.dto.ExtractedData;
 import com.invoiceprocessor.dto.ProcessingResult;
 import com.invoiceprocessor.entity.InvoiceEntity;
@@ -9,25 +13,43 @@ import com.invoiceprocessor.exception.Base64DecodingException;
 import com.invoiceprocessor.exception.DataExtractionException;
 import com.invoiceprocessor.exception.XmlValidationException;
 import com.invoiceprocessor.factory.XmlProcessorFactory;
-import com.invoiceprocessor.observer.InvoiceProcessingObserver;
+import com.invoiceprocessor.logging.PayloadLogger;
+import com.invoiceprocessor.metrics.PipelineMetrics;
+import com.invoiceprocessor.observer.ObserverEventBus;
+import com.invoiceprocessor.persistence.JdbcConcurrencyLimiter;
 import com.invoiceprocessor.repository.InvoiceRepository;
+import com.invoiceprocessor.strategy.FakturaStreamingStrategy;
+import com.invoiceprocessor.strategy.InvoiceStreamingStrategy;
 import com.invoiceprocessor.strategy.XmlProcessorStrategy;
+import com.invoiceprocessor.xml.ExtractionMappingRegistry;
+import com.invoiceprocessor.xml.ExtractionMode;
+import com.invoiceprocessor.xml.JaxbUnmarshallingEngine;
+import com.invoiceprocessor.xml.SchemaRegistry;
+import com.invoiceprocessor.xml.StaxExtractionEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Base64;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 import static org.mockito.Mockito.lenient;
@@ -46,16 +68,42 @@ class InvoiceServiceTest {
     private ValidationChainFactory validationChainFactory;
     
     @Mock
-    private List<InvoiceProcessingObserver> observers;
+    private ObserverEventBus eventBus;
     
     @Mock
     private XmlProcessorStrategy xmlProcessorStrategy;
     
     @Mock
-    private ValidationHandler validationHandler;
+    private ValidationChain validationChain;
+    
+    @Spy
+    private JaxbUnmarshallingEngine unmarshallingEngine =
+        new JaxbUnmarshallingEngine(JaxbUnmarshallingEngine.DEFAULT_POOL_SIZE, false);
+    
+    @Mock
+    private SchemaRegistry schemaRegistry;
+    
+    @Spy
+    private JdbcConcurrencyLimiter jdbcConcurrencyLimiter = new JdbcConcurrencyLimiter(10, 1000);
+    
+    @Spy
+    private StaxExtractionEngine staxExtractionEngine =
+        new StaxExtractionEngine(List.of(new FakturaStreamingStrategy(), new InvoiceStreamingStrategy()),
+            new ExtractionMappingRegistry(new ClassPathResource("extraction/mappings.properties")));
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    
+    @Spy
+    private PipelineMetrics pipelineMetrics = new PipelineMetrics(meterRegistry);
+    
+    @Mock
+    private DeduplicationCache deduplicationCache;
+    
+    @Mock
+    private PayloadLogger payloadLogger;
     
     @Mock
-    private InvoiceProcessingObserver observer;
+    private DocumentArchive documentArchive;
 
     @InjectMocks
     private InvoiceService invoiceService;
@@ -112,9 +160,9 @@ class InvoiceServiceTest {
         validInvoiceBase64 = Base64.getEncoder().encodeToString(validInvoiceXml.getBytes());
         
         // Setup common mocks - use lenient to avoid unnecessary stubbing errors
-        lenient().when(validationChainFactory.createValidationChain()).thenReturn(validationHandler);
-        lenient().doNothing().when(validationHandler).handle(any());
-        lenient().doNothing().when(observers).forEach(any());
+        lenient().when(validationChainFactory.getValidationChain()).thenReturn(validationChain);
+        lenient().doNothing().when(validationChain).handle(any());
+        lenient().doNothing().when(eventBus).publish(any());
     }
 
     @Test
@@ -141,8 +189,8 @@ class InvoiceServiceTest {
         assertThat(result.getInvoiceId()).isEqualTo("1");
         assertThat(result.getExtractedData()).isEqualTo(extractedData);
 
-        verify(validationChainFactory).createValidationChain();
-        verify(validationHandler).handle(any());
+        verify(validationChainFactory).getValidationChain();
+        verify(validationChain).handle(any());
         verify(processorFactory).getProcessor(any());
         verify(xmlProcessorStrategy).extractData(any());
         verify(invoiceRepository).save(any(InvoiceEntity.class));
@@ -196,7 +244,7 @@ class InvoiceServiceTest {
             """;
         String invalidXmlBase64 = Base64.getEncoder().encodeToString(invalidXml.getBytes());
         
-        doThrow(new XmlValidationException("XML validation failed")).when(validationHandler).handle(any());
+        doThrow(new XmlValidationException("XML validation failed")).when(validationChain).handle(any());
 
         // When & Then
         assertThatThrownBy(() -> invoiceService.processInvoice(invalidXmlBase64))
@@ -220,7 +268,7 @@ class InvoiceServiceTest {
             """;
         String incompleteXmlBase64 = Base64.getEncoder().encodeToString(incompleteXml.getBytes());
         
-        doThrow(new XmlValidationException("Missing required fields")).when(validationHandler).handle(any());
+        doThrow(new XmlValidationException("Missing required fields")).when(validationChain).handle(any());
 
         // When & Then
         assertThatThrownBy(() -> invoiceService.processInvoice(incompleteXmlBase64))
@@ -292,6 +340,333 @@ class InvoiceServiceTest {
         assertThat(capturedEntity.getNip()).isEqualTo("TEST_NIP");
         assertThat(capturedEntity.getP1()).isEqualTo("TEST_P1");
         assertThat(capturedEntity.getP2()).isEqualTo("TEST_P2");
+        assertThat(capturedEntity.getFields()).isNull();
         assertThat(result.getInvoiceId()).isEqualTo("42");
     }
-} 
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should validate against XSD during unmarshalling in fused mode")
+    void shouldProcessValidFakturaInFusedMode() {
+        // Given
+        ReflectionTestUtils.setField(invoiceService, "fusedValidation", true);
+        when(schemaRegistry.getDefaultSchema()).thenReturn(realSchemaRegistry().getDefaultSchema());
+        ExtractedData extractedData = new ExtractedData("1234567890", "2023-01-15", "INV-001", "Faktura");
+        InvoiceEntity savedEntity = new InvoiceEntity();
+        savedEntity.setId(7L);
+
+        when(processorFactory.getProcessor(any())).thenReturn(xmlProcessorStrategy);
+        when(xmlProcessorStrategy.extractData(any())).thenReturn(extractedData);
+        when(invoiceRepository.save(any(InvoiceEntity.class))).thenReturn(savedEntity);
+
+        // When
+        ProcessingResult result = invoiceService.processInvoice(validFakturaBase64);
+
+        // Then
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getInvoiceId()).isEqualTo("7");
+        verify(validationChain).handle(any());
+    }
+
+    @Test
+    @DisplayName("Should map schema violations to XmlValidationException in fused mode")
+    void shouldThrowXmlValidationExceptionInFusedMode() {
+        // Given
+        ReflectionTestUtils.setField(invoiceService, "fusedValidation", true);
+        when(schemaRegistry.getDefaultSchema()).thenReturn(realSchemaRegistry().getDefaultSchema());
+        String invalidXml = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <Invoice xmlns="http://crd.gov.pl/wzor/2023/06/29/12648/">
+                <UnknownElement>value</UnknownElement>
+            </Invoice>
+            """;
+        String invalidXmlBase64 = Base64.getEncoder().encodeToString(invalidXml.getBytes());
+
+        // When & Then
+        assertThatThrownBy(() -> invoiceService.processInvoice(invalidXmlBase64))
+            .isInstanceOf(XmlValidationException.class)
+            .hasMessageContaining("XSD schema validation failed");
+
+        verify(invoiceRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Should extract fields with StAX without unmarshalling in STAX mode")
+    void shouldProcessValidFakturaInStaxMode() {
+        // Given
+        ReflectionTestUtils.setField(invoiceService, "extractionMode", ExtractionMode.STAX);
+        InvoiceEntity savedEntity = new InvoiceEntity();
+        savedEntity.setId(9L);
+        when(invoiceRepository.save(any(InvoiceEntity.class))).thenReturn(savedEntity);
+
+        // When
+        ProcessingResult result = invoiceService.processInvoice(validFakturaBase64);
+
+        // Then
+        assertThat(result.getExtractedData())
+            .usingRecursiveComparison().ignoringFields("fields")
+            .isEqualTo(new ExtractedData("1234567890", "2023-01-15", "INV-001", "Faktura"));
+        assertThat(result.getExtractedData().getFields())
+            .containsEntry("currency", "PLN")
+            .containsEntry("totalAmount", "1000.00")
+            .doesNotContainKey("netAmount");
+        ArgumentCaptor<InvoiceEntity> entityCaptor = ArgumentCaptor.forClass(InvoiceEntity.class);
+        verify(invoiceRepository).save(entityCaptor.capture());
+        assertThat(entityCaptor.getValue().getFields()).isEqualTo(result.getExtractedData().getFields());
+        verify(validationChain).handle(any());
+        verify(unmarshallingEngine, never()).unmarshal(any());
+        verifyNoInteractions(processorFactory);
+    }
+
+    @Test
+    @DisplayName("Should record stage timers tagged with the processor type")
+    void shouldRecordStageTimersTaggedWithProcessorType() {
+        // Given
+        InvoiceEntity savedEntity = new InvoiceEntity();
+        savedEntity.setId(10L);
+        when(processorFactory.getProcessor(any())).thenReturn(xmlProcessorStrategy);
+        when(xmlProcessorStrategy.extractData(any()))
+            .thenReturn(new ExtractedData("1234567890", "2023-01-15", "INV-001", "Faktura"));
+        when(invoiceRepository.save(any(InvoiceEntity.class))).thenReturn(savedEntity);
+
+        // When
+        invoiceService.processInvoice(validFakturaBase64);
+
+        // Then
+        for (String stage : List.of("decode", "validation", "unmarshal", "extraction", "save")) {
+            assertThat(meterRegistry.get(PipelineMetrics.STAGE_TIMER)
+                .tags("stage", stage, "processor", "Faktura", "outcome", "success")
+                .timer().count()).as(stage).isEqualTo(1);
+        }
+        assertThat(meterRegistry.get(PipelineMetrics.PAYLOAD_SUMMARY).tags("processor", "Faktura")
+            .summary().totalAmount()).isEqualTo(validFakturaXml.getBytes().length);
+    }
+
+    @Test
+    @DisplayName("Should tag the failing stage with the exception class")
+    void shouldTagFailingStageWithExceptionClass() {
+        // Given
+        doThrow(new XmlValidationException("XML validation failed")).when(validationChain).handle(any());
+
+        // When
+        assertThatThrownBy(() -> invoiceService.processInvoice(validFakturaBase64))
+            .isInstanceOf(XmlValidationException.class);
+
+        // Then
+        assertThat(meterRegistry.get(PipelineMetrics.STAGE_TIMER)
+            .tags("stage", "validation", "processor", "unknown", "exception", "XmlValidationException")
+            .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(PipelineMetrics.STAGE_TIMER)
+            .tags("stage", "decode", "outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.find(PipelineMetrics.STAGE_TIMER).tags("stage", "unmarshal").timer()).isNull();
+        assertThat(meterRegistry.get(PipelineMetrics.DURATION_TIMER)
+            .tags("outcome", "failure").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should return the stored invoice for a resubmitted document without processing it")
+    void shouldShortCircuitDuplicateDocument() {
+        // Given
+        String contentHash = DeduplicationCache.hash(validFakturaXml.getBytes());
+        when(deduplicationCache.isEnabled()).thenReturn(true);
+        when(deduplicationCache.findInvoiceId(contentHash)).thenReturn(Optional.of("7"));
+
+        // When
+        ProcessingResult result = invoiceService.processInvoice(validFakturaBase64);
+
+        // Then
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.isDuplicate()).isTrue();
+        assertThat(result.getInvoiceId()).isEqualTo("7");
+        verifyNoInteractions(validationChainFactory, processorFactory, invoiceRepository);
+    }
+
+    @Test
+    @DisplayName("Should store the content hash and remember the new invoice")
+    void shouldStoreContentHashOfNewDocument() {
+        // Given
+        String contentHash = DeduplicationCache.hash(validFakturaXml.getBytes());
+        when(deduplicationCache.isEnabled()).thenReturn(true);
+        when(deduplicationCache.findInvoiceId(contentHash)).thenReturn(Optional.empty());
+        when(processorFactory.getProcessor(any())).thenReturn(xmlProcessorStrategy);
+        when(xmlProcessorStrategy.extractData(any()))
+            .thenReturn(new ExtractedData("1234567890", "2023-01-15", "INV-001", "Faktura"));
+        InvoiceEntity savedEntity = new InvoiceEntity();
+        savedEntity.setId(11L);
+        when(invoiceRepository.save(any(InvoiceEntity.class))).thenReturn(savedEntity);
+
+        // When
+        ProcessingResult result = invoiceService.processInvoice(validFakturaBase64);
+
+        // Then
+        assertThat(result.isDuplicate()).isFalse();
+        ArgumentCaptor<InvoiceEntity> entityCaptor = ArgumentCaptor.forClass(InvoiceEntity.class);
+        verify(invoiceRepository).save(entityCaptor.capture());
+        assertThat(entityCaptor.getValue().getContentHash()).isEqualTo(contentHash);
+        verify(deduplicationCache).remember(contentHash, "11");
+    }
+
+    @Test
+    @DisplayName("Should resolve a concurrent duplicate rejected by the unique content hash")
+    void shouldResolveConcurrentDuplicate() {
+        // Given
+        String contentHash = DeduplicationCache.hash(validFakturaXml.getBytes());
+        when(deduplicationCache.isEnabled()).thenReturn(true);
+        when(deduplicationCache.findInvoiceId(contentHash)).thenReturn(Optional.empty());
+        when(processorFactory.getProcessor(any())).thenReturn(xmlProcessorStrategy);
+        when(xmlProcessorStrategy.extractData(any()))
+            .thenReturn(new ExtractedData("1234567890", "2023-01-15", "INV-001", "Faktura"));
+        when(invoiceRepository.save(any(InvoiceEntity.class)))
+            .thenThrow(new DataIntegrityViolationException(InvoiceEntity.CONTENT_HASH_CONSTRAINT));
+        when(invoiceRepository.findIdByContentHash(contentHash)).thenReturn(Optional.of(12L));
+
+        // When
+        ProcessingResult result = invoiceService.processInvoice(validFakturaBase64);
+
+        // Then - answered as a duplicate, and the lost race is not counted as a second cache lookup
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.isDuplicate()).isTrue();
+        assertThat(result.getInvoiceId()).isEqualTo("12");
+        verify(deduplicationCache, times(1)).findInvoiceId(contentHash);
+        verify(deduplicationCache).remember(contentHash, "12");
+    }
+
+    @Test
+    @DisplayName("Should answer a resubmitted write-behind or batch document as a duplicate before extracting it")
+    void shouldShortCircuitDuplicateBeforeExtraction() {
+        // Given
+        byte[] xmlBytes = validFakturaXml.getBytes();
+        String contentHash = DeduplicationCache.hash(xmlBytes);
+        when(deduplicationCache.isEnabled()).thenReturn(true);
+        when(deduplicationCache.findInvoiceId(contentHash)).thenReturn(Optional.of("7"));
+
+        // When
+        ProcessingResult result = invoiceService.extractDecodedInvoice(xmlBytes);
+
+        // Then
+        assertThat(result.isDuplicate()).isTrue();
+        assertThat(result.getInvoiceId()).isEqualTo("7");
+        verifyNoInteractions(validationChainFactory, processorFactory, documentArchive);
+    }
+
+    @Test
+    @DisplayName("Should write the content hash of batch and write-behind saves and remember their invoices")
+    @SuppressWarnings("unchecked")
+    void shouldStoreContentHashOfBatchSave() {
+        // Given
+        byte[] xmlBytes = validFakturaXml.getBytes();
+        String contentHash = DeduplicationCache.hash(xmlBytes);
+        when(deduplicationCache.isEnabled()).thenReturn(true);
+        when(deduplicationCache.findInvoiceId(contentHash)).thenReturn(Optional.empty());
+        when(processorFactory.getProcessor(any())).thenReturn(xmlProcessorStrategy);
+        when(xmlProcessorStrategy.extractData(any()))
+            .thenReturn(new ExtractedData("1234567890", "2023-01-15", "INV-001", "Faktura"));
+        InvoiceEntity savedEntity = new InvoiceEntity();
+        savedEntity.setId(15L);
+        when(invoiceRepository.saveAll(anyList())).thenReturn(List.of(savedEntity));
+
+        // When
+        ExtractedData extracted = invoiceService.extractDecodedInvoice(xmlBytes).getExtractedData();
+        invoiceService.saveBatch(List.of(extracted));
+
+        // Then
+        ArgumentCaptor<List<InvoiceEntity>> entitiesCaptor = ArgumentCaptor.forClass(List.class);
+        verify(invoiceRepository).saveAll(entitiesCaptor.capture());
+        assertThat(entitiesCaptor.getValue()).singleElement()
+            .extracting(InvoiceEntity::getContentHash).isEqualTo(contentHash);
+        verify(deduplicationCache).remember(contentHash, "15");
+    }
+
+    @Test
+    @DisplayName("Should answer a copy saved one by one after a concurrent save as a duplicate")
+    void shouldResolveDuplicateOfSingleSave() {
+        // Given
+        ExtractedData data = new ExtractedData("1234567890", "2023-01-15", "INV-001", "Faktura");
+        data.setContentHash("ab".repeat(32));
+        when(invoiceRepository.save(any(InvoiceEntity.class)))
+            .thenThrow(new DataIntegrityViolationException(InvoiceEntity.CONTENT_HASH_CONSTRAINT));
+        when(invoiceRepository.findIdByContentHash("ab".repeat(32))).thenReturn(Optional.of(16L));
+
+        // When
+        ProcessingResult result = invoiceService.save(data);
+
+        // Then
+        assertThat(result.isDuplicate()).isTrue();
+        assertThat(result.getInvoiceId()).isEqualTo("16");
+    }
+
+    @Test
+    @DisplayName("Should archive the original document before saving the invoice")
+    void shouldArchiveDocumentBeforeSave() {
+        // Given - archive on, deduplication off
+        byte[] xmlBytes = validFakturaXml.getBytes();
+        String contentHash = DeduplicationCache.hash(xmlBytes);
+        when(documentArchive.isEnabled()).thenReturn(true);
+        when(processorFactory.getProcessor(any())).thenReturn(xmlProcessorStrategy);
+        when(xmlProcessorStrategy.extractData(any()))
+            .thenReturn(new ExtractedData("1234567890", "2023-01-15", "INV-001", "Faktura"));
+        InvoiceEntity savedEntity = new InvoiceEntity();
+        savedEntity.setId(13L);
+        when(invoiceRepository.save(any(InvoiceEntity.class))).thenReturn(savedEntity);
+
+        // When
+        invoiceService.processInvoice(validFakturaBase64);
+
+        // Then
+        InOrder inOrder = inOrder(documentArchive, invoiceRepository);
+        inOrder.verify(documentArchive).store(contentHash, xmlBytes);
+        ArgumentCaptor<InvoiceEntity> entityCaptor = ArgumentCaptor.forClass(InvoiceEntity.class);
+        inOrder.verify(invoiceRepository).save(entityCaptor.capture());
+        assertThat(entityCaptor.getValue().getDocumentHash()).isEqualTo(contentHash);
+        // Archiving does not put the hash under the unique constraint, deduplication stays off
+        assertThat(entityCaptor.getValue().getContentHash()).isNull();
+        verify(deduplicationCache, never()).findInvoiceId(anyString());
+        assertThat(meterRegistry.get(PipelineMetrics.STAGE_TIMER).tag("stage", "archive").timer().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should archive documents extracted for batch and write-behind saves and keep their hash on the row")
+    @SuppressWarnings("unchecked")
+    void shouldArchiveExtractedDocument() {
+        // Given
+        byte[] xmlBytes = validFakturaXml.getBytes();
+        String documentHash = DeduplicationCache.hash(xmlBytes);
+        when(documentArchive.isEnabled()).thenReturn(true);
+        when(processorFactory.getProcessor(any())).thenReturn(xmlProcessorStrategy);
+        when(xmlProcessorStrategy.extractData(any()))
+            .thenReturn(new ExtractedData("1234567890", "2023-01-15", "INV-001", "Faktura"));
+        InvoiceEntity savedEntity = new InvoiceEntity();
+        savedEntity.setId(14L);
+        when(invoiceRepository.saveAll(anyList())).thenReturn(List.of(savedEntity));
+
+        // When
+        ExtractedData extracted = invoiceService.extractDecodedInvoice(xmlBytes).getExtractedData();
+        invoiceService.saveBatch(List.of(extracted));
+
+        // Then
+        verify(documentArchive).store(documentHash, xmlBytes);
+        assertThat(extracted.getDocumentHash()).isEqualTo(documentHash);
+        ArgumentCaptor<List<InvoiceEntity>> entitiesCaptor = ArgumentCaptor.forClass(List.class);
+        verify(invoiceRepository).saveAll(entitiesCaptor.capture());
+        assertThat(entitiesCaptor.getValue()).singleElement()
+            .extracting(InvoiceEntity::getDocumentHash).isEqualTo(documentHash);
+    }
+
+    @Test
+    @DisplayName("Should find the archived document through the invoice content hash")
+    void shouldFindArchivedDocument() {
+        // Given
+        ArchiveLocation location = new ArchiveLocation(1, 49, ArchiveCodec.DEFLATE_DICTIONARY, 120, 640);
+        when(documentArchive.isEnabled()).thenReturn(true);
+        when(invoiceRepository.findDocumentHashById(5L)).thenReturn(Optional.of("abc"));
+        when(documentArchive.find("abc")).thenReturn(Optional.of(location));
+
+        // When & Then
+        assertThat(invoiceService.findArchivedDocument(5L)).contains(location);
+        assertThat(invoiceService.findArchivedDocument(6L)).isEmpty();
+    }
+
+    private static SchemaRegistry realSchemaRegistry() {
+        return new SchemaRegistry(new SimpleMeterRegistry(), false, 5000, 32);
+    }
+}
\ No newline at end of file
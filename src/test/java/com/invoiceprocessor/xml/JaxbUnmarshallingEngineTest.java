@@ -0,0 +1,95 @@
+package com.invoiceprocessor.xml;
+
+import com.example.generated.InvoiceComplexType;
+import com.invoiceprocessor.exception.ErrorCode;
+import com.invoiceprocessor.exception.XmlUnmarshallingException;
+import com.invoiceprocessor.exception.XmlValidationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("JaxbUnmarshallingEngine Tests")
+class JaxbUnmarshallingEngineTest {
+
+    private static final String NAMESPACE = "http://crd.gov.pl/wzor/2023/06/29/12648/";
+
+    // Fine for JAXB, but the schema requires InvoiceNumber
+    private static final String INVOICE_WITHOUT_NUMBER = "<Invoice xmlns=\"" + NAMESPACE + "\"/>";
+
+    private static final String INVOICE = "<Invoice xmlns=\"" + NAMESPACE + "\">"
+        + "<InvoiceNumber>INV-001</InvoiceNumber>"
+        + "</Invoice>";
+
+    private final Schema schema = new SchemaRegistry(new SimpleMeterRegistry(), false, 5000, 32)
+        .getDefaultSchema().getSchema();
+
+    @Test
+    @DisplayName("Should unmarshal a valid document against the schema and unwrap the root")
+    void shouldUnmarshalValidDocument() {
+        // Given
+        JaxbUnmarshallingEngine engine = new JaxbUnmarshallingEngine(1, false);
+
+        // When
+        Object result = engine.unmarshal(source(INVOICE), schema);
+
+        // Then
+        assertThat(result).isInstanceOfSatisfying(InvoiceComplexType.class,
+            invoice -> assertThat(invoice.getInvoiceNumber()).isEqualTo("INV-001"));
+    }
+
+    @Test
+    @DisplayName("Should report a schema violation as XmlValidationException with the parser message")
+    void shouldMapSchemaViolationToValidationException() {
+        // Given
+        JaxbUnmarshallingEngine engine = new JaxbUnmarshallingEngine(1, false);
+
+        // When & Then
+        assertThatThrownBy(() -> engine.unmarshal(source(INVOICE_WITHOUT_NUMBER), schema))
+            .isInstanceOfSatisfying(XmlValidationException.class, e -> {
+                assertThat(e.getErrorCode()).isEqualTo(ErrorCode.XML_VALIDATION_ERROR);
+                assertThat(e.getMessage()).isEqualTo("XSD schema validation failed");
+                assertThat(e.getCause()).isNotNull();
+            });
+    }
+
+    @Test
+    @DisplayName("Should not leave the schema on a pooled unmarshaller after a failed validation")
+    void shouldResetSchemaBeforeReturningToPool() {
+        // Given - a pool of one, so the next call gets the same unmarshaller back
+        JaxbUnmarshallingEngine engine = new JaxbUnmarshallingEngine(1, false);
+        assertThatThrownBy(() -> engine.unmarshal(source(INVOICE_WITHOUT_NUMBER), schema))
+            .isInstanceOf(XmlValidationException.class);
+
+        // When
+        Object result = engine.unmarshal(source(INVOICE_WITHOUT_NUMBER));
+
+        // Then
+        assertThat(result).isInstanceOf(InvoiceComplexType.class);
+        assertThat(engine.getUnmarshallersCreated()).isEqualTo(1);
+        assertThat(engine.getIdleUnmarshallers()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should report malformed XML without a schema as XmlUnmarshallingException")
+    void shouldMapMalformedDocumentToUnmarshallingException() {
+        // Given
+        JaxbUnmarshallingEngine engine = new JaxbUnmarshallingEngine(1, false);
+
+        // When & Then
+        assertThatThrownBy(() -> engine.unmarshal(source("<Invoice xmlns=\"" + NAMESPACE + "\">")))
+            .isInstanceOfSatisfying(XmlUnmarshallingException.class,
+                e -> assertThat(e.getErrorCode()).isEqualTo(ErrorCode.XML_UNMARSHALLING_ERROR));
+        assertThat(engine.getIdleUnmarshallers()).isEqualTo(1);
+    }
+
+    private static StreamSource source(String xml) {
+        return new StreamSource(new StringReader(xml));
+    }
+}
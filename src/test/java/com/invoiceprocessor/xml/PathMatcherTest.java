@@ -0,0 +1,81 @@
+package com.invoiceprocessor.xml;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("PathMatcher Tests")
+class PathMatcherTest {
+
+    @Test
+    @DisplayName("Should collect every mapped path in one pass and skip unmapped subtrees")
+    void shouldCollectMappedPaths() throws Exception {
+        // Given
+        Map<String, String> paths = new LinkedHashMap<>();
+        paths.put("nip", "Podmiot1/DaneIdentyfikacyjne/NIP");
+        paths.put("currency", "Fa/KodWaluty");
+        paths.put("totalAmount", "Fa/P_15");
+        paths.put("netAmount", "Fa/P_13_1");
+        PathMatcher matcher = PathMatcher.compile(paths);
+        String xml = """
+            <Faktura>
+                <Naglowek><NIP>0000000000</NIP></Naglowek>
+                <Podmiot1><DaneIdentyfikacyjne><NIP>1234567890</NIP></DaneIdentyfikacyjne></Podmiot1>
+                <Fa><KodWaluty>EUR</KodWaluty><P_15>1230.00</P_15></Fa>
+            </Faktura>
+            """;
+
+        // When
+        ExtractedFields fields = matcher.match(positionedOnRoot(xml));
+
+        // Then
+        assertThat(fields.get("nip")).isEqualTo("1234567890");
+        assertThat(fields.get("currency")).isEqualTo("EUR");
+        assertThat(fields.get("totalAmount")).isEqualTo("1230.00");
+        assertThat(fields.isPresent("netAmount")).isFalse();
+        assertThat(fields.asMap()).containsOnlyKeys("nip", "currency", "totalAmount");
+    }
+
+    @Test
+    @DisplayName("Should stop reading once every field is found")
+    void shouldStopEarly() throws Exception {
+        // Given
+        PathMatcher matcher = PathMatcher.compile(Map.of("number", "InvoiceNumber"));
+        XMLStreamReader reader = positionedOnRoot("<Invoice><InvoiceNumber>N-1</InvoiceNumber><Rest/></Invoice>");
+
+        // When
+        ExtractedFields fields = matcher.match(reader);
+
+        // Then
+        assertThat(fields.get("number")).isEqualTo("N-1");
+        assertThat(reader.getEventType()).isEqualTo(XMLStreamConstants.END_ELEMENT);
+        assertThat(reader.getLocalName()).isEqualTo("InvoiceNumber");
+    }
+
+    @Test
+    @DisplayName("Should reject a field path running through another field")
+    void shouldRejectOverlappingPaths() {
+        Map<String, String> paths = new LinkedHashMap<>();
+        paths.put("fa", "Fa");
+        paths.put("currency", "Fa/KodWaluty");
+
+        assertThatThrownBy(() -> PathMatcher.compile(paths))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("currency");
+    }
+
+    private static XMLStreamReader positionedOnRoot(String xml) throws Exception {
+        XMLStreamReader reader = XMLInputFactory.newFactory().createXMLStreamReader(new StringReader(xml));
+        reader.nextTag();
+        return reader;
+    }
+}
@@ -0,0 +1,129 @@
+package com.invoiceprocessor.xml;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xml.sax.SAXException;
+
+import javax.xml.transform.stream.StreamSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+@DisplayName("SchemaRegistry Tests")
+class SchemaRegistryTest {
+
+    private static final String LOCATION = "reload/amount.xsd";
+
+    private static final String STRING_SCHEMA = """
+        <xs:schema xmlns:xs="http://www.w3.org/2001/XMLSchema">
+            <xs:element name="amount" type="xs:string"/>
+        </xs:schema>
+        """;
+
+    private static final String INTEGER_SCHEMA = """
+        <xs:schema xmlns:xs="http://www.w3.org/2001/XMLSchema">
+            <xs:element name="amount" type="xs:integer"/>
+        </xs:schema>
+        """;
+
+    @TempDir
+    Path classpathRoot;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
+
+    @AfterEach
+    void tearDown() {
+        Thread.currentThread().setContextClassLoader(originalClassLoader);
+    }
+
+    @Test
+    @DisplayName("Should compile a schema once and serve later lookups from the cache")
+    void shouldCompileOnce() {
+        // Given
+        SchemaRegistry registry = new SchemaRegistry(meterRegistry, false, 5000, 32);
+
+        // When
+        CompiledSchema first = registry.getDefaultSchema();
+        CompiledSchema second = registry.getDefaultSchema();
+
+        // Then
+        assertThat(second).isSameAs(first);
+        assertThat(meterRegistry.get("invoice.schema.compile").functionTimer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("invoice.schema.compile").functionTimer().totalTime(TimeUnit.NANOSECONDS))
+            .isCloseTo(first.getCompileTimeNanos(), within(1.0));
+        assertThat(meterRegistry.get("invoice.schema.cache.hits").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should return validators to the pool, also after a failed validation")
+    void shouldReuseValidators() throws Exception {
+        // Given
+        useClasspathRoot();
+        writeSchema(STRING_SCHEMA, Instant.now());
+        CompiledSchema schema = new SchemaRegistry(meterRegistry, false, 5000, 32).getSchema(LOCATION);
+
+        // When
+        assertThatThrownBy(() -> schema.validate(source("<price>1</price>"))).isInstanceOf(SAXException.class);
+        schema.validate(source("<amount>ten</amount>"));
+        schema.validate(source("<amount>eleven</amount>"));
+
+        // Then
+        assertThat(schema.getValidatorsCreated()).isEqualTo(1);
+        assertThat(schema.getIdleValidators()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should recompile a changed schema with hot reload and keep the old one when the new one is broken")
+    void shouldHotReloadChangedSchema() throws Exception {
+        // Given
+        useClasspathRoot();
+        Instant compiledAt = Instant.now().minusSeconds(60);
+        writeSchema(STRING_SCHEMA, compiledAt);
+        SchemaRegistry registry = new SchemaRegistry(meterRegistry, true, 0, 32);
+        CompiledSchema original = registry.getSchema(LOCATION);
+
+        // When
+        writeSchema(INTEGER_SCHEMA, compiledAt.plusSeconds(10));
+        CompiledSchema reloaded = registry.getSchema(LOCATION);
+        writeSchema("<xs:schema", compiledAt.plusSeconds(20));
+        CompiledSchema afterBrokenEdit = registry.getSchema(LOCATION);
+
+        // Then
+        assertThat(reloaded).isNotSameAs(original);
+        assertThatCode(() -> original.validate(source("<amount>ten</amount>"))).doesNotThrowAnyException();
+        assertThatThrownBy(() -> reloaded.validate(source("<amount>ten</amount>"))).isInstanceOf(SAXException.class);
+        assertThat(afterBrokenEdit).isSameAs(reloaded);
+        assertThat(meterRegistry.get("invoice.schema.compile").functionTimer().count()).isEqualTo(2);
+    }
+
+    private void useClasspathRoot() throws IOException {
+        ClassLoader loader = new URLClassLoader(new URL[]{classpathRoot.toUri().toURL()}, originalClassLoader);
+        Thread.currentThread().setContextClassLoader(loader);
+    }
+
+    private void writeSchema(String content, Instant modifiedAt) throws IOException {
+        Path file = classpathRoot.resolve(LOCATION);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, FileTime.from(modifiedAt));
+    }
+
+    private static StreamSource source(String xml) {
+        return new StreamSource(new StringReader(xml));
+    }
+}
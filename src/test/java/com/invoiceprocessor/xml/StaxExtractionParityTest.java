@@ -0,0 +1,146 @@
+package com.invoiceprocessor.xml;
+
+import com.invoiceprocessor.dto.ExtractedData;
+import com.invoiceprocessor.factory.XmlProcessorFactory;
+import com.invoiceprocessor.strategy.FakturaProcessorStrategy;
+import com.invoiceprocessor.strategy.FakturaStreamingStrategy;
+import com.invoiceprocessor.strategy.InvoiceProcessorStrategy;
+import com.invoiceprocessor.strategy.InvoiceStreamingStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("StAX extraction parity with JAXB strategies")
+class StaxExtractionParityTest {
+
+    private static final String NAMESPACE = "http://crd.gov.pl/wzor/2023/06/29/12648/";
+    private static final String[] DATES = {"2023-01-15", "2024-02-29", " 2023-12-31 ", "2023-06-01Z", "2023-06-01+02:00", "2023-06-01+00:00", "2023-06-01-05:30"};
+    private static final String[] NUMBERS = {"INV-001", "FV/2023/12/0042", "Zażółć & <gęślą>", "  padded  ", "", "A\"B'C"};
+
+    private final CompiledSchema schema = new SchemaRegistry(new SimpleMeterRegistry(), false, 5000, 32).getDefaultSchema();
+    private final JaxbUnmarshallingEngine unmarshallingEngine =
+        new JaxbUnmarshallingEngine(JaxbUnmarshallingEngine.DEFAULT_POOL_SIZE, false);
+    private final XmlProcessorFactory processorFactory =
+        new XmlProcessorFactory(List.of(new FakturaProcessorStrategy(), new InvoiceProcessorStrategy()));
+    private final StaxExtractionEngine staxExtractionEngine =
+        new StaxExtractionEngine(List.of(new FakturaStreamingStrategy(), new InvoiceStreamingStrategy()),
+            new ExtractionMappingRegistry(new ClassPathResource("extraction/mappings.properties")));
+
+    @Test
+    @DisplayName("Should extract the same data as JAXB for every document in a generated corpus")
+    void shouldMatchJaxbOnGeneratedCorpus() throws Exception {
+        List<String> corpus = generateCorpus(new Random(42), 300);
+
+        for (String xml : corpus) {
+            byte[] bytes = xml.getBytes(StandardCharsets.UTF_8);
+            // Both paths only ever see schema-valid documents
+            schema.validate(new StreamSource(new ByteArrayInputStream(bytes)));
+
+            Object xmlObject = unmarshallingEngine.unmarshal(new StreamSource(new ByteArrayInputStream(bytes)));
+            ExtractedData expected = processorFactory.getProcessor(xmlObject).extractData(xmlObject);
+
+            // The JAXB strategies do not fill the mapped fields map
+            assertThat(staxExtractionEngine.extract(bytes)).as(xml)
+                .usingRecursiveComparison().ignoringFields("fields").isEqualTo(expected);
+        }
+    }
+
+    private static List<String> generateCorpus(Random random, int size) {
+        List<String> corpus = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            corpus.add(random.nextInt(4) == 0 ? invoice(random) : faktura(random));
+        }
+        return corpus;
+    }
+
+    private static String faktura(Random random) {
+        // Either the default namespace or a prefix, to make sure matching is by name, not by spelling
+        String p = random.nextBoolean() ? "" : "tns:";
+        String ns = p.isEmpty() ? "xmlns=\"" + NAMESPACE + "\"" : "xmlns:tns=\"" + NAMESPACE + "\"";
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        xml.append("<!-- generated -->\n<").append(p).append("Faktura ").append(ns).append(">");
+        xml.append("<").append(p).append("Naglowek>")
+            .append(element(p, "KodFormularza", random.nextBoolean() ? "FA" : "KOR"))
+            .append(element(p, "WariantFormularza", "1"))
+            .append(element(p, "DataWytworzeniaFa", "2023-12-01T10:30:00"))
+            .append(element(p, "SystemInfo", text(random)))
+            .append("</").append(p).append("Naglowek>");
+        xml.append("<").append(p).append("Podmiot1>")
+            .append(party(p, random))
+            .append(address(p, random))
+            .append("</").append(p).append("Podmiot1>");
+        xml.append(padding(random));
+        xml.append("<").append(p).append("Podmiot2>")
+            .append(party(p, random));
+        if (random.nextBoolean()) {
+            xml.append(address(p, random));
+        }
+        xml.append("</").append(p).append("Podmiot2>");
+        xml.append("<").append(p).append("Fa>")
+            .append(element(p, "KodWaluty", "PLN"))
+            .append(element(p, "P_1", DATES[random.nextInt(DATES.length)]))
+            .append(element(p, "P_2", text(random)));
+        if (random.nextBoolean()) {
+            xml.append(element(p, "P_13_1", "813.01"));
+        }
+        xml.append(element(p, "P_15", random.nextInt(100000) + "." + (10 + random.nextInt(90))))
+            .append("</").append(p).append("Fa>");
+        xml.append("</").append(p).append("Faktura>\n");
+        return xml.toString();
+    }
+
+    private static String invoice(Random random) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<Invoice xmlns=\"" + NAMESPACE + "\">" + padding(random)
+            + element("", "InvoiceNumber", text(random))
+            + "</Invoice>\n";
+    }
+
+    private static String party(String p, Random random) {
+        return "<" + p + "DaneIdentyfikacyjne>"
+            + element(p, "NIP", String.format("%010d", Math.floorMod(random.nextLong(), 10_000_000_000L)))
+            + element(p, "Nazwa", text(random))
+            + "</" + p + "DaneIdentyfikacyjne>";
+    }
+
+    private static String address(String p, Random random) {
+        return "<" + p + "Adres>"
+            + element(p, "KodKraju", new String[] {"PL", "DE", "FR"}[random.nextInt(3)])
+            + element(p, "AdresL1", text(random))
+            + "</" + p + "Adres>";
+    }
+
+    /**
+     * Escaped text, sometimes wrapped in CDATA or split by a comment
+     */
+    private static String text(Random random) {
+        String value = NUMBERS[random.nextInt(NUMBERS.length)] + (random.nextBoolean() ? "-" + random.nextInt(1000) : "");
+        return switch (random.nextInt(3)) {
+            case 0 -> "<![CDATA[" + value + "]]>";
+            case 1 -> escape(value) + "<!-- note -->" + escape("/x");
+            default -> escape(value);
+        };
+    }
+
+    private static String padding(Random random) {
+        return random.nextBoolean() ? "\n    <!-- " + "x".repeat(random.nextInt(200)) + " -->\n" : "";
+    }
+
+    private static String element(String prefix, String name, String content) {
+        return "<" + prefix + name + ">" + content + "</" + prefix + name + ">";
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}